@@ -0,0 +1,248 @@
+package team.codeuniq.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+// Scores threshold crossings before they are uploaded. The model comes from
+// files/confidence_model.json and is compiled into flat primitive arrays, so
+// scoring a candidate is a few multiply-adds or array walks with no allocation.
+//
+// Two model types are accepted:
+//   {"version": 3, "type": "logistic", "weights": [...], "bias": b,
+//    "mean": [...], "scale": [...]}
+//   {"version": 4, "type": "trees", "base_score": b, "trees": [
+//       {"feature": [...], "threshold": [...], "left": [...], "right": [...], "value": [...]}]}
+// Tree nodes with feature -1 are leaves; x[feature] < threshold goes left.
+// Both produce a logit over FEATURE_NAMES, in that order.
+//
+// Without a model file a hand-set prior (version 0) still scores every
+// candidate, but isTrained() is false and callers don't drop candidates on it.
+public class ConfidenceScorer {
+
+    private static final String TAG = "ConfidenceScorer";
+    public static final String MODEL_FILE = "confidence_model.json";
+
+    public static final String[] FEATURE_NAMES = {
+            "excess",          // |zt| - dynamic threshold
+            "abs_z_prev",
+            "abs_z_next",
+            "speed_kmh",
+            "log_interval_s",  // log(1 + seconds since the previous detection)
+            "symmetry"         // (|zPrev| + |zNext|) / 2|zt|, close to 1 for smooth speed bumps
+    };
+    static final int FEATURES = FEATURE_NAMES.length;
+
+    private static ConfidenceScorer instance;
+
+    private final File modelFile;
+    private volatile Model model = Model.prior();
+
+    public static synchronized ConfidenceScorer getInstance(Context context) {
+        if (instance == null) {
+            instance = new ConfidenceScorer(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ConfidenceScorer(Context context) {
+        this(new File(context.getFilesDir(), MODEL_FILE));
+    }
+
+    ConfidenceScorer(File modelFile) {
+        this.modelFile = modelFile;
+        reload();
+    }
+
+    public int getModelVersion() {
+        return model.version;
+    }
+
+    public boolean isTrained() {
+        return model.version > 0;
+    }
+
+    // Confidence 0-100 that the candidate is a pothole. features is the caller's scratch of
+    // FEATURES floats, one per detector, so detectors on different threads never contend.
+    public int score(float[] features, float zt, float zPrev, float zNext, float speedKmh,
+                     long intervalMs, float dynamicThreshold) {
+        float absZ = Math.abs(zt);
+        features[0] = absZ - dynamicThreshold;
+        features[1] = Math.abs(zPrev);
+        features[2] = Math.abs(zNext);
+        features[3] = speedKmh;
+        features[4] = (float) Math.log1p(Math.max(0, intervalMs) / 1000.0);
+        features[5] = absZ > 0f ? (features[1] + features[2]) / (2f * absZ) : 0f;
+
+        double logit = model.logit(features);
+        return (int) Math.round(100.0 / (1.0 + Math.exp(-logit)));
+    }
+
+    // Reads the model file if present; keeps the current model when it's missing or invalid
+    public synchronized boolean reload() {
+        if (!modelFile.exists()) return false;
+
+        try (InputStream in = new FileInputStream(modelFile)) {
+            byte[] bytes = new byte[(int) modelFile.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) break;
+                read += n;
+            }
+            JSONObject json = new JSONObject(new String(bytes, 0, read, StandardCharsets.UTF_8));
+            Model loaded = Model.fromJson(json);
+            if (loaded.version != model.version) {
+                model = loaded;
+                Log.d(TAG, "Loaded " + json.optString("type") + " model v" + loaded.version);
+            }
+            return true;
+        } catch (IOException | JSONException | IllegalArgumentException e) {
+            Log.w(TAG, "Ignoring " + MODEL_FILE + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    // Immutable compiled model. Logistic models use weights/bias/mean/scale;
+    // tree ensembles use the node arrays, with each tree starting at roots[t].
+    private static final class Model {
+        final int version;
+
+        final float[] weights, mean, scale;
+        final float bias;
+
+        final int[] roots, feature, left, right;
+        final float[] threshold, value;
+
+        private Model(int version, float[] weights, float bias, float[] mean, float[] scale,
+                      int[] roots, int[] feature, float[] threshold, int[] left, int[] right,
+                      float[] value) {
+            this.version = version;
+            this.weights = weights;
+            this.bias = bias;
+            this.mean = mean;
+            this.scale = scale;
+            this.roots = roots;
+            this.feature = feature;
+            this.threshold = threshold;
+            this.left = left;
+            this.right = right;
+            this.value = value;
+        }
+
+        // Strong excess and sharp, asymmetric peaks favour potholes; low speed and
+        // symmetric long bumps (speed bumps) count against
+        static Model prior() {
+            return new Model(0,
+                    new float[]{0.8f, 0f, 0f, 0.03f, 0.2f, -2.0f},
+                    0.6f,
+                    new float[]{0f, 0f, 0f, 30f, 0f, 0.5f},
+                    new float[]{1f, 1f, 1f, 1f, 1f, 1f},
+                    null, null, null, null, null, null);
+        }
+
+        double logit(float[] x) {
+            if (roots == null) {
+                double sum = bias;
+                for (int i = 0; i < FEATURES; i++) {
+                    sum += weights[i] * (x[i] - mean[i]) / scale[i];
+                }
+                return sum;
+            }
+
+            double sum = bias;
+            for (int t = 0; t < roots.length; t++) {
+                int node = roots[t];
+                while (feature[node] >= 0) {
+                    node = x[feature[node]] < threshold[node] ? left[node] : right[node];
+                }
+                sum += value[node];
+            }
+            return sum;
+        }
+
+        static Model fromJson(JSONObject json) throws JSONException {
+            int version = json.getInt("version");
+            if (version <= 0) throw new IllegalArgumentException("Model version must be positive");
+            String type = json.getString("type");
+
+            if ("logistic".equals(type)) {
+                float[] weights = floats(json.getJSONArray("weights"));
+                float[] mean = json.has("mean") ? floats(json.getJSONArray("mean")) : new float[FEATURES];
+                float[] scale = json.has("scale") ? floats(json.getJSONArray("scale")) : ones();
+                if (weights.length != FEATURES || mean.length != FEATURES || scale.length != FEATURES) {
+                    throw new IllegalArgumentException("Expected " + FEATURES + " features");
+                }
+                for (float s : scale) {
+                    if (s == 0f) throw new IllegalArgumentException("Zero feature scale");
+                }
+                return new Model(version, weights, (float) json.getDouble("bias"), mean, scale,
+                        null, null, null, null, null, null);
+            }
+
+            if ("trees".equals(type)) {
+                JSONArray trees = json.getJSONArray("trees");
+                int total = 0;
+                for (int t = 0; t < trees.length(); t++) {
+                    total += trees.getJSONObject(t).getJSONArray("feature").length();
+                }
+                int[] roots = new int[trees.length()];
+                int[] feature = new int[total], left = new int[total], right = new int[total];
+                float[] threshold = new float[total], value = new float[total];
+
+                // Concatenate the trees; child indices are shifted by the tree's offset
+                int offset = 0;
+                for (int t = 0; t < trees.length(); t++) {
+                    JSONObject tree = trees.getJSONObject(t);
+                    int nodes = tree.getJSONArray("feature").length();
+                    if (nodes == 0) throw new IllegalArgumentException("Empty tree " + t);
+                    roots[t] = offset;
+                    for (int n = 0; n < nodes; n++) {
+                        int f = tree.getJSONArray("feature").getInt(n);
+                        if (f >= FEATURES) throw new IllegalArgumentException("Unknown feature " + f);
+                        feature[offset + n] = f;
+                        value[offset + n] = (float) tree.getJSONArray("value").getDouble(n);
+                        if (f < 0) continue;
+                        threshold[offset + n] = (float) tree.getJSONArray("threshold").getDouble(n);
+                        left[offset + n] = offset + checkChild(tree.getJSONArray("left").getInt(n), n, nodes);
+                        right[offset + n] = offset + checkChild(tree.getJSONArray("right").getInt(n), n, nodes);
+                    }
+                    offset += nodes;
+                }
+                return new Model(version, null, (float) json.optDouble("base_score", 0),
+                        null, null, roots, feature, threshold, left, right, value);
+            }
+
+            throw new IllegalArgumentException("Unknown model type " + type);
+        }
+
+        // Children must come after their parent, which also rules out cycles
+        private static int checkChild(int child, int parent, int nodes) {
+            if (child <= parent || child >= nodes) {
+                throw new IllegalArgumentException("Bad child index " + child + " at node " + parent);
+            }
+            return child;
+        }
+
+        private static float[] floats(JSONArray array) throws JSONException {
+            float[] out = new float[array.length()];
+            for (int i = 0; i < out.length; i++) out[i] = (float) array.getDouble(i);
+            return out;
+        }
+
+        private static float[] ones() {
+            float[] out = new float[FEATURES];
+            for (int i = 0; i < FEATURES; i++) out[i] = 1f;
+            return out;
+        }
+    }
+}
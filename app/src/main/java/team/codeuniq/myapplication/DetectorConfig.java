@@ -0,0 +1,121 @@
+package team.codeuniq.myapplication;
+
+// Immutable snapshot of the detector parameters. The detection thread reads the
+// current snapshot once per sample from DetectorConfigStore and never locks.
+public final class DetectorConfig {
+
+    public static final DetectorConfig DEFAULTS = new DetectorConfig(
+            0,
+            11.0f,  // T0 - base threshold
+            0.1f,   // S - speed scaling
+            5.0f,   // L - speed offset
+            50,     // ~1 second at 50Hz
+            3000,   // 3 seconds debounce
+            10.0f,  // km/h
+            false,  // base threshold from road-noise calibration
+            1000,   // ms of signature kept before the peak
+            500,    // ms of signature kept after the peak
+            75,     // minimum scorer confidence (0-100) to upload a sensor candidate
+            20,     // sensor events written per budget window, strongest first
+            60000); // budget window
+
+    public final int version;
+    public final float baseThreshold;
+    public final float speedScalingFactor;
+    public final float speedOffset;
+    public final int bufferSize;
+    public final long detectionCooldownMs;
+    public final float speedThreshold;
+    public final boolean autoCalibrate;
+    public final int signaturePreMs;
+    public final int signaturePostMs;
+    public final int confidenceThreshold;
+    public final int writeBudget;
+    public final long budgetWindowMs;
+
+    public DetectorConfig(int version, float baseThreshold, float speedScalingFactor, float speedOffset,
+                          int bufferSize, long detectionCooldownMs, float speedThreshold,
+                          boolean autoCalibrate, int signaturePreMs, int signaturePostMs,
+                          int confidenceThreshold, int writeBudget, long budgetWindowMs) {
+        this.version = version;
+        this.baseThreshold = baseThreshold;
+        this.speedScalingFactor = speedScalingFactor;
+        this.speedOffset = speedOffset;
+        this.bufferSize = bufferSize;
+        this.detectionCooldownMs = detectionCooldownMs;
+        this.speedThreshold = speedThreshold;
+        this.autoCalibrate = autoCalibrate;
+        this.signaturePreMs = signaturePreMs;
+        this.signaturePostMs = signaturePostMs;
+        this.confidenceThreshold = confidenceThreshold;
+        this.writeBudget = writeBudget;
+        this.budgetWindowMs = budgetWindowMs;
+    }
+
+    // T_t = T_0 + S × (V_t - L)
+    public float dynamicThreshold(float speedKmh) {
+        return baseThreshold + speedScalingFactor * (speedKmh - speedOffset);
+    }
+
+    public DetectorConfig withVersion(int newVersion) {
+        return new DetectorConfig(newVersion, baseThreshold, speedScalingFactor, speedOffset,
+                bufferSize, detectionCooldownMs, speedThreshold, autoCalibrate,
+                signaturePreMs, signaturePostMs, confidenceThreshold, writeBudget, budgetWindowMs);
+    }
+
+    public DetectorConfig withBaseThreshold(float newBaseThreshold) {
+        return new DetectorConfig(version, newBaseThreshold, speedScalingFactor, speedOffset,
+                bufferSize, detectionCooldownMs, speedThreshold, autoCalibrate,
+                signaturePreMs, signaturePostMs, confidenceThreshold, writeBudget, budgetWindowMs);
+    }
+
+    public boolean sameValues(DetectorConfig other) {
+        return baseThreshold == other.baseThreshold
+                && speedScalingFactor == other.speedScalingFactor
+                && speedOffset == other.speedOffset
+                && bufferSize == other.bufferSize
+                && detectionCooldownMs == other.detectionCooldownMs
+                && speedThreshold == other.speedThreshold
+                && autoCalibrate == other.autoCalibrate
+                && signaturePreMs == other.signaturePreMs
+                && signaturePostMs == other.signaturePostMs
+                && confidenceThreshold == other.confidenceThreshold
+                && writeBudget == other.writeBudget
+                && budgetWindowMs == other.budgetWindowMs;
+    }
+
+    // Rejects values that would break the detector rather than just tune it
+    public void validate() {
+        // Range checks below are all false for NaN, so it has to be rejected explicitly
+        if (!Float.isFinite(baseThreshold) || !Float.isFinite(speedScalingFactor)
+                || !Float.isFinite(speedOffset) || !Float.isFinite(speedThreshold)) {
+            throw new IllegalArgumentException("Thresholds and speeds must be finite numbers");
+        }
+        if (baseThreshold <= 0f) throw new IllegalArgumentException("Base threshold must be positive");
+        if (speedScalingFactor < 0f) throw new IllegalArgumentException("Speed scaling must not be negative");
+        if (bufferSize < 10 || bufferSize > 1000) throw new IllegalArgumentException("Buffer size must be 10-1000");
+        if (detectionCooldownMs < 0) throw new IllegalArgumentException("Cooldown must not be negative");
+        if (speedThreshold < 0f) throw new IllegalArgumentException("Speed threshold must not be negative");
+        // The signature ring holds about 5 s at the fastest sampling rate
+        if (signaturePreMs < 0 || signaturePostMs < 0 || signaturePreMs + signaturePostMs > 4000) {
+            throw new IllegalArgumentException("Signature window must be 0-4000 ms in total");
+        }
+        if (confidenceThreshold < 0 || confidenceThreshold > 100) {
+            throw new IllegalArgumentException("Confidence threshold must be 0-100");
+        }
+        if (writeBudget < 1 || writeBudget > 1000) throw new IllegalArgumentException("Write budget must be 1-1000");
+        if (budgetWindowMs < 1000 || budgetWindowMs > 3_600_000) {
+            throw new IllegalArgumentException("Budget window must be 1-3600 s");
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "DetectorConfig v" + version + " {T0=" + baseThreshold + ", S=" + speedScalingFactor
+                + ", L=" + speedOffset + ", buffer=" + bufferSize + ", cooldown=" + detectionCooldownMs
+                + "ms, minSpeed=" + speedThreshold + ", autoCalibrate=" + autoCalibrate
+                + ", signature=-" + signaturePreMs + "/+" + signaturePostMs + "ms"
+                + ", minConfidence=" + confidenceThreshold
+                + ", budget=" + writeBudget + "/" + budgetWindowMs + "ms}";
+    }
+}
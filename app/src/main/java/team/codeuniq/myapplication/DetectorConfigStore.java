@@ -0,0 +1,151 @@
+package team.codeuniq.myapplication;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+// Persisted detector configuration, published to the detection thread as an
+// immutable DetectorConfig through an AtomicReference. Edits (Settings screen or
+// files/detector_config.json) replace the snapshot and bump its version; the
+// next sensor sample picks it up without any locking on the hot path.
+public class DetectorConfigStore {
+
+    private static final String TAG = "DetectorConfigStore";
+    private static final String PREFS_NAME = "detector_config";
+    public static final String CONFIG_FILE = "detector_config.json";
+    private static final String KEY_IMPORTED_FILE_MS = "imported_file_modified_ms";
+
+    private static DetectorConfigStore instance;
+
+    private final SharedPreferences prefs;
+    private final File configFile;
+    private final AtomicReference<DetectorConfig> current = new AtomicReference<>();
+
+    public static synchronized DetectorConfigStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new DetectorConfigStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private DetectorConfigStore(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        configFile = new File(context.getFilesDir(), CONFIG_FILE);
+        current.set(readPrefs());
+        // Only a new or changed file is applied on start; otherwise it would undo Settings edits on every launch
+        if (configFile.exists() && configFile.lastModified() != prefs.getLong(KEY_IMPORTED_FILE_MS, 0)) {
+            reloadFromFile();
+        }
+    }
+
+    // Hot path - a single volatile read
+    public DetectorConfig get() {
+        return current.get();
+    }
+
+    public synchronized DetectorConfig update(DetectorConfig edited) {
+        edited.validate();
+        DetectorConfig next = edited.withVersion(current.get().version + 1);
+        writePrefs(next);
+        current.set(next);
+        Log.d(TAG, "Published " + next);
+        return next;
+    }
+
+    // Read-modify-write under the store's lock, so an edit made between the read and the
+    // write can't be overwritten. edit returns null to leave the config as it is.
+    public synchronized DetectorConfig update(UnaryOperator<DetectorConfig> edit) {
+        DetectorConfig edited = edit.apply(current.get());
+        return edited != null ? update(edited) : current.get();
+    }
+
+    public DetectorConfig resetToDefaults() {
+        return update(DetectorConfig.DEFAULTS);
+    }
+
+    // Applies files/detector_config.json if present. Missing keys keep their current value.
+    // Settings calls this directly to re-apply the file even if it hasn't changed.
+    public synchronized boolean reloadFromFile() {
+        if (!configFile.exists()) return false;
+
+        try (InputStream in = new FileInputStream(configFile)) {
+            byte[] bytes = new byte[(int) configFile.length()];
+            int read = 0;
+            while (read < bytes.length) {
+                int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) break;
+                read += n;
+            }
+            JSONObject json = new JSONObject(new String(bytes, 0, read, StandardCharsets.UTF_8));
+            DetectorConfig base = current.get();
+            DetectorConfig fromFile = new DetectorConfig(base.version,
+                    (float) json.optDouble("base_threshold", base.baseThreshold),
+                    (float) json.optDouble("speed_scaling_factor", base.speedScalingFactor),
+                    (float) json.optDouble("speed_offset", base.speedOffset),
+                    json.optInt("buffer_size", base.bufferSize),
+                    json.optLong("detection_cooldown_ms", base.detectionCooldownMs),
+                    (float) json.optDouble("speed_threshold", base.speedThreshold),
+                    json.optBoolean("auto_calibrate", base.autoCalibrate),
+                    json.optInt("signature_pre_ms", base.signaturePreMs),
+                    json.optInt("signature_post_ms", base.signaturePostMs),
+                    json.optInt("confidence_threshold", base.confidenceThreshold),
+                    json.optInt("write_budget", base.writeBudget),
+                    json.optLong("budget_window_ms", base.budgetWindowMs));
+            if (!fromFile.sameValues(base)) {
+                update(fromFile);
+            }
+            prefs.edit().putLong(KEY_IMPORTED_FILE_MS, configFile.lastModified()).apply();
+            return true;
+        } catch (IOException | JSONException | IllegalArgumentException e) {
+            Log.w(TAG, "Ignoring " + CONFIG_FILE + ": " + e.getMessage());
+            return false;
+        }
+    }
+
+    private DetectorConfig readPrefs() {
+        DetectorConfig d = DetectorConfig.DEFAULTS;
+        return new DetectorConfig(
+                prefs.getInt("version", d.version),
+                prefs.getFloat("base_threshold", d.baseThreshold),
+                prefs.getFloat("speed_scaling_factor", d.speedScalingFactor),
+                prefs.getFloat("speed_offset", d.speedOffset),
+                prefs.getInt("buffer_size", d.bufferSize),
+                prefs.getLong("detection_cooldown_ms", d.detectionCooldownMs),
+                prefs.getFloat("speed_threshold", d.speedThreshold),
+                prefs.getBoolean("auto_calibrate", d.autoCalibrate),
+                prefs.getInt("signature_pre_ms", d.signaturePreMs),
+                prefs.getInt("signature_post_ms", d.signaturePostMs),
+                prefs.getInt("confidence_threshold", d.confidenceThreshold),
+                prefs.getInt("write_budget", d.writeBudget),
+                prefs.getLong("budget_window_ms", d.budgetWindowMs));
+    }
+
+    private void writePrefs(DetectorConfig c) {
+        prefs.edit()
+                .putInt("version", c.version)
+                .putFloat("base_threshold", c.baseThreshold)
+                .putFloat("speed_scaling_factor", c.speedScalingFactor)
+                .putFloat("speed_offset", c.speedOffset)
+                .putInt("buffer_size", c.bufferSize)
+                .putLong("detection_cooldown_ms", c.detectionCooldownMs)
+                .putFloat("speed_threshold", c.speedThreshold)
+                .putBoolean("auto_calibrate", c.autoCalibrate)
+                .putInt("signature_pre_ms", c.signaturePreMs)
+                .putInt("signature_post_ms", c.signaturePostMs)
+                .putInt("confidence_threshold", c.confidenceThreshold)
+                .putInt("write_budget", c.writeBudget)
+                .putLong("budget_window_ms", c.budgetWindowMs)
+                .apply();
+    }
+}
@@ -0,0 +1,110 @@
+package team.codeuniq.myapplication;
+
+import org.json.JSONArray;
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+
+// JSON form of an event map, for events kept in HistoryStore while they wait
+// for their budget window. Values JSON can't hold are wrapped in a one-key
+// object: {"$bytes": base64}, {"$double": "NaN"} and {"$server_timestamp": true};
+// whole doubles are wrapped too, as Android's org.json writes 40.0 as 40.
+// Numbers come back as Long or Double, which the backend stores the same way
+// it stores the Integer and Float they may have started as.
+public final class EventCodec {
+
+    private static final String BYTES = "$bytes";
+    private static final String DOUBLE = "$double";
+    private static final String SERVER_TIMESTAMP = "$server_timestamp";
+
+    private EventCodec() {
+    }
+
+    // Throws IllegalArgumentException for a value type events don't use
+    public static String encode(Map<String, Object> data) {
+        try {
+            return encodeMap(data).toString();
+        } catch (JSONException e) {
+            throw new IllegalArgumentException(e.getMessage(), e);
+        }
+    }
+
+    public static Map<String, Object> decode(String json) throws JSONException {
+        return decodeMap(new JSONObject(json));
+    }
+
+    private static JSONObject encodeMap(Map<?, ?> map) throws JSONException {
+        JSONObject out = new JSONObject();
+        for (Map.Entry<?, ?> entry : map.entrySet()) {
+            out.put(String.valueOf(entry.getKey()), encodeValue(entry.getValue()));
+        }
+        return out;
+    }
+
+    private static Object encodeValue(Object value) throws JSONException {
+        if (value == null) return JSONObject.NULL;
+        if (value instanceof String || value instanceof Boolean) return value;
+        if (value instanceof Integer || value instanceof Long || value instanceof Short || value instanceof Byte) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Float || value instanceof Double) {
+            double d = ((Number) value).doubleValue();
+            return d == Math.rint(d) || Double.isNaN(d) ? tag(DOUBLE, Double.toString(d)) : d;
+        }
+        if (value instanceof byte[]) return tag(BYTES, Base64.getEncoder().encodeToString((byte[]) value));
+        if (value == EventSink.SERVER_TIMESTAMP) return tag(SERVER_TIMESTAMP, true);
+        if (value instanceof Map) return encodeMap((Map<?, ?>) value);
+        if (value instanceof List) {
+            JSONArray array = new JSONArray();
+            for (Object item : (List<?>) value) array.put(encodeValue(item));
+            return array;
+        }
+        throw new IllegalArgumentException("Cannot encode " + value.getClass().getName());
+    }
+
+    private static JSONObject tag(String name, Object value) throws JSONException {
+        JSONObject tagged = new JSONObject();
+        tagged.put(name, value);
+        return tagged;
+    }
+
+    private static Map<String, Object> decodeMap(JSONObject json) throws JSONException {
+        Map<String, Object> out = new HashMap<>();
+        Iterator<String> keys = json.keys();
+        while (keys.hasNext()) {
+            String key = keys.next();
+            out.put(key, decodeValue(json.get(key)));
+        }
+        return out;
+    }
+
+    private static Object decodeValue(Object value) throws JSONException {
+        if (value == JSONObject.NULL) return null;
+        if (value instanceof Integer || value instanceof Long || value instanceof java.math.BigInteger) {
+            return ((Number) value).longValue();
+        }
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        if (value instanceof JSONArray) {
+            JSONArray array = (JSONArray) value;
+            List<Object> out = new ArrayList<>(array.length());
+            for (int i = 0; i < array.length(); i++) out.add(decodeValue(array.get(i)));
+            return out;
+        }
+        if (value instanceof JSONObject) {
+            JSONObject json = (JSONObject) value;
+            if (json.length() == 1) {
+                if (json.has(BYTES)) return Base64.getDecoder().decode(json.getString(BYTES));
+                if (json.has(DOUBLE)) return Double.parseDouble(json.getString(DOUBLE));
+                if (json.has(SERVER_TIMESTAMP)) return EventSink.SERVER_TIMESTAMP;
+            }
+            return decodeMap(json);
+        }
+        return value; // String, Boolean
+    }
+}
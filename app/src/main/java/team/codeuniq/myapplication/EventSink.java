@@ -0,0 +1,33 @@
+package team.codeuniq.myapplication;
+
+import java.util.Map;
+
+// Backend that stores pothole event documents. Firestore in the app; the load
+// generator swaps in FakeEventSink to drive the same write path headless.
+// Binary fields are passed as byte[] and server timestamps as SERVER_TIMESTAMP,
+// so event data holds no backend types and can be kept in HistoryStore.
+public interface EventSink {
+
+    // Stands for the backend's own clock at the time the write is applied
+    Object SERVER_TIMESTAMP = new Object() {
+        @Override
+        public String toString() {
+            return "SERVER_TIMESTAMP";
+        }
+    };
+
+    interface Callback {
+        // error is null on success; called on an arbitrary thread
+        void onComplete(Exception error);
+    }
+
+    String newDocumentId();
+
+    void write(String docId, Map<String, Object> data, Callback callback);
+
+    // Tally of events the write budget evicted, so they are counted rather than lost
+    void writeEvictions(Map<String, Object> summary, Callback callback);
+
+    // Merged into the user's profile document
+    void writeProfile(String userId, Map<String, Object> fields, Callback callback);
+}
@@ -0,0 +1,252 @@
+package team.codeuniq.myapplication;
+
+import android.util.Log;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+// Write path for pothole events: records the event in the local history and
+// stores it through the sink, tracking pending writes and latency in
+// PipelineMetrics. The load generator builds one without history or metrics
+// so synthetic traffic stays out of both (and out of logcat).
+//
+// With a budget set, sensor events wait in a WriteBudgetQueue per session and
+// at the end of each window only the strongest (at most the budget) are
+// written; the rest are evicted and reported per window as one summary
+// document. Image events and anything without detection features go straight
+// through. Queued events are recorded in the history with their payload as
+// they arrive, so the ones a crash interrupts are written by restorePending()
+// on the next start; evicted ones are deleted from it again.
+public class EventWriter {
+
+    private static final String TAG = "EventWriter";
+
+    // Passed to the callback of an event the write budget dropped
+    public static class EvictedException extends Exception {
+        EvictedException() {
+            super("Evicted by the write budget");
+        }
+    }
+
+    private final EventSink sink;
+    private final HistoryStore historyStore; // null to skip the local history
+    private final boolean recordMetrics;
+
+    private final Map<String, WriteBudgetQueue> queues = new HashMap<>();
+    private ScheduledExecutorService flusher;
+    private ScheduledFuture<?> flushTask;
+    private volatile int writeBudget = 0; // 0: no budget, write immediately
+    private long budgetWindowMs;
+
+    public EventWriter(EventSink sink, HistoryStore historyStore, boolean recordMetrics) {
+        this.sink = sink;
+        this.historyStore = historyStore;
+        this.recordMetrics = recordMetrics;
+    }
+
+    // Starts (or retimes) the budget windows; writes at most writeBudget sensor events per session per window
+    public synchronized void setBudget(int writeBudget, long windowMs) {
+        if (this.writeBudget == writeBudget && budgetWindowMs == windowMs && flushTask != null) return;
+        this.writeBudget = writeBudget;
+        this.budgetWindowMs = windowMs;
+        if (flushTask != null) flushTask.cancel(false);
+        if (flusher == null) flusher = Executors.newSingleThreadScheduledExecutor();
+        flushTask = flusher.scheduleAtFixedRate(this::flushAll, windowMs, windowMs, TimeUnit.MILLISECONDS);
+    }
+
+    public String newDocumentId() {
+        return sink.newDocumentId();
+    }
+
+    public void save(Map<String, Object> eventData) {
+        save(sink.newDocumentId(), eventData, null);
+    }
+
+    public void save(String docId, Map<String, Object> eventData) {
+        save(docId, eventData, null);
+    }
+
+    public void save(String docId, Map<String, Object> eventData, EventSink.Callback done) {
+        int budget = writeBudget;
+        if (budget <= 0 || !WriteBudgetQueue.isBudgeted(eventData)) {
+            write(docId, eventData, done, false);
+            return;
+        }
+
+        // Under the map lock so a flush can't retire the session's queue mid-offer. The
+        // history writes are queued under it too, so they stay in the order of the queue
+        // changes and a restart never revives an event that was already removed.
+        WriteBudgetQueue.Entry evicted;
+        synchronized (queues) {
+            evicted = queueFor(eventData).offer(docId, eventData, done, budget);
+            if (historyStore != null) {
+                if (evicted == null || !evicted.docId.equals(docId)) {
+                    historyStore.recordPendingAsync(docId, eventData, System.currentTimeMillis());
+                    if (evicted != null) historyStore.deleteAsync(evicted.docId);
+                }
+            }
+        }
+        if (evicted != null) onEvicted(evicted);
+    }
+
+    // Whether a budgeted event saved now would be queued, so callers can skip work for
+    // one that wouldn't (it can still be evicted later in the window)
+    public boolean wouldAdmit(String docId, Map<String, Object> eventData) {
+        int budget = writeBudget;
+        if (budget <= 0 || !WriteBudgetQueue.isBudgeted(eventData)) return true;
+        synchronized (queues) {
+            WriteBudgetQueue queue = queues.get(String.valueOf(eventData.get("session_id")));
+            return queue == null || queue.admits(docId, eventData, budget);
+        }
+    }
+
+    private WriteBudgetQueue queueFor(Map<String, Object> eventData) {
+        String key = String.valueOf(eventData.get("session_id"));
+        WriteBudgetQueue queue = queues.get(key);
+        if (queue == null) {
+            queue = new WriteBudgetQueue();
+            queues.put(key, queue);
+        }
+        return queue;
+    }
+
+    private void onEvicted(WriteBudgetQueue.Entry entry) {
+        if (recordMetrics && PipelineMetrics.enabled) PipelineMetrics.evictedEvents.increment();
+        if (entry.callback != null) entry.callback.onComplete(new EvictedException());
+    }
+
+    // Writes the events a crash or kill left waiting for their budget window. There are
+    // never more than a window's budget of them per session, so they go straight out.
+    public void restorePending() {
+        if (historyStore != null) historyStore.forEachPendingAsync((docId, data) -> write(docId, data, null, true));
+    }
+
+    // Writes what a session has queued now, e.g. when its trip ends
+    public void flush(String sessionId) {
+        WriteBudgetQueue queue;
+        synchronized (queues) {
+            queue = queues.remove(String.valueOf(sessionId));
+        }
+        if (queue != null) flushQueue(String.valueOf(sessionId), queue);
+    }
+
+    public void flushAll() {
+        List<Map.Entry<String, WriteBudgetQueue>> sessions;
+        synchronized (queues) {
+            sessions = new ArrayList<>(queues.entrySet());
+            // Sessions with nothing queued since the last window are dropped
+            List<String> idle = new ArrayList<>();
+            for (Map.Entry<String, WriteBudgetQueue> session : sessions) {
+                if (session.getValue().size() == 0) idle.add(session.getKey());
+            }
+            for (String key : idle) queues.remove(key);
+        }
+        for (Map.Entry<String, WriteBudgetQueue> session : sessions) {
+            flushQueue(session.getKey(), session.getValue());
+        }
+    }
+
+    private void flushQueue(String sessionId, WriteBudgetQueue queue) {
+        List<WriteBudgetQueue.Entry> overflow = new ArrayList<>();
+        int budget = writeBudget;
+        List<WriteBudgetQueue.Entry> entries;
+        // Drained under the map lock so the history sees an offer before its write
+        synchronized (queues) {
+            entries = queue.drain(budget > 0 ? budget : Integer.MAX_VALUE, overflow);
+            if (historyStore != null) {
+                for (WriteBudgetQueue.Entry entry : overflow) historyStore.deleteAsync(entry.docId);
+            }
+        }
+        for (WriteBudgetQueue.Entry entry : overflow) onEvicted(entry);
+        for (WriteBudgetQueue.Entry entry : entries) write(entry.docId, entry.data, entry.callback, true);
+
+        WriteBudgetQueue.Evictions evictions = queue.takeEvictions();
+        if (evictions != null) writeEvictions(sessionId, evictions);
+    }
+
+    private void writeEvictions(String sessionId, WriteBudgetQueue.Evictions evictions) {
+        Map<String, Object> summary = new HashMap<>();
+        summary.put("session_id", sessionId);
+        summary.put("user_id", evictions.userId);
+        summary.put("window_end_ms", System.currentTimeMillis());
+        summary.put("budget_window_ms", budgetWindowMs);
+        summary.put("write_budget", writeBudget);
+        summary.put("evicted_count", evictions.count);
+        summary.put("evicted_max_strength", evictions.maxStrength);
+        summary.put("evicted_by_segment", evictions.bySegment);
+
+        sink.writeEvictions(summary, error -> {
+            if (error != null) {
+                Log.w(TAG, "Error saving eviction summary", error);
+                if (recordMetrics && PipelineMetrics.enabled) PipelineMetrics.writeFailures.increment();
+            }
+        });
+    }
+
+    // Profile fields bypass the budget and the local history
+    public void saveProfile(String userId, Map<String, Object> fields) {
+        boolean metrics = recordMetrics && PipelineMetrics.enabled;
+        long start = System.nanoTime();
+        if (metrics) PipelineMetrics.pendingWrites.increment();
+
+        sink.writeProfile(userId, fields, error -> {
+            if (metrics) {
+                PipelineMetrics.pendingWrites.decrement();
+                if (error == null) {
+                    PipelineMetrics.firestoreWriteMs.record((System.nanoTime() - start) / 1_000_000);
+                } else {
+                    PipelineMetrics.writeFailures.increment();
+                }
+            }
+            if (error != null) Log.w(TAG, "Error saving user profile", error);
+        });
+    }
+
+    // pending: the event was recorded with its payload when it was queued
+    private void write(String docId, Map<String, Object> eventData, EventSink.Callback done, boolean pending) {
+        boolean metrics = recordMetrics && PipelineMetrics.enabled;
+        long start = System.nanoTime();
+        if (metrics) PipelineMetrics.pendingWrites.increment();
+
+        if (historyStore != null) {
+            if (pending) {
+                historyStore.markWrittenAsync(docId);
+            } else {
+                historyStore.recordAsync(HistoryRecord.fromEventData(docId, eventData, System.currentTimeMillis()));
+            }
+        }
+
+        sink.write(docId, eventData, error -> {
+            if (error == null) {
+                if (recordMetrics) Log.d(TAG, "Pothole saved with ID: " + docId);
+                if (metrics) {
+                    PipelineMetrics.pendingWrites.decrement();
+                    PipelineMetrics.firestoreWriteMs.record((System.nanoTime() - start) / 1_000_000);
+                }
+            } else {
+                Log.w(TAG, "Error adding pothole", error);
+                if (metrics) {
+                    PipelineMetrics.pendingWrites.decrement();
+                    PipelineMetrics.writeFailures.increment();
+                }
+            }
+            if (done != null) done.onComplete(error);
+        });
+    }
+
+    // Stops the budget windows and writes everything still queued
+    public synchronized void close() {
+        if (flushTask != null) flushTask.cancel(false);
+        flushTask = null;
+        writeBudget = 0;
+        flushAll();
+        if (flusher != null) flusher.shutdown();
+        flusher = null;
+    }
+}
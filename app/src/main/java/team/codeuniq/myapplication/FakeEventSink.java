@@ -0,0 +1,95 @@
+package team.codeuniq.myapplication;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+// In-process stand-in for the backend: acknowledges each write after a
+// simulated round trip (log-normal around the median, like real RTTs) and
+// fails a configurable fraction. Documents are counted and sized, not kept.
+public class FakeEventSink implements EventSink {
+
+    private final ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(2);
+    private final Random random = new Random();
+    private final long medianLatencyMs;
+    private final double failureRate;
+
+    private final AtomicLong stored = new AtomicLong();
+    private final AtomicLong storedBytes = new AtomicLong();
+
+    public FakeEventSink(long medianLatencyMs, double failureRate) {
+        this.medianLatencyMs = medianLatencyMs;
+        this.failureRate = failureRate;
+    }
+
+    @Override
+    public String newDocumentId() {
+        return UUID.randomUUID().toString();
+    }
+
+    @Override
+    public void write(String docId, Map<String, Object> data, Callback callback) {
+        double gaussian;
+        boolean fail;
+        synchronized (random) {
+            gaussian = random.nextGaussian();
+            fail = random.nextDouble() < failureRate;
+        }
+        long delayMs = Math.round(medianLatencyMs * Math.exp(0.5 * gaussian));
+        long bytes = estimateSize(data);
+
+        scheduler.schedule(() -> {
+            if (fail) {
+                callback.onComplete(new IOException("Simulated backend failure"));
+            } else {
+                stored.incrementAndGet();
+                storedBytes.addAndGet(bytes);
+                callback.onComplete(null);
+            }
+        }, delayMs, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void writeEvictions(Map<String, Object> summary, Callback callback) {
+        write(newDocumentId(), summary, callback);
+    }
+
+    @Override
+    public void writeProfile(String userId, Map<String, Object> fields, Callback callback) {
+        write(userId, fields, callback);
+    }
+
+    // Rough document size: key names plus 8 bytes per scalar, blobs at their length
+    private static long estimateSize(Map<String, Object> data) {
+        long bytes = 0;
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            bytes += entry.getKey().length() + 1;
+            Object value = entry.getValue();
+            if (value instanceof byte[]) {
+                bytes += ((byte[]) value).length;
+            } else if (value instanceof String) {
+                bytes += ((String) value).length() + 1;
+            } else {
+                bytes += 8;
+            }
+        }
+        return bytes;
+    }
+
+    public long getStoredCount() {
+        return stored.get();
+    }
+
+    public long getStoredBytes() {
+        return storedBytes.get();
+    }
+
+    public void shutdown() {
+        scheduler.shutdown();
+    }
+}
@@ -0,0 +1,64 @@
+package team.codeuniq.myapplication;
+
+import com.google.firebase.firestore.Blob;
+import com.google.firebase.firestore.CollectionReference;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.SetOptions;
+
+import java.util.HashMap;
+import java.util.Map;
+
+public class FirestoreEventSink implements EventSink {
+
+    private final CollectionReference potholes;
+    private final CollectionReference evictions;
+    private final CollectionReference users;
+
+    public FirestoreEventSink(FirebaseFirestore firestore) {
+        this.potholes = firestore.collection("potholes");
+        this.evictions = firestore.collection("event_evictions");
+        this.users = firestore.collection("users");
+    }
+
+    @Override
+    public String newDocumentId() {
+        return potholes.document().getId();
+    }
+
+    @Override
+    public void write(String docId, Map<String, Object> data, Callback callback) {
+        potholes.document(docId).set(toFirestore(data))
+                .addOnSuccessListener(aVoid -> callback.onComplete(null))
+                .addOnFailureListener(callback::onComplete);
+    }
+
+    // Firestore stores bytes as Blob and takes FieldValue for the server's clock;
+    // the caller's map is left as it is
+    private static Map<String, Object> toFirestore(Map<String, Object> data) {
+        Map<String, Object> converted = null;
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            Object value = entry.getValue();
+            if (value instanceof byte[] || value == SERVER_TIMESTAMP) {
+                if (converted == null) converted = new HashMap<>(data);
+                converted.put(entry.getKey(), value == SERVER_TIMESTAMP
+                        ? FieldValue.serverTimestamp() : Blob.fromBytes((byte[]) value));
+            }
+        }
+        return converted == null ? data : converted;
+    }
+
+    @Override
+    public void writeEvictions(Map<String, Object> summary, Callback callback) {
+        evictions.add(toFirestore(summary))
+                .addOnSuccessListener(ref -> callback.onComplete(null))
+                .addOnFailureListener(callback::onComplete);
+    }
+
+    @Override
+    public void writeProfile(String userId, Map<String, Object> fields, Callback callback) {
+        users.document(userId).set(toFirestore(fields), SetOptions.merge())
+                .addOnSuccessListener(aVoid -> callback.onComplete(null))
+                .addOnFailureListener(callback::onComplete);
+    }
+}
@@ -0,0 +1,157 @@
+package team.codeuniq.myapplication;
+
+import android.graphics.ImageFormat;
+import android.graphics.Rect;
+import android.graphics.YuvImage;
+
+import androidx.camera.core.ImageProxy;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+
+// Dash-cam ring of the last N downscaled preview frames, kept as NV21.
+// All frame memory is allocated up front from a fixed byte budget; writing a
+// frame only copies pixels into the oldest slot.
+// Frame timestamps must be on the elapsedRealtimeNanos time base of
+// SensorEvent.timestamp; the caller passes the camera's own timestamp only when
+// the sensor reports SENSOR_INFO_TIMESTAMP_SOURCE_REALTIME, else receipt time.
+public class FrameRingBuffer {
+
+    public static final int FRAME_WIDTH = 160;
+    public static final int FRAME_HEIGHT = 120;
+    private static final int FRAME_BYTES = FRAME_WIDTH * FRAME_HEIGHT * 3 / 2;
+    private static final int JPEG_QUALITY = 80;
+
+    private final byte[][] frames;
+    private final long[] timestamps;
+    private final int capacity;
+    private int head = 0;  // next slot to write
+    private int count = 0;
+
+    public FrameRingBuffer(int memoryBudgetBytes) {
+        capacity = Math.max(1, memoryBudgetBytes / FRAME_BYTES);
+        frames = new byte[capacity][FRAME_BYTES];
+        timestamps = new long[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public int getMemoryBytes() {
+        return capacity * FRAME_BYTES;
+    }
+
+    public synchronized void clear() {
+        head = 0;
+        count = 0;
+    }
+
+    // Downscale (nearest neighbour, rotated upright) the YUV_420_888 frame into the oldest slot
+    public synchronized void write(ImageProxy image, long timestampNs) {
+        byte[] out = frames[head];
+        timestamps[head] = timestampNs;
+
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        ByteBuffer yBuffer = planes[0].getBuffer();
+        int yRowStride = planes[0].getRowStride();
+        int yPixelStride = planes[0].getPixelStride();
+        ByteBuffer uBuffer = planes[1].getBuffer();
+        ByteBuffer vBuffer = planes[2].getBuffer();
+        int uvRowStride = planes[1].getRowStride();
+        int uvPixelStride = planes[1].getPixelStride();
+
+        int rotation = image.getImageInfo().getRotationDegrees();
+        int srcWidth = image.getWidth();
+        int srcHeight = image.getHeight();
+        boolean swap = rotation == 90 || rotation == 270;
+        int uprightWidth = swap ? srcHeight : srcWidth;
+        int uprightHeight = swap ? srcWidth : srcHeight;
+
+        int chromaOffset = FRAME_WIDTH * FRAME_HEIGHT;
+        for (int oy = 0; oy < FRAME_HEIGHT; oy++) {
+            int uy = oy * uprightHeight / FRAME_HEIGHT;
+            for (int ox = 0; ox < FRAME_WIDTH; ox++) {
+                int ux = ox * uprightWidth / FRAME_WIDTH;
+
+                int sx, sy;
+                switch (rotation) {
+                    case 90: sx = uy; sy = srcHeight - 1 - ux; break;
+                    case 180: sx = srcWidth - 1 - ux; sy = srcHeight - 1 - uy; break;
+                    case 270: sx = srcWidth - 1 - uy; sy = ux; break;
+                    default: sx = ux; sy = uy; break;
+                }
+
+                out[oy * FRAME_WIDTH + ox] = yBuffer.get(sy * yRowStride + sx * yPixelStride);
+
+                // NV21 chroma: one interleaved V/U pair per 2x2 block
+                if ((oy & 1) == 0 && (ox & 1) == 0) {
+                    int uvIndex = (sy >> 1) * uvRowStride + (sx >> 1) * uvPixelStride;
+                    int dst = chromaOffset + (oy >> 1) * FRAME_WIDTH + ox;
+                    out[dst] = vBuffer.get(uvIndex);
+                    out[dst + 1] = uBuffer.get(uvIndex);
+                }
+            }
+        }
+
+        head = (head + 1) % capacity;
+        if (count < capacity) count++;
+    }
+
+    // Copies out the frames whose timestamps are closest to the given time, oldest first.
+    // Only called on detections, so allocating the copies here is fine.
+    public synchronized Snapshot[] closestFrames(long timestampNs, int maxFrames) {
+        int n = Math.min(maxFrames, count);
+        int[] picked = new int[n];
+        int pickedCount = 0;
+
+        for (int k = 0; k < n; k++) {
+            int best = -1;
+            long bestDistance = Long.MAX_VALUE;
+            for (int i = 0; i < count; i++) {
+                int slot = (head - 1 - i + capacity) % capacity;
+                if (contains(picked, pickedCount, slot)) continue;
+                long distance = Math.abs(timestamps[slot] - timestampNs);
+                if (distance < bestDistance) {
+                    bestDistance = distance;
+                    best = slot;
+                }
+            }
+            if (best < 0) break;
+            picked[pickedCount++] = best;
+        }
+
+        Snapshot[] result = new Snapshot[pickedCount];
+        for (int i = 0; i < pickedCount; i++) {
+            int slot = picked[i];
+            result[i] = new Snapshot(timestamps[slot], frames[slot].clone());
+        }
+        Arrays.sort(result, (a, b) -> Long.compare(a.timestampNs, b.timestampNs));
+        return result;
+    }
+
+    private static boolean contains(int[] values, int length, int value) {
+        for (int i = 0; i < length; i++) {
+            if (values[i] == value) return true;
+        }
+        return false;
+    }
+
+    public static byte[] encodeJpeg(Snapshot snapshot) {
+        YuvImage yuv = new YuvImage(snapshot.nv21, ImageFormat.NV21, FRAME_WIDTH, FRAME_HEIGHT, null);
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        yuv.compressToJpeg(new Rect(0, 0, FRAME_WIDTH, FRAME_HEIGHT), JPEG_QUALITY, out);
+        return out.toByteArray();
+    }
+
+    public static class Snapshot {
+        public final long timestampNs;
+        final byte[] nv21;
+
+        Snapshot(long timestampNs, byte[] nv21) {
+            this.timestampNs = timestampNs;
+            this.nv21 = nv21;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package team.codeuniq.myapplication;
+
+// Standard base32 geohash, used to index detections by area
+public final class GeoHash {
+
+    private static final char[] BASE32 = "0123456789bcdefghjkmnpqrstuvwxyz".toCharArray();
+
+    private GeoHash() {}
+
+    public static String encode(double latitude, double longitude, int precision) {
+        double minLat = -90, maxLat = 90;
+        double minLon = -180, maxLon = 180;
+        char[] hash = new char[precision];
+        boolean evenBit = true;
+        int bit = 0, ch = 0, index = 0;
+
+        while (index < precision) {
+            if (evenBit) {
+                double mid = (minLon + maxLon) / 2;
+                if (longitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLon = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLon = mid;
+                }
+            } else {
+                double mid = (minLat + maxLat) / 2;
+                if (latitude >= mid) {
+                    ch = (ch << 1) | 1;
+                    minLat = mid;
+                } else {
+                    ch = ch << 1;
+                    maxLat = mid;
+                }
+            }
+            evenBit = !evenBit;
+
+            if (++bit == 5) {
+                hash[index++] = BASE32[ch];
+                bit = 0;
+                ch = 0;
+            }
+        }
+        return new String(hash);
+    }
+}
@@ -0,0 +1,165 @@
+package team.codeuniq.myapplication;
+
+import android.os.Bundle;
+import android.os.Handler;
+import android.os.Looper;
+import android.text.format.DateFormat;
+import android.view.LayoutInflater;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.appcompat.app.AppCompatActivity;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+import com.google.firebase.auth.FirebaseUser;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Detection history read entirely from the local HistoryStore - no Firestore reads.
+// Pages are loaded as the list approaches its end.
+public class HistoryActivity extends AppCompatActivity {
+
+    private static final int PAGE_SIZE = 50;
+    private static final int PREFETCH_DISTANCE = 15;
+
+    private RecyclerView historyList;
+    private TextView emptyText;
+    private HistoryAdapter adapter;
+
+    private HistoryStore store;
+    private String userId;
+    private HistoryRecord.Cursor nextCursor;
+    private boolean isLoading = false;
+    private boolean reachedEnd = false;
+
+    private final ExecutorService queryExecutor = Executors.newSingleThreadExecutor();
+    private final Handler uiHandler = new Handler(Looper.getMainLooper());
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_history);
+
+        FirebaseUser user;
+        try {
+            user = PotholeApp.get(this).getSessionManager().getUser();
+        } catch (IllegalStateException e) {
+            // Firebase failed to start, so there is no signed-in user to show history for
+            user = null;
+        }
+        if (user == null) {
+            finish();
+            return;
+        }
+        userId = user.getUid();
+        store = HistoryStore.getInstance(this);
+
+        historyList = findViewById(R.id.historyList);
+        emptyText = findViewById(R.id.emptyText);
+
+        LinearLayoutManager layoutManager = new LinearLayoutManager(this);
+        adapter = new HistoryAdapter();
+        historyList.setLayoutManager(layoutManager);
+        historyList.setAdapter(adapter);
+        historyList.addOnScrollListener(new RecyclerView.OnScrollListener() {
+            @Override
+            public void onScrolled(@NonNull RecyclerView recyclerView, int dx, int dy) {
+                if (dy > 0 && layoutManager.findLastVisibleItemPosition()
+                        >= adapter.getItemCount() - PREFETCH_DISTANCE) {
+                    loadNextPage();
+                }
+            }
+        });
+
+        loadNextPage();
+    }
+
+    private void loadNextPage() {
+        if (isLoading || reachedEnd) return;
+        isLoading = true;
+
+        HistoryRecord.Cursor after = nextCursor;
+        queryExecutor.execute(() -> {
+            List<HistoryRecord> page = store.queryPage(userId, after, PAGE_SIZE);
+            uiHandler.post(() -> {
+                isLoading = false;
+                if (page.size() < PAGE_SIZE) reachedEnd = true;
+                if (!page.isEmpty()) {
+                    HistoryRecord last = page.get(page.size() - 1);
+                    nextCursor = new HistoryRecord.Cursor(last.timestampMs, last.docId);
+                    adapter.append(page);
+                }
+                emptyText.setVisibility(adapter.getItemCount() == 0 ? View.VISIBLE : View.GONE);
+            });
+        });
+    }
+
+    @Override
+    protected void onDestroy() {
+        super.onDestroy();
+        queryExecutor.shutdown();
+    }
+
+    private static class HistoryAdapter extends RecyclerView.Adapter<HistoryAdapter.ViewHolder> {
+
+        private final List<HistoryRecord> records = new ArrayList<>();
+
+        void append(List<HistoryRecord> page) {
+            int start = records.size();
+            records.addAll(page);
+            notifyItemRangeInserted(start, page.size());
+        }
+
+        @NonNull
+        @Override
+        public ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            View view = LayoutInflater.from(parent.getContext())
+                    .inflate(R.layout.item_history, parent, false);
+            return new ViewHolder(view);
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull ViewHolder holder, int position) {
+            HistoryRecord r = records.get(position);
+            holder.typeText.setText("IMAGE".equals(r.detectionType) ? "Photo report" : "Sensor detection");
+            holder.timeText.setText(DateFormat.format("dd MMM yyyy, HH:mm", r.timestampMs));
+
+            StringBuilder details = new StringBuilder();
+            if (r.latitude != null && r.longitude != null) {
+                details.append(String.format("%.5f, %.5f", r.latitude, r.longitude));
+            }
+            if (r.speed != null) {
+                details.append(String.format("  •  %.1f km/h", r.speed));
+            }
+            if (r.ztPeak != null) {
+                details.append(String.format("  •  Z %.2f", r.ztPeak));
+            }
+            if (r.confidence != null) {
+                details.append("  •  ").append(r.confidence).append("%");
+            }
+            holder.detailsText.setText(details.toString());
+        }
+
+        @Override
+        public int getItemCount() {
+            return records.size();
+        }
+
+        static class ViewHolder extends RecyclerView.ViewHolder {
+            final TextView typeText, timeText, detailsText;
+
+            ViewHolder(View itemView) {
+                super(itemView);
+                typeText = itemView.findViewById(R.id.typeText);
+                timeText = itemView.findViewById(R.id.timeText);
+                detailsText = itemView.findViewById(R.id.detailsText);
+            }
+        }
+    }
+}
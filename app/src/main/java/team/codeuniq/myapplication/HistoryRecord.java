@@ -0,0 +1,84 @@
+package team.codeuniq.myapplication;
+
+import java.util.Map;
+
+// One row of the local detection history
+public class HistoryRecord {
+
+    public final String docId;
+    public final String userId;
+    public final String sessionId;
+    public final String detectionType; // "SENSOR" or "IMAGE"
+    public final long timestampMs;
+    public final Double latitude;
+    public final Double longitude;
+    public final Float speed;
+    public final Float ztPeak;
+    public final Integer confidence;
+    public final String imageUrl;
+
+    public HistoryRecord(String docId, String userId, String sessionId, String detectionType,
+                         long timestampMs, Double latitude, Double longitude, Float speed,
+                         Float ztPeak, Integer confidence, String imageUrl) {
+        this.docId = docId;
+        this.userId = userId;
+        this.sessionId = sessionId;
+        this.detectionType = detectionType;
+        this.timestampMs = timestampMs;
+        this.latitude = latitude;
+        this.longitude = longitude;
+        this.speed = speed;
+        this.ztPeak = ztPeak;
+        this.confidence = confidence;
+        this.imageUrl = imageUrl;
+    }
+
+    // Builds a record from the unified event map written to the potholes collection
+    public static HistoryRecord fromEventData(String docId, Map<String, Object> data, long timestampMs) {
+        return new HistoryRecord(
+                docId,
+                (String) data.get("user_id"),
+                (String) data.get("session_id"),
+                (String) data.get("detection_type"),
+                timestampMs,
+                asDouble(data.get("latitude")),
+                asDouble(data.get("longitude")),
+                asFloat(data.get("speed")),
+                asFloat(data.get("zt_peak")),
+                data.get("confidence") instanceof Number ? ((Number) data.get("confidence")).intValue() : null,
+                (String) data.get("imageUrl"));
+    }
+
+    private static Double asDouble(Object value) {
+        return value instanceof Number ? ((Number) value).doubleValue() : null;
+    }
+
+    private static Float asFloat(Object value) {
+        return value instanceof Number ? ((Number) value).floatValue() : null;
+    }
+
+    // Keyset cursor: the (timestamp, docId) of the last row of a page
+    public static class Cursor {
+        public final long timestampMs;
+        public final String docId;
+
+        public Cursor(long timestampMs, String docId) {
+            this.timestampMs = timestampMs;
+            this.docId = docId;
+        }
+    }
+
+    // Sync high-water mark: the server timestamp at full (microsecond) precision, so
+    // startAfter doesn't re-read the newest document of the previous sync
+    public static class SyncMark {
+        public final long seconds;
+        public final int nanos;
+        public final String docId;
+
+        public SyncMark(long seconds, int nanos, String docId) {
+            this.seconds = seconds;
+            this.nanos = nanos;
+            this.docId = docId;
+        }
+    }
+}
@@ -0,0 +1,278 @@
+package team.codeuniq.myapplication;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.database.Cursor;
+import android.database.sqlite.SQLiteDatabase;
+import android.database.sqlite.SQLiteOpenHelper;
+import android.database.sqlite.SQLiteStatement;
+import android.util.Log;
+
+import org.json.JSONException;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+
+// On-device history of the user's own detections and reports.
+// Rows are indexed by (user, time), session and geohash; pages are fetched with
+// keyset cursors so the cost of a page doesn't grow with the history size.
+// Sensor events waiting for their write-budget window are recorded as soon as
+// they are queued, with the event itself kept in `payload` until it is handed
+// to the backend, so a crash doesn't lose them; the row is deleted if the
+// budget evicts the event.
+public class HistoryStore extends SQLiteOpenHelper {
+
+    private static final String TAG = "HistoryStore";
+    private static final String DB_NAME = "history.db";
+    private static final int DB_VERSION = 3; // 2: nullable user_id, sync mark in seconds + nanos; 3: pending payload
+    public static final int GEOHASH_PRECISION = 7; // ~150 m cells
+
+    private static final String TABLE = "detections";
+    private static final String SYNC_TABLE = "sync_state";
+
+    private static HistoryStore instance;
+
+    // Writes are queued off the caller's thread - SQLite serialises them anyway
+    private final ExecutorService writeExecutor = Executors.newSingleThreadExecutor();
+
+    public static synchronized HistoryStore getInstance(Context context) {
+        if (instance == null) {
+            instance = new HistoryStore(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private HistoryStore(Context context) {
+        super(context, DB_NAME, null, DB_VERSION);
+    }
+
+    @Override
+    public void onCreate(SQLiteDatabase db) {
+        db.execSQL("CREATE TABLE " + TABLE + " ("
+                + "doc_id TEXT PRIMARY KEY, "
+                + "user_id TEXT, "
+                + "session_id TEXT, "
+                + "detection_type TEXT, "
+                + "timestamp_ms INTEGER NOT NULL, "
+                + "geohash TEXT, "
+                + "latitude REAL, "
+                + "longitude REAL, "
+                + "speed REAL, "
+                + "zt_peak REAL, "
+                + "confidence INTEGER, "
+                + "image_url TEXT, "
+                + "payload TEXT)"); // EventCodec JSON while the event waits to be written
+        db.execSQL("CREATE INDEX idx_user_time ON " + TABLE + " (user_id, timestamp_ms DESC, doc_id DESC)");
+        db.execSQL("CREATE INDEX idx_session_time ON " + TABLE + " (session_id, timestamp_ms DESC)");
+        db.execSQL("CREATE INDEX idx_geohash ON " + TABLE + " (geohash)");
+        db.execSQL("CREATE INDEX idx_pending ON " + TABLE + " (timestamp_ms) WHERE payload IS NOT NULL");
+
+        db.execSQL("CREATE TABLE " + SYNC_TABLE + " ("
+                + "user_id TEXT PRIMARY KEY, "
+                + "high_water_seconds INTEGER NOT NULL, "
+                + "high_water_nanos INTEGER NOT NULL, "
+                + "high_water_doc TEXT NOT NULL)");
+    }
+
+    @Override
+    public void onUpgrade(SQLiteDatabase db, int oldVersion, int newVersion) {
+        // Local cache only - it is rebuilt from Firestore by the next sync. Rows with a
+        // payload are not in Firestore yet; a later version must carry them over.
+        db.execSQL("DROP TABLE IF EXISTS " + TABLE);
+        db.execSQL("DROP TABLE IF EXISTS " + SYNC_TABLE);
+        onCreate(db);
+    }
+
+    public void recordAsync(HistoryRecord record) {
+        writeExecutor.execute(() -> upsertAll(Collections.singletonList(record)));
+    }
+
+    // Records a queued event along with the event itself, in one transaction
+    public void recordPendingAsync(String docId, Map<String, Object> eventData, long timestampMs) {
+        writeExecutor.execute(() -> {
+            String payload;
+            try {
+                payload = EventCodec.encode(eventData);
+            } catch (IllegalArgumentException e) {
+                Log.w(TAG, "Event " + docId + " kept in history only: " + e.getMessage());
+                payload = null;
+            }
+            SQLiteDatabase db = getWritableDatabase();
+            db.beginTransaction();
+            try {
+                upsertAll(Collections.singletonList(HistoryRecord.fromEventData(docId, eventData, timestampMs)));
+                setPayload(db, docId, payload);
+                db.setTransactionSuccessful();
+            } finally {
+                db.endTransaction();
+            }
+        });
+    }
+
+    // The event has been handed to the backend, which keeps it from here on
+    public void markWrittenAsync(String docId) {
+        writeExecutor.execute(() -> setPayload(getWritableDatabase(), docId, null));
+    }
+
+    public void deleteAsync(String docId) {
+        writeExecutor.execute(() -> getWritableDatabase().delete(TABLE, "doc_id = ?", new String[]{docId}));
+    }
+
+    // Calls action on the write executor for every event still waiting to be written,
+    // oldest first; the history writes it makes are queued behind the whole pass
+    public void forEachPendingAsync(BiConsumer<String, Map<String, Object>> action) {
+        writeExecutor.execute(() -> {
+            List<String> corrupt = new ArrayList<>();
+            try (Cursor c = getReadableDatabase().query(TABLE, new String[]{"doc_id", "payload"},
+                    "payload IS NOT NULL", null, null, null, "timestamp_ms")) {
+                while (c.moveToNext()) {
+                    String docId = c.getString(0);
+                    try {
+                        action.accept(docId, EventCodec.decode(c.getString(1)));
+                    } catch (JSONException e) {
+                        Log.w(TAG, "Dropping unreadable pending event " + docId, e);
+                        corrupt.add(docId);
+                    }
+                }
+            }
+            for (String docId : corrupt) setPayload(getWritableDatabase(), docId, null);
+        });
+    }
+
+    private static void setPayload(SQLiteDatabase db, String docId, String payload) {
+        ContentValues values = new ContentValues();
+        values.put("payload", payload);
+        db.update(TABLE, values, "doc_id = ?", new String[]{docId});
+    }
+
+    public void upsertAll(List<HistoryRecord> records) {
+        SQLiteDatabase db = getWritableDatabase();
+        SQLiteStatement insert = db.compileStatement("INSERT OR REPLACE INTO " + TABLE
+                + " (doc_id, user_id, session_id, detection_type, timestamp_ms, geohash,"
+                + " latitude, longitude, speed, zt_peak, confidence, image_url)"
+                + " VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)");
+        db.beginTransaction();
+        try {
+            for (HistoryRecord r : records) {
+                insert.clearBindings();
+                insert.bindString(1, r.docId);
+                bindNullable(insert, 2, r.userId);
+                bindNullable(insert, 3, r.sessionId);
+                bindNullable(insert, 4, r.detectionType);
+                insert.bindLong(5, r.timestampMs);
+                if (r.latitude != null && r.longitude != null) {
+                    insert.bindString(6, GeoHash.encode(r.latitude, r.longitude, GEOHASH_PRECISION));
+                    insert.bindDouble(7, r.latitude);
+                    insert.bindDouble(8, r.longitude);
+                }
+                if (r.speed != null) insert.bindDouble(9, r.speed);
+                if (r.ztPeak != null) insert.bindDouble(10, r.ztPeak);
+                if (r.confidence != null) insert.bindLong(11, r.confidence);
+                bindNullable(insert, 12, r.imageUrl);
+                insert.executeInsert();
+            }
+            db.setTransactionSuccessful();
+        } finally {
+            db.endTransaction();
+            insert.close();
+        }
+    }
+
+    private static void bindNullable(SQLiteStatement statement, int index, String value) {
+        if (value != null) {
+            statement.bindString(index, value);
+        } else {
+            statement.bindNull(index);
+        }
+    }
+
+    // Newest first. Pass the cursor of the previous page's last row, or null for the first page.
+    public List<HistoryRecord> queryPage(String userId, HistoryRecord.Cursor after, int limit) {
+        String selection;
+        String[] args;
+        if (after == null) {
+            selection = "user_id = ?";
+            args = new String[]{userId};
+        } else {
+            selection = "user_id = ? AND (timestamp_ms < ? OR (timestamp_ms = ? AND doc_id < ?))";
+            String ts = String.valueOf(after.timestampMs);
+            args = new String[]{userId, ts, ts, after.docId};
+        }
+        return query(selection, args, limit);
+    }
+
+    public List<HistoryRecord> querySessionPage(String sessionId, HistoryRecord.Cursor after, int limit) {
+        String selection;
+        String[] args;
+        if (after == null) {
+            selection = "session_id = ?";
+            args = new String[]{sessionId};
+        } else {
+            selection = "session_id = ? AND (timestamp_ms < ? OR (timestamp_ms = ? AND doc_id < ?))";
+            String ts = String.valueOf(after.timestampMs);
+            args = new String[]{sessionId, ts, ts, after.docId};
+        }
+        return query(selection, args, limit);
+    }
+
+    // All detections inside a geohash cell (any prefix length up to GEOHASH_PRECISION)
+    public List<HistoryRecord> queryArea(String geohashPrefix, int limit) {
+        return query("geohash >= ? AND geohash < ?",
+                new String[]{geohashPrefix, geohashPrefix + "~"}, limit);
+    }
+
+    private List<HistoryRecord> query(String selection, String[] args, int limit) {
+        List<HistoryRecord> page = new ArrayList<>(limit);
+        try (Cursor c = getReadableDatabase().query(TABLE, null, selection, args,
+                null, null, "timestamp_ms DESC, doc_id DESC", String.valueOf(limit))) {
+            int docId = c.getColumnIndexOrThrow("doc_id");
+            int userId = c.getColumnIndexOrThrow("user_id");
+            int sessionId = c.getColumnIndexOrThrow("session_id");
+            int type = c.getColumnIndexOrThrow("detection_type");
+            int timestamp = c.getColumnIndexOrThrow("timestamp_ms");
+            int lat = c.getColumnIndexOrThrow("latitude");
+            int lon = c.getColumnIndexOrThrow("longitude");
+            int speed = c.getColumnIndexOrThrow("speed");
+            int zt = c.getColumnIndexOrThrow("zt_peak");
+            int confidence = c.getColumnIndexOrThrow("confidence");
+            int imageUrl = c.getColumnIndexOrThrow("image_url");
+            while (c.moveToNext()) {
+                page.add(new HistoryRecord(
+                        c.getString(docId),
+                        c.getString(userId),
+                        c.getString(sessionId),
+                        c.getString(type),
+                        c.getLong(timestamp),
+                        c.isNull(lat) ? null : c.getDouble(lat),
+                        c.isNull(lon) ? null : c.getDouble(lon),
+                        c.isNull(speed) ? null : c.getFloat(speed),
+                        c.isNull(zt) ? null : c.getFloat(zt),
+                        c.isNull(confidence) ? null : c.getInt(confidence),
+                        c.getString(imageUrl)));
+            }
+        }
+        return page;
+    }
+
+    public HistoryRecord.SyncMark getHighWaterMark(String userId) {
+        try (Cursor c = getReadableDatabase().query(SYNC_TABLE,
+                new String[]{"high_water_seconds", "high_water_nanos", "high_water_doc"}, "user_id = ?",
+                new String[]{userId}, null, null, null)) {
+            return c.moveToFirst() ? new HistoryRecord.SyncMark(c.getLong(0), c.getInt(1), c.getString(2)) : null;
+        }
+    }
+
+    public void setHighWaterMark(String userId, HistoryRecord.SyncMark mark) {
+        ContentValues values = new ContentValues();
+        values.put("user_id", userId);
+        values.put("high_water_seconds", mark.seconds);
+        values.put("high_water_nanos", mark.nanos);
+        values.put("high_water_doc", mark.docId);
+        getWritableDatabase().insertWithOnConflict(SYNC_TABLE, null, values, SQLiteDatabase.CONFLICT_REPLACE);
+    }
+}
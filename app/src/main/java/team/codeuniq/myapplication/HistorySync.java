@@ -0,0 +1,105 @@
+package team.codeuniq.myapplication;
+
+import android.util.Log;
+
+import com.google.firebase.Timestamp;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldPath;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.firestore.Query;
+import com.google.firebase.firestore.QuerySnapshot;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+// Pulls the user's documents from the potholes collection into the HistoryStore.
+// Only documents after the stored high-water mark (timestamp, doc id) are read,
+// so a sync after a trip fetches just that trip's events.
+public class HistorySync {
+
+    private static final String TAG = "HistorySync";
+    private static final int PAGE_SIZE = 500;
+
+    private final FirebaseFirestore firestore;
+    private final HistoryStore store;
+    private final ExecutorService executor = Executors.newSingleThreadExecutor();
+    private boolean running = false;
+
+    public HistorySync(FirebaseFirestore firestore, HistoryStore store) {
+        this.firestore = firestore;
+        this.store = store;
+    }
+
+    public synchronized void syncAsync(String userId) {
+        if (running) return;
+        running = true;
+        executor.execute(() -> {
+            boolean started = false;
+            try {
+                fetchNextPage(userId, store.getHighWaterMark(userId), 0);
+                started = true;
+            } finally {
+                // Left set, a throw here would stop syncing for the life of the process
+                if (!started) finish();
+            }
+        });
+    }
+
+    private void fetchNextPage(String userId, HistoryRecord.SyncMark after, int fetched) {
+        // Needs a composite index on (user_id, timestamp, __name__)
+        Query query = firestore.collection("potholes")
+                .whereEqualTo("user_id", userId)
+                .orderBy("timestamp")
+                .orderBy(FieldPath.documentId())
+                .limit(PAGE_SIZE);
+        if (after != null) {
+            query = query.startAfter(new Timestamp(after.seconds, after.nanos), after.docId);
+        }
+
+        query.get()
+                .addOnSuccessListener(executor, snapshot -> {
+                    boolean nextPage = false;
+                    try {
+                        HistoryRecord.SyncMark mark = storePage(snapshot);
+                        int total = fetched + snapshot.size();
+                        if (mark != null) {
+                            store.setHighWaterMark(userId, mark);
+                        }
+                        if (snapshot.size() == PAGE_SIZE && mark != null) {
+                            fetchNextPage(userId, mark, total);
+                            nextPage = true;
+                        } else {
+                            Log.d(TAG, "History sync complete - " + total + " new records");
+                        }
+                    } finally {
+                        if (!nextPage) finish();
+                    }
+                })
+                .addOnFailureListener(executor, e -> {
+                    Log.w(TAG, "History sync failed", e);
+                    finish();
+                });
+    }
+
+    private HistoryRecord.SyncMark storePage(QuerySnapshot snapshot) {
+        List<HistoryRecord> records = new ArrayList<>(snapshot.size());
+        HistoryRecord.SyncMark last = null;
+        for (DocumentSnapshot doc : snapshot.getDocuments()) {
+            Timestamp timestamp = doc.getTimestamp("timestamp");
+            if (timestamp == null || doc.getData() == null) continue;
+            long timestampMs = timestamp.toDate().getTime();
+            records.add(HistoryRecord.fromEventData(doc.getId(), doc.getData(), timestampMs));
+            last = new HistoryRecord.SyncMark(timestamp.getSeconds(), timestamp.getNanoseconds(), doc.getId());
+        }
+        if (!records.isEmpty()) {
+            store.upsertAll(records);
+        }
+        return last;
+    }
+
+    private synchronized void finish() {
+        running = false;
+    }
+}
@@ -0,0 +1,402 @@
+package team.codeuniq.myapplication;
+
+import android.util.Log;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+// Simulates concurrent drivers to size the backend. Each driver replays a
+// SyntheticTrip through its own PotholeDetector and SignatureRing and writes
+// accepted events through an EventWriter, exactly as a phone would, at
+// `speedup` times real time. A driver holding maxInFlight unacknowledged
+// events (queued or in flight) drops further ones, as a phone that has
+// fallen too far behind would, and the drops are counted.
+// The detector config's write budget applies per driver, with its window
+// scaled to simulated time; evicted events are counted separately.
+// Latency is end to end, from the wall time the detector emitted the
+// candidate to the backend acknowledgement, so it includes the signature
+// window and the wait for the budget window.
+// run() blocks; call it off the main thread. Nothing here needs a device, so
+// LoadGeneratorTest runs it on the JVM against FakeEventSink.
+public class LoadGenerator {
+
+    private static final String TAG = "LoadGenerator";
+    private static final long TICK_MS = 50;
+    private static final long DRAIN_TIMEOUT_MS = 30_000;
+    private static final double MATCH_WINDOW_S = 0.5;
+    private static final double START_LAT = 19.0760, START_LON = 72.8777; // Mumbai
+    private static final double START_SPREAD_DEG = 0.1;
+
+    public static final class Profile {
+        public static final Profile DEFAULT = new Profile(20, 300, 50, 10f, 3f, 64);
+
+        public final int drivers;
+        public final int tripSeconds;      // simulated length of each trip
+        public final int sampleRateHz;
+        public final float speedup;        // simulated seconds per wall-clock second
+        public final float potholesPerKm;
+        public final int maxInFlight;      // per driver
+
+        public Profile(int drivers, int tripSeconds, int sampleRateHz, float speedup,
+                       float potholesPerKm, int maxInFlight) {
+            this.drivers = drivers;
+            this.tripSeconds = tripSeconds;
+            this.sampleRateHz = sampleRateHz;
+            this.speedup = speedup;
+            this.potholesPerKm = potholesPerKm;
+            this.maxInFlight = maxInFlight;
+        }
+
+        public void validate() {
+            if (drivers < 1 || drivers > 1000) throw new IllegalArgumentException("Drivers must be 1-1000");
+            if (tripSeconds < 10) throw new IllegalArgumentException("Trip must be at least 10 s");
+            if (sampleRateHz < 10 || sampleRateHz > 200) throw new IllegalArgumentException("Sample rate must be 10-200 Hz");
+            if (speedup <= 0f || speedup > 1000f) throw new IllegalArgumentException("Speed-up must be 0-1000");
+            if (potholesPerKm < 0f) throw new IllegalArgumentException("Potholes per km must not be negative");
+            if (maxInFlight < 1) throw new IllegalArgumentException("Max in-flight writes must be positive");
+        }
+    }
+
+    public static final class Report {
+        public long samples;
+        public long injected;
+        public long candidates;
+        public long rejected;
+        public long matched;      // accepted events within MATCH_WINDOW_S of an injected pothole
+        public long written;
+        public long failed;
+        public long dropped;
+        public long evicted;
+        public long wallMs;
+        public boolean cancelled;
+        public final Latencies endToEndMs = new Latencies("load_end_to_end_ms");
+        public final Latencies submitToAckMs = new Latencies("load_submit_to_ack_ms");
+
+        @Override
+        public String toString() {
+            double seconds = Math.max(1, wallMs) / 1000.0;
+            long accepted = candidates - rejected;
+            return String.format("wall_time %.1f s%s\n", seconds, cancelled ? " (cancelled)" : "")
+                    + String.format("sensor_samples %d (%.0f/s)\n", samples, samples / seconds)
+                    + String.format("potholes_injected %d detected %d (recall %.0f%%)\n", injected, matched,
+                    injected == 0 ? 0 : 100.0 * matched / injected)
+                    + String.format("candidates %d rejected %d false_positives %d\n",
+                    candidates, rejected, accepted - matched)
+                    + String.format("writes ok %d (%.1f/s) failed %d dropped %d evicted %d\n",
+                    written, written / seconds, failed, dropped, evicted)
+                    + endToEndMs + "\n"
+                    + submitToAckMs;
+        }
+    }
+
+    // Every latency of a run, kept exactly: a run is a few thousand events, so unlike the
+    // process-wide power-of-two histograms the percentiles come from the sorted values
+    public static final class Latencies {
+        private final String name;
+        private long[] values = new long[256];
+        private int count = 0;
+        private boolean sorted = true;
+
+        Latencies(String name) {
+            this.name = name;
+        }
+
+        public synchronized void record(long value) {
+            if (count == values.length) values = Arrays.copyOf(values, count * 2);
+            values[count++] = value;
+            sorted = false;
+        }
+
+        public synchronized int count() {
+            return count;
+        }
+
+        // Nearest-rank percentile, p in (0, 100]; 0 when nothing was recorded
+        public synchronized long percentile(double p) {
+            if (count == 0) return 0;
+            if (!sorted) {
+                Arrays.sort(values, 0, count);
+                sorted = true;
+            }
+            int rank = (int) Math.ceil(count * p / 100.0);
+            return values[Math.min(count, Math.max(1, rank)) - 1];
+        }
+
+        @Override
+        public synchronized String toString() {
+            long sum = 0;
+            for (int i = 0; i < count; i++) sum += values[i];
+            return String.format("%s n=%d mean=%d p50=%d p90=%d p99=%d max=%d",
+                    name, count, count == 0 ? 0 : sum / count,
+                    percentile(50), percentile(90), percentile(99), percentile(100));
+        }
+    }
+
+    private final Profile profile;
+    private final DetectorConfig config;
+    private final EventWriter writer;
+    private final ConfidenceScorer scorer;
+    private final String runId = Long.toString(System.currentTimeMillis(), 36);
+
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicLong samples = new AtomicLong();
+    private final AtomicLong candidates = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong matched = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong evicted = new AtomicLong();
+    private final Report report = new Report();
+    private volatile boolean cancelled = false;
+
+    public LoadGenerator(Profile profile, DetectorConfig config, EventWriter writer, ConfidenceScorer scorer) {
+        profile.validate();
+        this.profile = profile;
+        this.config = config;
+        this.writer = writer;
+        this.scorer = scorer;
+    }
+
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public Report run() throws InterruptedException {
+        int threads = Math.min(profile.drivers, Math.max(2, Runtime.getRuntime().availableProcessors()));
+        ScheduledExecutorService scheduler = Executors.newScheduledThreadPool(threads);
+        CountDownLatch finished = new CountDownLatch(profile.drivers);
+        Driver[] drivers = new Driver[profile.drivers];
+        long wallStart = System.nanoTime();
+
+        Log.i(TAG, "Starting " + profile.drivers + " drivers on " + threads + " threads, run " + runId);
+        writer.setBudget(config.writeBudget, Math.max(1, Math.round(config.budgetWindowMs / profile.speedup)));
+        try {
+            for (int i = 0; i < drivers.length; i++) {
+                drivers[i] = new Driver(i, finished);
+                // Stagger the first ticks so drivers don't all write in lockstep
+                drivers[i].future = scheduler.scheduleAtFixedRate(drivers[i],
+                        i * TICK_MS / drivers.length, TICK_MS, TimeUnit.MILLISECONDS);
+            }
+            finished.await();
+            writer.close();
+
+            // Let the last writes come back before reporting
+            long drainDeadline = System.currentTimeMillis() + DRAIN_TIMEOUT_MS;
+            while (inFlight.get() > 0 && System.currentTimeMillis() < drainDeadline) {
+                Thread.sleep(TICK_MS);
+            }
+        } finally {
+            scheduler.shutdownNow();
+        }
+
+        for (Driver driver : drivers) {
+            if (driver != null) report.injected += driver.trip.getInjectedCount();
+        }
+        report.samples = samples.get();
+        report.candidates = candidates.get();
+        report.rejected = rejected.get();
+        report.matched = matched.get();
+        report.written = written.get();
+        report.failed = failed.get();
+        report.dropped = dropped.get() + inFlight.get(); // still unacknowledged after the drain
+        report.evicted = evicted.get();
+        report.wallMs = (System.nanoTime() - wallStart) / 1_000_000;
+        report.cancelled = cancelled;
+        Log.i(TAG, "Run " + runId + " finished\n" + report);
+        return report;
+    }
+
+    // Detected but waiting for the post-peak half of its signature
+    private static final class Pending {
+        final PotholeDetector.Candidate candidate;
+        final double latitude, longitude;
+        final long peakWallNs;
+        final boolean matchesInjected;
+
+        Pending(PotholeDetector.Candidate candidate, double latitude, double longitude,
+                long peakWallNs, boolean matchesInjected) {
+            this.candidate = candidate;
+            this.latitude = latitude;
+            this.longitude = longitude;
+            this.peakWallNs = peakWallNs;
+            this.matchesInjected = matchesInjected;
+        }
+    }
+
+    private final class Driver implements Runnable {
+        final int index;
+        final CountDownLatch finished;
+        final SyntheticTrip trip;
+        final PotholeDetector detector;
+        final SignatureRing signatureRing = new SignatureRing();
+        final ArrayDeque<Pending> pending = new ArrayDeque<>();
+        final AtomicInteger unacknowledged = new AtomicInteger();
+        final long clockOffsetMs = System.currentTimeMillis();
+        final String userId;
+        final String sessionId;
+        final double samplesPerTick;
+        double owedSamples = 0;
+        volatile ScheduledFuture<?> future;
+        boolean done = false;
+
+        Driver(int index, CountDownLatch finished) {
+            this.index = index;
+            this.finished = finished;
+            long seed = runId.hashCode() * 31L + index;
+            double spread = START_SPREAD_DEG * (2 * ((index * 0.618034) % 1.0) - 1);
+            this.trip = new SyntheticTrip(seed, START_LAT + spread, START_LON - spread,
+                    profile.sampleRateHz, profile.potholesPerKm);
+            this.detector = new PotholeDetector(scorer);
+            this.userId = "loadtest-" + runId + "-driver-" + index;
+            this.sessionId = "loadtest-" + runId + "-" + index;
+            this.samplesPerTick = profile.sampleRateHz * profile.speedup * TICK_MS / 1000.0;
+        }
+
+        @Override
+        public void run() {
+            if (done) return;
+            try {
+                tick();
+            } catch (RuntimeException e) {
+                // Thrown out of a scheduleAtFixedRate task it would cancel the driver
+                // silently and run() would wait on the latch forever
+                Log.e(TAG, "Driver " + index + " failed, ending its trip", e);
+                failed.addAndGet(pending.size());
+                pending.clear();
+                if (!done) finish();
+            }
+        }
+
+        private void tick() {
+            owedSamples += samplesPerTick;
+            int count = (int) owedSamples;
+            owedSamples -= count;
+
+            for (int i = 0; i < count; i++) {
+                if (cancelled || trip.elapsedSeconds() >= profile.tripSeconds) {
+                    samples.addAndGet(i);
+                    finish();
+                    return;
+                }
+                step();
+            }
+            samples.addAndGet(count);
+        }
+
+        private void step() {
+            trip.next();
+            signatureRing.addGyroscope(trip.gyroX, trip.gyroY, trip.gyroZ);
+            signatureRing.addAccelerometer(trip.x, trip.y, trip.z, trip.timestampNs);
+            detector.add(trip.z, config.bufferSize);
+
+            long nowMs = clockOffsetMs + trip.timestampNs / 1_000_000L;
+            if (trip.speedKmh > config.speedThreshold) {
+                PotholeDetector.Candidate candidate = detector.check(trip.speedKmh, trip.timestampNs, nowMs, config);
+                if (candidate != null) {
+                    candidates.incrementAndGet();
+                    if (candidate.rejected) {
+                        rejected.incrementAndGet();
+                    } else {
+                        double sinceInjected = trip.elapsedSeconds() - trip.getLastPotholeSeconds();
+                        pending.add(new Pending(candidate, trip.latitude, trip.longitude,
+                                System.nanoTime(), sinceInjected <= MATCH_WINDOW_S));
+                    }
+                }
+            }
+
+            // Signatures complete once the post-peak samples are in the ring
+            long postNs = config.signaturePostMs * 1_000_000L;
+            while (!pending.isEmpty() && trip.timestampNs - pending.peek().candidate.timestampNs >= postNs) {
+                submit(pending.poll(), nowMs);
+            }
+        }
+
+        private void submit(Pending event, long nowMs) {
+            if (event.matchesInjected) matched.incrementAndGet();
+            byte[] signature = signatureRing.export(event.candidate.timestampNs,
+                    config.signaturePreMs, config.signaturePostMs);
+
+            if (unacknowledged.incrementAndGet() > profile.maxInFlight) {
+                unacknowledged.decrementAndGet();
+                dropped.incrementAndGet();
+                return;
+            }
+            inFlight.incrementAndGet();
+            long submitNs = System.nanoTime();
+            try {
+                writer.save(writer.newDocumentId(), buildEvent(event, signature, nowMs), error -> {
+                    long doneNs = System.nanoTime();
+                    unacknowledged.decrementAndGet();
+                    inFlight.decrementAndGet();
+                    if (error instanceof EventWriter.EvictedException) {
+                        evicted.incrementAndGet();
+                        return;
+                    } else if (error != null) {
+                        failed.incrementAndGet();
+                        return;
+                    }
+                    written.incrementAndGet();
+                    report.submitToAckMs.record((doneNs - submitNs) / 1_000_000);
+                    report.endToEndMs.record((doneNs - event.peakWallNs) / 1_000_000);
+                });
+            } catch (RuntimeException e) {
+                unacknowledged.decrementAndGet();
+                inFlight.decrementAndGet();
+                failed.incrementAndGet();
+                throw e;
+            }
+        }
+
+        // Same fields as a phone's sensor event, tagged so the backend can discard them
+        private Map<String, Object> buildEvent(Pending event, byte[] signature, long nowMs) {
+            PotholeDetector.Candidate candidate = event.candidate;
+            Map<String, Object> data = new HashMap<>();
+            data.put("timestamp", nowMs);
+            data.put("user_id", userId);
+            data.put("session_id", sessionId);
+            data.put("detection_type", "SENSOR");
+            data.put("device_model", "synthetic");
+            data.put("synthetic", true);
+            data.put("latitude", event.latitude);
+            data.put("longitude", event.longitude);
+            data.put("location_method", "synthetic");
+            data.put("speed", candidate.speed);
+            data.put("zt_peak", candidate.zt);
+            data.put("z_prev_extrema", candidate.zPrev);
+            data.put("z_next_extrema", candidate.zNext);
+            data.put("interval_since_last_detection", candidate.intervalSinceLastDetection);
+            data.put("dynamic_threshold", candidate.threshold);
+            data.put("base_threshold", config.baseThreshold);
+            data.put("config_version", config.version);
+            data.put("confidence", candidate.confidence);
+            data.put("model_version", scorer.getModelVersion());
+            if (signature != null) {
+                data.put("signature_blob", signature);
+                data.put("signature_sample_count", SignatureRing.sampleCount(signature));
+            }
+            return data;
+        }
+
+        private void finish() {
+            done = true;
+            try {
+                // Events still waiting for their signature go out with what the ring has
+                long nowMs = clockOffsetMs + trip.timestampNs / 1_000_000L;
+                while (!pending.isEmpty()) submit(pending.poll(), nowMs);
+            } finally {
+                if (future != null) future.cancel(false);
+                finished.countDown();
+            }
+        }
+    }
+}
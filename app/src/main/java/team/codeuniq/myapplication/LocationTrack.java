@@ -0,0 +1,161 @@
+package team.codeuniq.myapplication;
+
+// Bounded history of recent location fixes keyed by elapsed-realtime nanos,
+// the same clock as SensorEvent.timestamp. Lets a detection be geotagged at the
+// exact time of its peak instead of at the last (up to a second old) fix.
+// Fixes are stored in parallel primitive arrays so adding one allocates nothing.
+public class LocationTrack {
+
+    public static final int METHOD_NONE = 0;
+    public static final int METHOD_INTERPOLATED = 1;
+    public static final int METHOD_DEAD_RECKONED = 2;
+    public static final int METHOD_NEAREST_FIX = 3;
+
+    private static final double EARTH_RADIUS_M = 6_371_000.0;
+    private static final long MAX_DEAD_RECKONING_NS = 5_000_000_000L; // extrapolate at most 5 s
+    private static final long MAX_GAP_NS = 10_000_000_000L;           // fixes further apart aren't interpolated
+    // GPS and network fixes share the track; a fix this much less accurate than a recent
+    // one (a 500 m network fix between 5 m GPS fixes) would drag interpolation off the road
+    private static final float MAX_ACCURACY_RATIO = 4f;
+    private static final float MIN_ACCURACY_GAP_M = 20f;
+
+    private final long[] times;
+    private final double[] latitudes;
+    private final double[] longitudes;
+    private final float[] speeds;    // m/s
+    private final float[] bearings;  // degrees, NaN when unknown
+    private final float[] accuracies;
+    private final int capacity;
+    private int head = 0;  // next slot to write
+    private int count = 0;
+
+    private boolean deadReckoningEnabled = true;
+
+    public LocationTrack(int capacity) {
+        this.capacity = capacity;
+        times = new long[capacity];
+        latitudes = new double[capacity];
+        longitudes = new double[capacity];
+        speeds = new float[capacity];
+        bearings = new float[capacity];
+        accuracies = new float[capacity];
+    }
+
+    public void setDeadReckoningEnabled(boolean enabled) {
+        deadReckoningEnabled = enabled;
+    }
+
+    public synchronized void clear() {
+        head = 0;
+        count = 0;
+    }
+
+    public synchronized int size() {
+        return count;
+    }
+
+    // Out-of-order fixes (e.g. a late network fix after a GPS one) are ignored, as are fixes
+    // much coarser than the previous one while it is recent. Returns whether the fix was kept.
+    public synchronized boolean add(long elapsedNanos, double latitude, double longitude,
+                                    float speedMps, float bearingDeg, float accuracyM) {
+        if (count > 0) {
+            int last = slot(count - 1);
+            if (elapsedNanos <= times[last]) return false;
+            if (elapsedNanos - times[last] <= MAX_GAP_NS
+                    && accuracyM > accuracies[last] * MAX_ACCURACY_RATIO
+                    && accuracyM - accuracies[last] > MIN_ACCURACY_GAP_M) {
+                return false;
+            }
+        }
+
+        times[head] = elapsedNanos;
+        latitudes[head] = latitude;
+        longitudes[head] = longitude;
+        speeds[head] = speedMps;
+        bearings[head] = bearingDeg;
+        accuracies[head] = accuracyM;
+
+        head = (head + 1) % capacity;
+        if (count < capacity) count++;
+        return true;
+    }
+
+    public synchronized long latestFixTime() {
+        return count == 0 ? 0 : times[slot(count - 1)];
+    }
+
+    // Writes {latitude, longitude, accuracy} for the given time into out and
+    // returns how it was obtained (one of the METHOD_ constants).
+    public synchronized int positionAt(long elapsedNanos, double[] out) {
+        if (count == 0) return METHOD_NONE;
+
+        // Index (in time order) of the last fix at or before the requested time
+        int lo = 0, hi = count - 1, before = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (times[slot(mid)] <= elapsedNanos) {
+                before = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+
+        if (before < 0) {
+            return copyFix(slot(0), out);
+        }
+
+        int a = slot(before);
+        if (before == count - 1) {
+            long ahead = elapsedNanos - times[a];
+            if (ahead == 0 || !deadReckoningEnabled || Float.isNaN(bearings[a]) || speeds[a] <= 0f) {
+                return copyFix(a, out);
+            }
+            // Past the cap the position stays where 5 s of travel took it; the
+            // distance not covered goes into the accuracy instead
+            long extrapolated = Math.min(ahead, MAX_DEAD_RECKONING_NS);
+            double distance = speeds[a] * (extrapolated / 1e9);
+            double uncovered = speeds[a] * ((ahead - extrapolated) / 1e9);
+            double bearing = Math.toRadians(bearings[a]);
+            double lat = latitudes[a];
+            out[0] = lat + Math.toDegrees(distance * Math.cos(bearing) / EARTH_RADIUS_M);
+            out[1] = longitudes[a] + Math.toDegrees(distance * Math.sin(bearing)
+                    / (EARTH_RADIUS_M * Math.cos(Math.toRadians(lat))));
+            out[2] = accuracies[a] + distance * 0.1 + uncovered; // error grows with distance travelled
+            return METHOD_DEAD_RECKONED;
+        }
+
+        int b = slot(before + 1);
+        long span = times[b] - times[a];
+        if (span > MAX_GAP_NS) {
+            return copyFix(elapsedNanos - times[a] <= times[b] - elapsedNanos ? a : b, out);
+        }
+
+        double f = (double) (elapsedNanos - times[a]) / span;
+        out[0] = latitudes[a] + (latitudes[b] - latitudes[a]) * f;
+        out[1] = longitudes[a] + (longitudes[b] - longitudes[a]) * f;
+        out[2] = accuracies[a] + (accuracies[b] - accuracies[a]) * f;
+        return METHOD_INTERPOLATED;
+    }
+
+    private int copyFix(int s, double[] out) {
+        out[0] = latitudes[s];
+        out[1] = longitudes[s];
+        out[2] = accuracies[s];
+        return METHOD_NEAREST_FIX;
+    }
+
+    // Ring slot of the i-th fix in time order (0 = oldest)
+    private int slot(int i) {
+        return (head - count + i + capacity) % capacity;
+    }
+
+    public static String methodName(int method) {
+        switch (method) {
+            case METHOD_INTERPOLATED: return "interpolated";
+            case METHOD_DEAD_RECKONED: return "dead_reckoned";
+            case METHOD_NEAREST_FIX: return "nearest_fix";
+            default: return "none";
+        }
+    }
+}
@@ -20,11 +20,6 @@ import com.google.android.gms.tasks.Task;
 import com.google.firebase.auth.AuthResult;
 import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
-import com.google.firebase.firestore.FieldValue;
-import com.google.firebase.firestore.FirebaseFirestore;
-
-import java.util.HashMap;
-import java.util.Map;
 
 public class LoginActivity extends AppCompatActivity {
 
@@ -37,6 +32,7 @@ public class LoginActivity extends AppCompatActivity {
     private ProgressBar progressBar;
 
     private FirebaseAuth firebaseAuth;
+    private SessionManager session;
     private boolean registerFlag = false;
 
     @Override
@@ -45,14 +41,12 @@ public class LoginActivity extends AppCompatActivity {
         setContentView(R.layout.activity_login);
 
         initializeViews();
-        initializeFirebase();
         setupEventListeners();
 
-        // Check if user is already logged in
-        FirebaseUser currentUser = firebaseAuth.getCurrentUser();
-        if (currentUser != null) {
-            navigateToMainActivity();
-        }
+        // Firebase is started by PotholeApp; wait for it instead of initializing it again
+        loginButton.setEnabled(false);
+        registerButton.setEnabled(false);
+        PotholeApp.get(this).whenReady(this::initializeFirebase);
     }
 
     private void initializeViews() {
@@ -65,7 +59,28 @@ public class LoginActivity extends AppCompatActivity {
     }
 
     private void initializeFirebase() {
-        firebaseAuth = FirebaseAuth.getInstance();
+        if (isFinishing() || isDestroyed()) return;
+        try {
+            session = PotholeApp.get(this).getSessionManager();
+        } catch (IllegalStateException e) {
+            // Firebase failed to start; signing in can't work, so the buttons stay disabled
+            Log.e(TAG, "Startup failed", e);
+            Toast.makeText(this, "Services failed to start, please restart the app",
+                    Toast.LENGTH_LONG).show();
+            return;
+        }
+        firebaseAuth = session.getAuth();
+        loginButton.setEnabled(true);
+        registerButton.setEnabled(true);
+
+        // Check if user is already logged in
+        FirebaseUser currentUser = session.getUser();
+        if (currentUser != null) {
+            navigateToMainActivity();
+        } else {
+            // Connect while the user types, so the first write after sign-in doesn't pay for it
+            session.warmUp();
+        }
     }
 
     private void setupEventListeners() {
@@ -120,6 +135,8 @@ public class LoginActivity extends AppCompatActivity {
         progressBar.setVisibility(View.VISIBLE);
         loginButton.setEnabled(false);
 
+        // No-op if already started; the connection comes up alongside the auth round trip
+        session.warmUp();
         firebaseAuth.signInWithEmailAndPassword(email, password)
                 .addOnCompleteListener(this, new OnCompleteListener<AuthResult>() {
                     @Override
@@ -182,8 +199,8 @@ public class LoginActivity extends AppCompatActivity {
                             Log.d(TAG, "createUserWithEmail:success");
                             FirebaseUser user = firebaseAuth.getCurrentUser();
 
-                            // Add user details to Firestore
-                            addUserToFirestore(user.getUid(), name, email);
+                            // Queued locally before navigating, so it can't be lost to the activity finishing
+                            session.createProfile(user.getUid(), name, email);
 
                             Toast.makeText(LoginActivity.this, "Registration successful",
                                     Toast.LENGTH_SHORT).show();
@@ -198,23 +215,6 @@ public class LoginActivity extends AppCompatActivity {
                 });
     }
 
-    private void addUserToFirestore(String uid, String name, String email) {
-        FirebaseFirestore db = FirebaseFirestore.getInstance();
-
-        Map<String, Object> userMap = new HashMap<>();
-        userMap.put("name", name);
-        userMap.put("email", email);
-        userMap.put("role", "user"); // default role
-        userMap.put("createdAt", FieldValue.serverTimestamp());
-        userMap.put("lastActive", FieldValue.serverTimestamp());
-        userMap.put("isActive", true);
-
-        db.collection("users").document(uid).set(userMap)
-                .addOnSuccessListener(aVoid -> Log.d(TAG, "User added to Firestore"))
-                .addOnFailureListener(e -> Log.w(TAG, "Error adding user to Firestore", e));
-    }
-
-
     private void navigateToMainActivity() {
         Intent intent = new Intent(LoginActivity.this, MainActivity.class);
         startActivity(intent);
@@ -3,6 +3,7 @@ package team.codeuniq.myapplication;
 import android.Manifest;
 import android.content.Context;
 import android.content.Intent;
+import android.content.SharedPreferences;
 import android.content.pm.PackageManager;
 import android.graphics.Bitmap;
 import android.graphics.BitmapFactory;
@@ -10,22 +11,33 @@ import android.hardware.Sensor;
 import android.hardware.SensorEvent;
 import android.hardware.SensorEventListener;
 import android.hardware.SensorManager;
+import android.hardware.TriggerEvent;
+import android.hardware.TriggerEventListener;
+import android.hardware.camera2.CameraCharacteristics;
 import android.location.Location;
 import android.location.LocationListener;
 import android.location.LocationManager;
 import android.os.Build;
 import android.os.Bundle;
 import android.os.Handler;
+import android.os.SystemClock;
 import android.util.Log;
+import android.util.Size;
 import android.view.View;
 import android.widget.Button;
+import android.widget.CompoundButton;
 import android.widget.TextView;
 import android.widget.Toast;
 import android.widget.ToggleButton;
 
 import androidx.annotation.NonNull;
+import androidx.annotation.OptIn;
 import androidx.appcompat.app.AppCompatActivity;
+import androidx.camera.camera2.interop.Camera2CameraInfo;
+import androidx.camera.camera2.interop.ExperimentalCamera2Interop;
+import androidx.camera.core.Camera;
 import androidx.camera.core.CameraSelector;
+import androidx.camera.core.ImageAnalysis;
 import androidx.camera.core.ImageCapture;
 import androidx.camera.core.ImageCaptureException;
 import androidx.camera.core.Preview;
@@ -35,13 +47,13 @@ import androidx.core.content.ContextCompat;
 import androidx.camera.lifecycle.ProcessCameraProvider;
 
 import com.google.android.gms.location.FusedLocationProviderClient;
-import com.google.android.gms.location.LocationServices;
+import com.google.android.gms.tasks.Task;
+import com.google.android.gms.tasks.Tasks;
 import com.google.common.util.concurrent.ListenableFuture;
-import com.google.firebase.auth.FirebaseAuth;
 import com.google.firebase.auth.FirebaseUser;
 import com.google.firebase.firestore.FieldValue;
 import com.google.firebase.firestore.FirebaseFirestore;
-import com.google.firebase.storage.FirebaseStorage;
+import com.google.firebase.storage.StorageException;
 import com.google.firebase.storage.StorageReference;
 
 import java.io.File;
@@ -53,6 +65,8 @@ import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainActivity extends AppCompatActivity implements SensorEventListener, LocationListener {
 
@@ -60,52 +74,93 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     private static final int PERMISSION_REQUEST_CODE = 123;
 
     // UI Elements
-    private TextView statusText, sensorDataText, speedText, detectionCountText;
+    private TextView titleText, statusText, sensorDataText, speedText, detectionCountText;
     private ToggleButton detectionToggle;
     private Button settingsBtn, historyBtn, logoutBtn, dummyDataBtn, addPhotoBtn, captureButton;
     private PreviewView viewFinder;
     private View overlayBox;
+    private CompoundButton dashCamSwitch;
 
     // Sensors and Location
     private SensorManager sensorManager;
-    private Sensor accelerometer, gyroscope;
+    private Sensor accelerometer, gyroscope, significantMotion;
+    private SamplingGovernor samplingGovernor;
+    private final TriggerEventListener significantMotionListener = new TriggerEventListener() {
+        @Override
+        public void onTrigger(TriggerEvent event) {
+            // One-shot trigger - delivered on the main thread
+            samplingGovernor.onSignificantMotion(SystemClock.elapsedRealtime());
+        }
+    };
     private LocationManager locationManager;
+    private long locationIntervalMs = -1; // interval updates are registered at, -1 when not registered
     private Location currentLocation;
     private FusedLocationProviderClient fusedLocationClient;
+    private final LocationTrack locationTrack = new LocationTrack(120); // ~2 minutes of 1 Hz fixes
+    private final double[] trackPosition = new double[3]; // lat, lon, accuracy scratch
+    private static final long TRACK_MAX_AGE_NS = 10_000_000_000L;
 
     // Camera
     private ListenableFuture<ProcessCameraProvider> cameraProviderFuture;
     private ImageCapture imageCapture;
+    private ImageAnalysis imageAnalysis;
+    private volatile PotholeFrameAnalyzer frameAnalyzer;
+    private ExecutorService analysisExecutor;
+    private Integer capturedConfidence; // Classifier confidence at the moment of capture
+    private long capturedAtNs; // elapsedRealtimeNanos at the moment of capture
+    private volatile boolean isCameraUIVisible = false;
+
+    // Dash-cam evidence (optional) - ring of recent frames attached to sensor detections
+    private volatile FrameRingBuffer frameRing;
+    private volatile boolean frameTimestampsRealtime = false;
+    private ExecutorService evidenceExecutor;
+    private SharedPreferences prefs;
+    private static final String PREFS_NAME = "pothole_prefs";
+    private static final String PREF_DASHCAM_ENABLED = "dashcam_enabled";
+    private static final String PREF_DASHCAM_MEMORY_MB = "dashcam_memory_mb";
+    private static final int DEFAULT_DASHCAM_MEMORY_MB = 4; // ~145 frames at 160x120
+    private static final int EVIDENCE_FRAME_COUNT = 3;
+    private static final long EVIDENCE_POST_IMPACT_MS = 300; // let frames after the impact arrive
 
     // Firebase
-    private FirebaseAuth firebaseAuth;
+    private SessionManager session;
     private FirebaseFirestore firestore;
     private StorageReference storageRef;
+    private HistoryStore historyStore;
+    private EventWriter eventWriter;
+    private LoadGenerator loadGenerator; // non-null while a load test runs
+    private TripExporter tripExporter;
+    private MapMatcher mapMatcher; // null when no offline road network is installed
+    private HistorySync historySync;
 
     // Detection Variables
     private boolean isDetectionActive = false;
     private boolean isDriving = false;
     private boolean isPhoneInUse = false;
-    private float currentSpeed = 0f;
+    private float currentSpeed = 0f; // Last GPS speed, km/h
+    private final SpeedEstimator speedEstimator = new SpeedEstimator(); // GPS + accelerometer, sensor rate
+    private final RoughnessProfile roughnessProfile = new RoughnessProfile(locationTrack, speedEstimator);
+    private int roughnessChunkIndex = 0;
+    private final SpectralFeatureEngine spectralEngine = new SpectralFeatureEngine();
+    private boolean spectralBenchmarked = false; // debug builds time the spectral features once
+    private final MountVehicleClassifier mountVehicleClassifier = new MountVehicleClassifier();
+    private final SignatureRing signatureRing = new SignatureRing(); // all axes, exported with events
     private int detectionCount = 0;
 
     // RoadSurP Paper Implementation Variables
-    private ArrayList<Float> zAxisBuffer = new ArrayList<>();
-    private static final int BUFFER_SIZE = 50; // ~1 second at 50Hz
-    private static final float BASE_THRESHOLD = 11.0f; // T0 - base threshold
-    private static final float SPEED_SCALING_FACTOR = 0.1f; // S - speed scaling
-    private static final float SPEED_OFFSET = 5.0f; // L - speed offset
-    private long lastDetectionTime = 0;
-    private static final long DETECTION_COOLDOWN_MS = 3000; // 3 seconds debounce
+    private PotholeDetector potholeDetector; // Z-axis window, threshold, features and scoring
+    // Thresholds, buffer size and cooldown live in DetectorConfig (editable in Settings)
+    private DetectorConfigStore configStore;
+    private ThresholdCalibrator thresholdCalibrator;
+    private ExecutorService configExecutor; // publishes calibrated thresholds off the sensor thread
+    private ConfidenceScorer confidenceScorer; // gates sensor candidates at config.confidenceThreshold
+    private static final long CALIBRATION_EXCLUSION_MS = 1000; // keep pothole hits out of the noise estimate
     private String currentSessionId; // Session/trip identifier
 
     // Sensor Data
     private float[] accelerometerValues = new float[3];
     private float[] gyroscopeValues = new float[3];
-
-    // Detection Thresholds
-    private static final float SPEED_THRESHOLD = 10.0f; // km/h
-    private static final int CONFIDENCE_THRESHOLD = 75;
+    private long lastAccelTimestampNs = 0; // SensorEvent.timestamp of the latest accelerometer sample
 
     // Handler for UI updates
     private Handler uiHandler = new Handler();
@@ -120,6 +175,8 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
 
     @Override
     protected void onCreate(Bundle savedInstanceState) {
+        long start = SystemClock.uptimeMillis();
+        StartupTrace.begin("main_on_create");
         super.onCreate(savedInstanceState);
         setContentView(R.layout.activity_main);
 
@@ -128,16 +185,35 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
 
         initializeViews();
         initializeSensors();
-        initializeFirebase();
-        initializeCamera();
-        checkPermissions();
+        initializeExecutors();
         setupEventListeners();
 
         // Initially hide camera UI
         hideCameraUI();
+
+        // Firebase, location and detector state are started by PotholeApp off the main
+        // thread; the buttons that need them stay disabled until they are ready
+        setServiceButtonsEnabled(false);
+        PotholeApp.get(this).whenReady(this::initializeServices);
+        checkPermissions();
+
+        View decorView = getWindow().getDecorView();
+        decorView.getViewTreeObserver().addOnPreDrawListener(new android.view.ViewTreeObserver.OnPreDrawListener() {
+            @Override
+            public boolean onPreDraw() {
+                decorView.getViewTreeObserver().removeOnPreDrawListener(this);
+                if (!StartupTrace.markFirstFrame() && BuildConfig.DEBUG) {
+                    Toast.makeText(MainActivity.this, "Startup over budget: "
+                            + StartupTrace.getFirstFrameMs() + " ms", Toast.LENGTH_LONG).show();
+                }
+                return true;
+            }
+        });
+        StartupTrace.end("main_on_create", start);
     }
 
     private void initializeViews() {
+        titleText = findViewById(R.id.titleText);
         statusText = findViewById(R.id.statusText);
         sensorDataText = findViewById(R.id.sensorDataText);
         speedText = findViewById(R.id.speedText);
@@ -147,36 +223,98 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         historyBtn = findViewById(R.id.historyBtn);
         logoutBtn = findViewById(R.id.logoutBtn);
         dummyDataBtn = findViewById(R.id.dummyDataBtn);
+        // The load test is a development tool; release builds don't offer it
+        if (!BuildConfig.DEBUG && dummyDataBtn != null) {
+            dummyDataBtn.setVisibility(View.GONE);
+            dummyDataBtn = null;
+        }
         addPhotoBtn = findViewById(R.id.addPhotoBtn);
         captureButton = findViewById(R.id.captureButton);
         viewFinder = findViewById(R.id.viewFinder);
         overlayBox = findViewById(R.id.overlayBox);
+        dashCamSwitch = findViewById(R.id.dashCamSwitch);
     }
 
     private void initializeSensors() {
         sensorManager = (SensorManager) getSystemService(Context.SENSOR_SERVICE);
         accelerometer = sensorManager.getDefaultSensor(Sensor.TYPE_ACCELEROMETER);
         gyroscope = sensorManager.getDefaultSensor(Sensor.TYPE_GYROSCOPE);
+        significantMotion = sensorManager.getDefaultSensor(Sensor.TYPE_SIGNIFICANT_MOTION);
         locationManager = (LocationManager) getSystemService(Context.LOCATION_SERVICE);
+        samplingGovernor = new SamplingGovernor((previous, current) -> applySamplingMode(current));
     }
 
-    private void initializeFirebase() {
-        firebaseAuth = FirebaseAuth.getInstance();
-        firestore = FirebaseFirestore.getInstance();
-        storageRef = FirebaseStorage.getInstance().getReference();
+    private void initializeServices() {
+        if (isFinishing() || isDestroyed()) return;
+
+        PotholeApp app = PotholeApp.get(this);
+        try {
+            session = app.getSessionManager();
+            fusedLocationClient = app.getLocationClient();
+        } catch (IllegalStateException e) {
+            // A required service failed to start; leave the buttons that need it disabled
+            Log.e(TAG, "Startup failed", e);
+            statusText.setText("Startup failed: " + e.getCause());
+            Toast.makeText(this, "Services failed to start, please restart the app",
+                    Toast.LENGTH_LONG).show();
+            return;
+        }
+        configStore = DetectorConfigStore.getInstance(this);
+        thresholdCalibrator = ThresholdCalibrator.getInstance(this);
+        confidenceScorer = ConfidenceScorer.getInstance(this);
+        potholeDetector = new PotholeDetector(confidenceScorer);
+        firestore = session.getFirestore();
+        storageRef = session.getStorage().getReference();
+        mapMatcher = app.getMapMatcher();
+        historyStore = HistoryStore.getInstance(this);
+        eventWriter = session.getEventWriter();
+        tripExporter = new TripExporter(getFilesDir());
+        historySync = new HistorySync(firestore, historyStore);
+        setServiceButtonsEnabled(true);
 
         // Check if user is logged in
-        FirebaseUser currentUser = firebaseAuth.getCurrentUser();
+        FirebaseUser currentUser = session.getUser();
         if (currentUser == null) {
             // Redirect to login activity
             startActivity(new Intent(this, LoginActivity.class));
             finish();
+        } else {
+            historySync.syncAsync(currentUser.getUid());
+            // Prefetched during login; only a cold start with no login screen waits for it
+            session.loadProfile(profile -> {
+                Object name = profile != null ? profile.get("name") : null;
+                if (name instanceof String && !isFinishing()) titleText.setText("PotholeDetect - " + name);
+            });
+        }
+    }
+
+    private void initializeExecutors() {
+        analysisExecutor = Executors.newSingleThreadExecutor();
+        evidenceExecutor = Executors.newSingleThreadExecutor();
+        configExecutor = Executors.newSingleThreadExecutor();
+        prefs = getSharedPreferences(PREFS_NAME, MODE_PRIVATE);
+    }
+
+    private void setServiceButtonsEnabled(boolean enabled) {
+        detectionToggle.setEnabled(enabled);
+        addPhotoBtn.setEnabled(enabled);
+        logoutBtn.setEnabled(enabled);
+        if (dummyDataBtn != null) {
+            dummyDataBtn.setEnabled(enabled);
         }
     }
 
-    private void initializeCamera() {
-        fusedLocationClient = LocationServices.getFusedLocationProviderClient(this);
-        cameraProviderFuture = ProcessCameraProvider.getInstance(this);
+    // The camera stack and the frame classifier are only brought up when first needed
+    // (photo capture or dash-cam), not at startup
+    private ListenableFuture<ProcessCameraProvider> getCameraProvider() {
+        if (cameraProviderFuture == null) {
+            long start = SystemClock.uptimeMillis();
+            StartupTrace.begin("camera_provider");
+            cameraProviderFuture = ProcessCameraProvider.getInstance(this);
+            analysisExecutor.execute(() -> frameAnalyzer = new PotholeFrameAnalyzer(getApplicationContext()));
+            StartupTrace.end("camera_provider", start);
+        }
+        return cameraProviderFuture;
     }
 
     private void checkPermissions() {
@@ -230,12 +368,29 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
 
         captureButton.setOnClickListener(v -> capturePhoto());
 
+        dashCamSwitch.setChecked(prefs.getBoolean(PREF_DASHCAM_ENABLED, false));
+        dashCamSwitch.setOnCheckedChangeListener((buttonView, isChecked) -> {
+            prefs.edit().putBoolean(PREF_DASHCAM_ENABLED, isChecked).apply();
+            if (isDetectionActive) {
+                if (isChecked) {
+                    startDashCam();
+                } else {
+                    stopDashCam();
+                }
+            }
+        });
+
+        statusText.setOnLongClickListener(v -> {
+            showMetricsDialog();
+            return true;
+        });
+
         settingsBtn.setOnClickListener(v -> openSettings());
         historyBtn.setOnClickListener(v -> openHistory());
         logoutBtn.setOnClickListener(v -> logout());
 
         if(dummyDataBtn != null) {
-            dummyDataBtn.setOnClickListener(v -> pushDummyPothole());
+            dummyDataBtn.setOnClickListener(v -> showLoadTestDialog());
         }
     }
 
@@ -251,9 +406,10 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     }
 
     private void startCameraPreview() {
-        cameraProviderFuture.addListener(() -> {
+        ListenableFuture<ProcessCameraProvider> providerFuture = getCameraProvider();
+        providerFuture.addListener(() -> {
             try {
-                ProcessCameraProvider cameraProvider = cameraProviderFuture.get();
+                ProcessCameraProvider cameraProvider = providerFuture.get();
                 bindCameraUseCases(cameraProvider);
             } catch (ExecutionException | InterruptedException e) {
                 Log.e(TAG, "Camera initialization failed", e);
@@ -271,14 +427,100 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         CameraSelector cameraSelector = CameraSelector.DEFAULT_BACK_CAMERA;
 
         cameraProvider.unbindAll();
-        cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageCapture);
+        Camera camera = cameraProvider.bindToLifecycle(this, cameraSelector, preview, imageCapture,
+                createImageAnalysis());
+        readFrameTimestampSource(camera);
 
         preview.setSurfaceProvider(viewFinder.getSurfaceProvider());
     }
 
+    // Dash-cam mode without the photo UI only needs the analysis stream
+    private void bindDashCamUseCase(ProcessCameraProvider cameraProvider) {
+        if (isCameraUIVisible) return; // Already bound together with the preview
+
+        cameraProvider.unbindAll();
+        Camera camera = cameraProvider.bindToLifecycle(this, CameraSelector.DEFAULT_BACK_CAMERA,
+                createImageAnalysis());
+        readFrameTimestampSource(camera);
+    }
+
+    // Camera timestamps share SensorEvent's elapsedRealtimeNanos base only when the source is REALTIME;
+    // with UNKNOWN the frames are stamped on arrival instead (later by the pipeline latency)
+    @OptIn(markerClass = ExperimentalCamera2Interop.class)
+    private void readFrameTimestampSource(Camera camera) {
+        Integer source = Camera2CameraInfo.from(camera.getCameraInfo())
+                .getCameraCharacteristic(CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE);
+        frameTimestampsRealtime = source != null
+                && source == CameraCharacteristics.SENSOR_INFO_TIMESTAMP_SOURCE_REALTIME;
+        Log.d(TAG, "Frame timestamps " + (frameTimestampsRealtime ? "from camera (realtime)" : "on receipt"));
+    }
+
+    private ImageAnalysis createImageAnalysis() {
+        // Only the latest frame is kept - frames arriving while the classifier is busy are dropped
+        imageAnalysis = new ImageAnalysis.Builder()
+                .setTargetResolution(new Size(320, 240))
+                .setBackpressureStrategy(ImageAnalysis.STRATEGY_KEEP_ONLY_LATEST)
+                .build();
+        imageAnalysis.setAnalyzer(analysisExecutor, image -> {
+            try {
+                FrameRingBuffer ring = frameRing;
+                if (ring != null) {
+                    ring.write(image, frameTimestampsRealtime
+                            ? image.getImageInfo().getTimestamp()
+                            : SystemClock.elapsedRealtimeNanos());
+                }
+                PotholeFrameAnalyzer analyzer = frameAnalyzer;
+                if (analyzer != null && isCameraUIVisible) {
+                    analyzer.classify(image);
+                }
+            } finally {
+                image.close();
+            }
+        });
+        return imageAnalysis;
+    }
+
+    private void startDashCam() {
+        if (ContextCompat.checkSelfPermission(this, Manifest.permission.CAMERA)
+                != PackageManager.PERMISSION_GRANTED) {
+            Toast.makeText(this, "Camera permission required for dash-cam mode", Toast.LENGTH_SHORT).show();
+            return;
+        }
+
+        if (frameRing == null) {
+            int memoryMb = prefs.getInt(PREF_DASHCAM_MEMORY_MB, DEFAULT_DASHCAM_MEMORY_MB);
+            frameRing = new FrameRingBuffer(memoryMb * 1024 * 1024);
+            Log.d(TAG, "Dash-cam ring: " + frameRing.getCapacity() + " frames, "
+                    + frameRing.getMemoryBytes() / 1024 + " KB");
+        }
+
+        ListenableFuture<ProcessCameraProvider> providerFuture = getCameraProvider();
+        providerFuture.addListener(() -> {
+            try {
+                bindDashCamUseCase(providerFuture.get());
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(TAG, "Dash-cam initialization failed", e);
+            }
+        }, ContextCompat.getMainExecutor(this));
+    }
+
+    private void stopDashCam() {
+        frameRing = null; // Analyzer stops writing; buffers are released with the ring
+
+        if (!isCameraUIVisible && cameraProviderFuture != null && cameraProviderFuture.isDone()) {
+            try {
+                cameraProviderFuture.get().unbindAll();
+            } catch (ExecutionException | InterruptedException e) {
+                Log.e(TAG, "Failed to release dash-cam", e);
+            }
+        }
+    }
+
     private void capturePhoto() {
         if (imageCapture == null) return;
 
+        capturedConfidence = frameAnalyzer != null ? frameAnalyzer.getRecentConfidence() : null;
+        capturedAtNs = SystemClock.elapsedRealtimeNanos();
         File photoFile = new File(getCacheDir(), "pothole_" + System.currentTimeMillis() + ".jpg");
         ImageCapture.OutputFileOptions outputOptions =
                 new ImageCapture.OutputFileOptions.Builder(photoFile).build();
@@ -371,34 +613,56 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             return;
         }
 
+        // Prefer the live track at the moment of capture - getLastLocation() may be much older
+        if (SystemClock.elapsedRealtimeNanos() - locationTrack.latestFixTime() < TRACK_MAX_AGE_NS) {
+            int method = locationTrack.positionAt(capturedAtNs, trackPosition);
+            if (method != LocationTrack.METHOD_NONE) {
+                uploadPhotoAndSaveData(photoFile, trackPosition[0], trackPosition[1]);
+                return;
+            }
+        }
+
         fusedLocationClient.getLastLocation()
                 .addOnSuccessListener(this, location -> {
                     if (location != null) {
-                        uploadPhotoAndSaveData(photoFile, location);
+                        uploadPhotoAndSaveData(photoFile, location.getLatitude(), location.getLongitude());
                     } else {
                         Toast.makeText(this, "Could not get location", Toast.LENGTH_SHORT).show();
                     }
                 });
     }
 
-    private void uploadPhotoAndSaveData(File photoFile, Location location) {
-        String userId = firebaseAuth.getCurrentUser().getUid();
+    private void uploadPhotoAndSaveData(File photoFile, double latitude, double longitude) {
+        String userId = session.getUser().getUid();
         String docId = firestore.collection("potholes").document().getId();
 
         StorageReference imageRef = storageRef.child(userId + "/" + docId + ".jpg");
 
+        boolean metrics = PipelineMetrics.enabled;
+        long uploadStart = System.nanoTime();
+        if (metrics) PipelineMetrics.pendingUploads.increment();
+
         imageRef.putFile(android.net.Uri.fromFile(photoFile))
                 .addOnSuccessListener(taskSnapshot -> {
+                    if (metrics) {
+                        PipelineMetrics.pendingUploads.decrement();
+                        PipelineMetrics.uploadMs.record((System.nanoTime() - uploadStart) / 1_000_000);
+                    }
                     imageRef.getDownloadUrl().addOnSuccessListener(uri -> {
                         // Create unified data structure for image-based detection
                         Map<String, Object> eventData = createUnifiedEventData("IMAGE");
                         eventData.put("imageUrl", uri.toString());
-                        eventData.put("latitude", location.getLatitude());
-                        eventData.put("longitude", location.getLongitude());
-                        eventData.put("speed", currentSpeed);
+                        eventData.put("latitude", latitude);
+                        eventData.put("longitude", longitude);
+                        eventData.put("speed", speedEstimator.getSpeedKmh());
+                        eventData.put("confidence", capturedConfidence);
 
+                        long reportedMs = System.currentTimeMillis();
                         firestore.collection("potholes").document(docId).set(eventData)
                                 .addOnSuccessListener(aVoid -> {
+                                    // Only a saved report goes into history
+                                    historyStore.recordAsync(
+                                            HistoryRecord.fromEventData(docId, eventData, reportedMs));
                                     Toast.makeText(MainActivity.this,
                                             "Photo and data uploaded successfully!", Toast.LENGTH_SHORT).show();
                                     hideCameraUI();
@@ -411,21 +675,45 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
                     });
                 })
                 .addOnFailureListener(e -> {
+                    if (metrics) {
+                        PipelineMetrics.pendingUploads.decrement();
+                        PipelineMetrics.uploadFailures.increment();
+                    }
                     Toast.makeText(MainActivity.this, "Image upload failed", Toast.LENGTH_SHORT).show();
                     Log.e(TAG, "Image upload failed", e);
                 });
     }
 
     private void showCameraUI() {
+        isCameraUIVisible = true;
         viewFinder.setVisibility(View.VISIBLE);
         overlayBox.setVisibility(View.VISIBLE);
         captureButton.setVisibility(View.VISIBLE);
     }
 
+    // Classification paused (camera UI hidden, or the lifecycle-bound camera stopped):
+    // the gap until the next classified frame is not dropped frames. Queued behind
+    // any frame still being classified.
+    private void resetFrameTracking() {
+        PotholeFrameAnalyzer analyzer = frameAnalyzer;
+        if (analyzer != null && analysisExecutor != null && !analysisExecutor.isShutdown()) {
+            analysisExecutor.execute(analyzer::resetFrameTracking);
+        }
+    }
+
     private void hideCameraUI() {
+        isCameraUIVisible = false;
+        resetFrameTracking();
         viewFinder.setVisibility(View.GONE);
         overlayBox.setVisibility(View.GONE);
         captureButton.setVisibility(View.GONE);
+
+        if (frameAnalyzer != null && frameAnalyzer.getAnalyzedFrames() > 0) {
+            Log.d(TAG, String.format("Frame classifier - avg latency: %.1f ms, analyzed: %d, dropped: %d",
+                    frameAnalyzer.getAverageInferenceMs(),
+                    frameAnalyzer.getAnalyzedFrames(),
+                    frameAnalyzer.getDroppedFrames()));
+        }
     }
 
     // MODIFIED: Research paper implementation for sensor detection
@@ -434,115 +722,171 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
     public void onSensorChanged(SensorEvent event) {
         if (!isDetectionActive) return;
 
+        boolean metrics = PipelineMetrics.enabled;
+        long start = metrics ? System.nanoTime() : 0;
+
         if (event.sensor.getType() == Sensor.TYPE_ACCELEROMETER) {
+            if (metrics) PipelineMetrics.recordSensorEvent(event.timestamp);
             accelerometerValues = event.values.clone();
+            lastAccelTimestampNs = event.timestamp;
+            signatureRing.addAccelerometer(accelerometerValues[0], accelerometerValues[1],
+                    accelerometerValues[2], event.timestamp);
+            speedEstimator.onAccelerometer(accelerometerValues[0], accelerometerValues[1],
+                    accelerometerValues[2], event.timestamp);
+            if (spectralEngine.addAccelerometer(accelerometerValues[0], accelerometerValues[1],
+                    accelerometerValues[2], event.timestamp)) {
+                mountVehicleClassifier.update(spectralEngine);
+            }
+            if (roughnessProfile.addAccelerometer(accelerometerValues[0], accelerometerValues[1],
+                    accelerometerValues[2], event.timestamp, speedEstimator.getSpeedKmh())) {
+                uploadRoughnessChunk();
+            }
+
+            // One snapshot per sample - edits from Settings apply from the next sample
+            DetectorConfig config = configStore.get();
+            samplingGovernor.update(speedEstimator.getSpeedKmh(), config.speedThreshold,
+                    SystemClock.elapsedRealtime());
 
             // Add Z-axis to buffer for feature extraction
-            addToZAxisBuffer(accelerometerValues[2]);
+            potholeDetector.add(accelerometerValues[2], config.bufferSize);
 
             updateSensorDisplay();
 
-            if (shouldDetectPothole()) {
-                checkForPotholeRoadSurP();
+            if (shouldDetectPothole(config)) {
+                calibrateThreshold(config);
+                checkForPotholeRoadSurP(config);
             }
         } else if (event.sensor.getType() == Sensor.TYPE_GYROSCOPE) {
             gyroscopeValues = event.values.clone();
+            signatureRing.addGyroscope(gyroscopeValues[0], gyroscopeValues[1], gyroscopeValues[2]);
+            spectralEngine.addGyroscope(gyroscopeValues[0], gyroscopeValues[1],
+                    gyroscopeValues[2], event.timestamp);
         }
-    }
 
-    private void addToZAxisBuffer(float zValue) {
-        zAxisBuffer.add(zValue);
-        if (zAxisBuffer.size() > BUFFER_SIZE) {
-            zAxisBuffer.remove(0); // Remove oldest value
-        }
+        if (metrics) PipelineMetrics.onSensorChangedUs.record((System.nanoTime() - start) / 1000);
     }
 
-    private float calculateDynamicThreshold() {
+    private float calculateDynamicThreshold(DetectorConfig config) {
         // T_t = T_0 + S × (V_t - L) - Dynamic threshold formula from paper
-        return BASE_THRESHOLD + SPEED_SCALING_FACTOR * (currentSpeed - SPEED_OFFSET);
+        // V_t is the fused estimate so the threshold follows braking/acceleration between fixes
+        return config.dynamicThreshold(speedEstimator.getSpeedKmh());
     }
 
-    private void checkForPotholeRoadSurP() {
-        if (zAxisBuffer.size() < 10) return; // Need minimum buffer
-
-        float currentZ = accelerometerValues[2];
-        float dynamicThreshold = calculateDynamicThreshold();
-        long now = System.currentTimeMillis();
-
-        // Check if threshold exceeded and cooldown period passed
-        if (Math.abs(currentZ) > dynamicThreshold &&
-                (now - lastDetectionTime > DETECTION_COOLDOWN_MS)) {
-
-            // Extract features as per paper
-            PotholeFeatures features = extractFeatures(currentZ);
-
-            if (features != null) {
-                lastDetectionTime = now;
-                onPotholeDetectedRoadSurP(features, dynamicThreshold);
+    // Feeds road noise to the calibrator and publishes its T0 when auto-calibration is on
+    private void calibrateThreshold(DetectorConfig config) {
+        if (System.currentTimeMillis() - potholeDetector.getLastDetectionMs() < CALIBRATION_EXCLUSION_MS) return;
+
+        boolean updated = thresholdCalibrator.add(Math.abs(accelerometerValues[2]),
+                speedEstimator.getSpeedKmh(), config);
+        if (updated && config.autoCalibrate) {
+            float t0 = thresholdCalibrator.getCalibratedT0();
+            if (Math.abs(t0 - config.baseThreshold) >= 0.1f) {
+                // The store writes SharedPreferences; keep that off the sensor thread
+                configExecutor.execute(() -> publishCalibratedThreshold(t0));
             }
         }
     }
 
-    private PotholeFeatures extractFeatures(float zt) {
-        try {
-            int currentIndex = zAxisBuffer.size() - 1;
-
-            // Find local min/max before and after current point
-            float zPrev = findLocalExtrema(currentIndex - 5, currentIndex, true);
-            float zNext = findLocalExtrema(currentIndex, Math.min(currentIndex + 5, zAxisBuffer.size() - 1), false);
-
-            // Calculate interval since last detection
-            long intervalSinceLastDetection = System.currentTimeMillis() - lastDetectionTime;
-
-            return new PotholeFeatures(zt, zPrev, zNext, intervalSinceLastDetection, currentSpeed);
-        } catch (Exception e) {
-            Log.e(TAG, "Error extracting features: " + e.getMessage());
-            return null;
-        }
+    // Applied to the config current at that point, under the store's lock, so a Settings
+    // edit made meanwhile isn't undone
+    private void publishCalibratedThreshold(float t0) {
+        configStore.update(current -> {
+            if (!current.autoCalibrate || Math.abs(t0 - current.baseThreshold) < 0.1f) return null;
+            Log.d(TAG, "Calibrated base threshold: " + t0);
+            return current.withBaseThreshold(t0);
+        });
     }
 
-    private float findLocalExtrema(int startIdx, int endIdx, boolean isPrevious) {
-        if (startIdx < 0 || endIdx >= zAxisBuffer.size()) return 0f;
+    private void checkForPotholeRoadSurP(DetectorConfig config) {
+        PotholeDetector.Candidate candidate = potholeDetector.check(speedEstimator.getSpeedKmh(),
+                lastAccelTimestampNs, System.currentTimeMillis(), config);
+        if (candidate == null) return;
 
-        float extrema = zAxisBuffer.get(startIdx);
-        for (int i = startIdx; i <= endIdx; i++) {
-            float value = zAxisBuffer.get(i);
-            if (Math.abs(value) > Math.abs(extrema)) {
-                extrema = value;
-            }
+        // Rejected candidates never leave the device
+        if (candidate.rejected) {
+            if (PipelineMetrics.enabled) PipelineMetrics.rejectedCandidates.increment();
+            Log.d(TAG, "Candidate rejected - Z: " + candidate.zt + ", confidence: " + candidate.confidence);
+            return;
         }
-        return extrema;
+        onPotholeDetectedRoadSurP(candidate, config);
     }
 
-    private void onPotholeDetectedRoadSurP(PotholeFeatures features, float threshold) {
+    private void onPotholeDetectedRoadSurP(PotholeDetector.Candidate features, DetectorConfig config) {
         if (currentLocation == null) return;
+        float threshold = features.threshold;
+        String docId = eventWriter.newDocumentId();
 
         detectionCount++;
+        if (PipelineMetrics.enabled) PipelineMetrics.detections.increment();
 
         // Create unified data structure for sensor-based detection
         Map<String, Object> eventData = createUnifiedEventData("SENSOR");
+        // Sensor events can wait in HistoryStore for their budget window; the sink applies the server clock
+        eventData.put("timestamp", EventSink.SERVER_TIMESTAMP);
 
         // Add RoadSurP paper specific fields
-        eventData.put("latitude", currentLocation.getLatitude());
-        eventData.put("longitude", currentLocation.getLongitude());
+        // Geotag at the time of the peak rather than at the last 1 Hz fix
+        int locationMethod = locationTrack.positionAt(features.timestampNs, trackPosition);
+        double latitude, longitude;
+        float accuracy;
+        if (locationMethod != LocationTrack.METHOD_NONE) {
+            latitude = trackPosition[0];
+            longitude = trackPosition[1];
+            accuracy = (float) trackPosition[2];
+            eventData.put("gps_accuracy", accuracy);
+        } else {
+            latitude = currentLocation.getLatitude();
+            longitude = currentLocation.getLongitude();
+            accuracy = currentLocation.getAccuracy();
+        }
+        eventData.put("latitude", latitude);
+        eventData.put("longitude", longitude);
+
+        // Snap to the road being driven so repeat reports of one pothole share a segment
+        if (mapMatcher != null && mapMatcher.match(latitude, longitude, accuracy,
+                currentLocation.hasBearing() ? currentLocation.getBearing() : Float.NaN)) {
+            eventData.put("segment_id", mapMatcher.segmentId);
+            eventData.put("segment_offset_m", mapMatcher.offsetM);
+            eventData.put("match_distance_m", mapMatcher.distanceM);
+        }
+        eventData.put("location_method", LocationTrack.methodName(locationMethod));
         eventData.put("speed", features.speed);
+        eventData.put("speed_uncertainty", speedEstimator.getUncertaintyKmh());
+        eventData.put("gps_speed", currentSpeed);
         eventData.put("zt_peak", features.zt);
         eventData.put("z_prev_extrema", features.zPrev);
         eventData.put("z_next_extrema", features.zNext);
         eventData.put("interval_since_last_detection", features.intervalSinceLastDetection);
         eventData.put("dynamic_threshold", threshold);
-        eventData.put("base_threshold", BASE_THRESHOLD);
-
-        // Raw signature window for ML
-        List<Float> signatureWindow = new ArrayList<>();
-        int startIdx = Math.max(0, zAxisBuffer.size() - 20);
-        int endIdx = Math.min(zAxisBuffer.size(), zAxisBuffer.size());
-        for (int i = startIdx; i < endIdx; i++) {
-            signatureWindow.add(zAxisBuffer.get(i));
-        }
-        eventData.put("raw_signature_window", signatureWindow);
-
-        savePotholeToFirebase(eventData);
+        eventData.put("base_threshold", config.baseThreshold);
+        eventData.put("config_version", config.version);
+        eventData.put("confidence", features.confidence);
+        eventData.put("model_version", confidenceScorer.getModelVersion());
+
+        // Multi-axis signature for ML, packed once the post-peak samples have arrived.
+        // Sensor events are delivered on this looper, so the ring is never read mid-write.
+        long impactTimestampNs = features.timestampNs;
+        long impactWallMs = System.currentTimeMillis()
+                - (SystemClock.elapsedRealtimeNanos() - impactTimestampNs) / 1_000_000L;
+        uiHandler.postDelayed(() -> {
+            byte[] signature = signatureRing.export(impactTimestampNs,
+                    config.signaturePreMs, config.signaturePostMs);
+            if (signature != null) {
+                eventData.put("signature_blob", signature);
+                eventData.put("signature_sample_count", SignatureRing.sampleCount(signature));
+            }
+            tripExporter.addAsync(impactWallMs, latitude, longitude, features.speed,
+                    features.zt, features.zPrev, features.zNext, features.intervalSinceLastDetection,
+                    threshold, config.baseThreshold, config.version, signature);
+
+            if (frameRing != null) {
+                long remainingMs = Math.max(0, EVIDENCE_POST_IMPACT_MS - config.signaturePostMs);
+                uiHandler.postDelayed(() -> evidenceExecutor.execute(
+                        () -> attachEvidenceAndSave(docId, eventData, impactTimestampNs)), remainingMs);
+            } else {
+                eventWriter.save(docId, eventData);
+            }
+        }, config.signaturePostMs);
 
         uiHandler.post(() -> {
             detectionCountText.setText("Detected: " + detectionCount);
@@ -554,10 +898,135 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         Log.d(TAG, "RoadSurP detection - Z: " + features.zt + ", Threshold: " + threshold);
     }
 
+    // Encodes the dash-cam frames around the impact, uploads them and then saves the event.
+    // The event is still saved (without evidence) if any upload fails. Nothing is uploaded
+    // for an event the write budget would turn away, and the frames of one it evicts later
+    // are deleted again.
+    private void attachEvidenceAndSave(String docId, Map<String, Object> eventData, long impactTimestampNs) {
+        FrameRingBuffer ring = frameRing;
+        FrameRingBuffer.Snapshot[] snapshots = ring != null
+                ? ring.closestFrames(impactTimestampNs, EVIDENCE_FRAME_COUNT)
+                : new FrameRingBuffer.Snapshot[0];
+        if (snapshots.length == 0 || !eventWriter.wouldAdmit(docId, eventData)) {
+            eventWriter.save(docId, eventData);
+            return;
+        }
+
+        String userId = session.getUser().getUid();
+
+        boolean metrics = PipelineMetrics.enabled;
+        long uploadStart = System.nanoTime();
+        if (metrics) PipelineMetrics.pendingUploads.increment();
+
+        List<Task<android.net.Uri>> uploads = new ArrayList<>();
+        List<StorageReference> frameRefs = new ArrayList<>();
+        List<Long> offsetsMs = new ArrayList<>();
+        for (int i = 0; i < snapshots.length; i++) {
+            byte[] jpeg = FrameRingBuffer.encodeJpeg(snapshots[i]);
+            StorageReference frameRef = storageRef.child(userId + "/evidence/" + docId + "_" + i + ".jpg");
+            frameRefs.add(frameRef);
+            uploads.add(frameRef.putBytes(jpeg).continueWithTask(task -> frameRef.getDownloadUrl()));
+            offsetsMs.add((snapshots[i].timestampNs - impactTimestampNs) / 1_000_000L);
+        }
+
+        Tasks.whenAllSuccess(uploads)
+                .addOnSuccessListener(uris -> {
+                    if (metrics) {
+                        PipelineMetrics.pendingUploads.decrement();
+                        PipelineMetrics.uploadMs.record((System.nanoTime() - uploadStart) / 1_000_000);
+                    }
+                    List<String> urls = new ArrayList<>();
+                    for (Object uri : uris) {
+                        urls.add(uri.toString());
+                    }
+                    eventData.put("evidence_image_urls", urls);
+                    eventData.put("evidence_frame_offsets_ms", offsetsMs);
+                    eventWriter.save(docId, eventData, error -> {
+                        if (error instanceof EventWriter.EvictedException) deleteEvidence(frameRefs);
+                    });
+                })
+                .addOnFailureListener(e -> {
+                    if (metrics) {
+                        PipelineMetrics.pendingUploads.decrement();
+                        PipelineMetrics.uploadFailures.increment();
+                    }
+                    Log.w(TAG, "Evidence upload failed, saving event without frames", e);
+                    // The frames that did upload aren't referenced by anything
+                    deleteEvidence(frameRefs);
+                    eventWriter.save(docId, eventData);
+                });
+    }
+
+    private void deleteEvidence(List<StorageReference> frameRefs) {
+        for (StorageReference frameRef : frameRefs) {
+            frameRef.delete().addOnFailureListener(e -> {
+                // Frames that never uploaded are missing already
+                if (!(e instanceof StorageException)
+                        || ((StorageException) e).getErrorCode() != StorageException.ERROR_OBJECT_NOT_FOUND) {
+                    Log.w(TAG, "Could not delete evidence " + frameRef.getPath(), e);
+                }
+            });
+        }
+    }
+
+    // One document per chunk of the trip's roughness profile (~1.5 KB for 20 km)
+    private void uploadRoughnessChunk() {
+        RoughnessProfile.Chunk chunk = roughnessProfile.takeChunk();
+        FirebaseUser user = session.getUser();
+        if (chunk == null || user == null) return;
+
+        // Segment times are elapsed-realtime; convert to wall clock for consumers
+        long offsetMs = System.currentTimeMillis() - SystemClock.elapsedRealtime();
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("user_id", user.getUid());
+        data.put("session_id", currentSessionId);
+        data.put("chunk_index", roughnessChunkIndex++);
+        data.put("created_at", FieldValue.serverTimestamp());
+        data.put("start_time_ms", offsetMs + chunk.startElapsedNs / 1_000_000L);
+        data.put("end_time_ms", offsetMs + chunk.endElapsedNs / 1_000_000L);
+        data.put("segment_length_m", RoughnessProfile.SEGMENT_M);
+        data.put("index_resolution", RoughnessProfile.INDEX_RESOLUTION);
+        data.put("segment_count", chunk.segmentCount);
+        data.put("mean_roughness", chunk.meanIndex);
+        data.put("max_roughness", chunk.maxIndex);
+        data.put("polyline", chunk.polyline);
+        data.put("vehicle_type", mountVehicleClassifier.getVehicleType());
+        data.put("phone_placement", mountVehicleClassifier.getPhonePlacement());
+
+        firestore.collection("roughness_profiles").add(data)
+                .addOnSuccessListener(ref -> Log.d(TAG, "Roughness chunk saved: "
+                        + chunk.segmentCount + " segments, " + chunk.polyline.length() + " chars"))
+                .addOnFailureListener(e -> {
+                    Log.w(TAG, "Error saving roughness chunk", e);
+                    if (PipelineMetrics.enabled) PipelineMetrics.writeFailures.increment();
+                });
+    }
+
+    // Uploads every finished trip export as one object; files are deleted once stored.
+    // Runs on the export thread once the trip's file is closed.
+    private void uploadTripExports(List<File> pending) {
+        FirebaseUser user = session.getUser();
+        if (user == null) return;
+
+        for (File file : pending) {
+            StorageReference exportRef = storageRef.child(user.getUid() + "/exports/" + file.getName());
+            exportRef.putFile(android.net.Uri.fromFile(file))
+                    .addOnSuccessListener(taskSnapshot -> {
+                        Log.d(TAG, "Trip export uploaded: " + file.getName() + " (" + file.length() + " bytes)");
+                        file.delete();
+                    })
+                    .addOnFailureListener(e -> {
+                        Log.w(TAG, "Trip export upload failed, will retry after the next trip", e);
+                        if (PipelineMetrics.enabled) PipelineMetrics.uploadFailures.increment();
+                    });
+        }
+    }
+
     // Unified data structure for both image and sensor detections
     private Map<String, Object> createUnifiedEventData(String detectionType) {
         Map<String, Object> eventData = new HashMap<>();
-        String userId = firebaseAuth.getCurrentUser().getUid();
+        String userId = session.getUser().getUid();
 
         // Common fields for both detection types
         eventData.put("timestamp", FieldValue.serverTimestamp());
@@ -568,8 +1037,8 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         // Device and environment context
         eventData.put("device_model", Build.MODEL);
         eventData.put("device_manufacturer", Build.MANUFACTURER);
-        eventData.put("vehicle_type", "unknown"); // Could be set from user preferences
-        eventData.put("phone_placement", "unknown"); // Could be detected or set by user
+        eventData.put("vehicle_type", mountVehicleClassifier.getVehicleType());
+        eventData.put("phone_placement", mountVehicleClassifier.getPhonePlacement());
 
         // Location and motion (if available)
         if (currentLocation != null) {
@@ -584,7 +1053,7 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
             eventData.put("gps_accuracy", null);
         }
 
-        eventData.put("speed", currentSpeed);
+        eventData.put("speed", speedEstimator.getSpeedKmh());
 
         // Sensor-specific fields (null for image detections)
         eventData.put("zt_peak", null);
@@ -593,7 +1062,18 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         eventData.put("interval_since_last_detection", null);
         eventData.put("dynamic_threshold", null);
         eventData.put("base_threshold", null);
-        eventData.put("raw_signature_window", null);
+        eventData.put("config_version", null);
+        eventData.put("model_version", null);
+        eventData.put("signature_blob", null);
+        eventData.put("signature_sample_count", null);
+        eventData.put("location_method", null);
+        eventData.put("segment_id", null);
+        eventData.put("segment_offset_m", null);
+        eventData.put("match_distance_m", null);
+        eventData.put("speed_uncertainty", null);
+        eventData.put("gps_speed", null);
+        eventData.put("evidence_image_urls", null);
+        eventData.put("evidence_frame_offsets_ms", null);
 
         // Image-specific fields (null for sensor detections)
         eventData.put("imageUrl", null);
@@ -609,51 +1089,115 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
         return eventData;
     }
 
-    // Helper class for pothole features
-    private static class PotholeFeatures {
-        final float zt;
-        final float zPrev;
-        final float zNext;
-        final long intervalSinceLastDetection;
-        final float speed;
-
-        PotholeFeatures(float zt, float zPrev, float zNext, long interval, float speed) {
-            this.zt = zt;
-            this.zPrev = zPrev;
-            this.zNext = zNext;
-            this.intervalSinceLastDetection = interval;
-            this.speed = speed;
-        }
-    }
-
-    // ------ DUMMY TEST DATA CREATOR ------
-    private void pushDummyPothole() {
-        FirebaseUser dummyUser = firebaseAuth.getCurrentUser();
-        if (dummyUser == null) {
-            Toast.makeText(this, "Login required to send dummy data.", Toast.LENGTH_SHORT).show();
+    // ------ LOAD TEST ------
+    // Simulated drivers through the real detector and write path, against an in-process
+    // backend; nothing reaches Firestore, the local history or the pipeline metrics
+    private void showLoadTestDialog() {
+        if (loadGenerator != null) {
+            new androidx.appcompat.app.AlertDialog.Builder(this)
+                    .setTitle("Load Test")
+                    .setMessage("A load test is running.")
+                    .setPositiveButton("Stop", (dialog, which) -> loadGenerator.cancel())
+                    .setNegativeButton("Close", null)
+                    .show();
             return;
         }
 
-        Map<String, Object> dummyData = createUnifiedEventData("SENSOR");
-        dummyData.put("latitude", 19.0760);
-        dummyData.put("longitude", 72.8777);
-        dummyData.put("speed", 44.2f);
-        dummyData.put("zt_peak", 15.5f);
-        dummyData.put("z_prev_extrema", 8.2f);
-        dummyData.put("z_next_extrema", 9.1f);
-        dummyData.put("interval_since_last_detection", 5000L);
-        dummyData.put("dynamic_threshold", 12.0f);
-        dummyData.put("base_threshold", BASE_THRESHOLD);
-
-        firestore.collection("potholes")
-                .add(dummyData)
-                .addOnSuccessListener(ref -> {
-                    Toast.makeText(this, "Dummy pothole added! ID: " + ref.getId(), Toast.LENGTH_SHORT).show();
+        LoadGenerator.Profile defaults = LoadGenerator.Profile.DEFAULT;
+        android.widget.LinearLayout form = new android.widget.LinearLayout(this);
+        form.setOrientation(android.widget.LinearLayout.VERTICAL);
+        form.setPadding(48, 16, 48, 0);
+        android.widget.EditText driversInput = addLoadTestField(form, "Drivers", defaults.drivers);
+        android.widget.EditText tripInput = addLoadTestField(form, "Trip length (s)", defaults.tripSeconds);
+        android.widget.EditText rateInput = addLoadTestField(form, "Sample rate (Hz)", defaults.sampleRateHz);
+        android.widget.EditText speedupInput = addLoadTestField(form, "Speed-up (x real time)", defaults.speedup);
+        android.widget.EditText potholesInput = addLoadTestField(form, "Potholes per km", defaults.potholesPerKm);
+        android.widget.EditText inFlightInput = addLoadTestField(form, "Max pending events per driver", defaults.maxInFlight);
+        android.widget.EditText latencyInput = addLoadTestField(form, "Backend latency (ms)", 80);
+        android.widget.EditText failureInput = addLoadTestField(form, "Backend failures (%)", 1);
+
+        android.widget.ScrollView scrollView = new android.widget.ScrollView(this);
+        scrollView.addView(form);
+
+        new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle("Load Test")
+                .setView(scrollView)
+                .setPositiveButton("Start", (dialog, which) -> {
+                    try {
+                        LoadGenerator.Profile profile = new LoadGenerator.Profile(
+                                Integer.parseInt(driversInput.getText().toString().trim()),
+                                Integer.parseInt(tripInput.getText().toString().trim()),
+                                Integer.parseInt(rateInput.getText().toString().trim()),
+                                Float.parseFloat(speedupInput.getText().toString().trim()),
+                                Float.parseFloat(potholesInput.getText().toString().trim()),
+                                Integer.parseInt(inFlightInput.getText().toString().trim()));
+                        startLoadTest(profile,
+                                Long.parseLong(latencyInput.getText().toString().trim()),
+                                Double.parseDouble(failureInput.getText().toString().trim()) / 100.0);
+                    } catch (IllegalArgumentException e) {
+                        // NumberFormatException included
+                        Toast.makeText(this, "Invalid load test: " + e.getMessage(), Toast.LENGTH_LONG).show();
+                    }
                 })
-                .addOnFailureListener(e -> {
-                    Toast.makeText(this, "Failed to add dummy pothole.", Toast.LENGTH_SHORT).show();
-                    Log.e(TAG, "Failed to send dummy data", e);
-                });
+                .setNegativeButton("Cancel", null)
+                .show();
+    }
+
+    private android.widget.EditText addLoadTestField(android.widget.LinearLayout form, String label, Number value) {
+        TextView labelView = new TextView(this);
+        labelView.setText(label);
+        form.addView(labelView);
+
+        android.widget.EditText input = new android.widget.EditText(this);
+        input.setInputType(android.text.InputType.TYPE_CLASS_NUMBER
+                | android.text.InputType.TYPE_NUMBER_FLAG_DECIMAL);
+        input.setText(String.valueOf(value));
+        form.addView(input);
+        return input;
+    }
+
+    private void startLoadTest(LoadGenerator.Profile profile, long latencyMs, double failureRate) {
+        FakeEventSink backend = new FakeEventSink(latencyMs, failureRate);
+        LoadGenerator generator = new LoadGenerator(profile, configStore.get(),
+                new EventWriter(backend, null, false), confidenceScorer);
+        loadGenerator = generator;
+        dummyDataBtn.setText("Load Test Running...");
+
+        new Thread(() -> {
+            String result;
+            try {
+                result = generator.run() + "\nbackend_stored " + backend.getStoredCount()
+                        + " docs, " + backend.getStoredBytes() / 1024 + " KB";
+            } catch (InterruptedException e) {
+                result = "Load test interrupted";
+            } finally {
+                backend.shutdown();
+            }
+            String report = result;
+            uiHandler.post(() -> {
+                loadGenerator = null;
+                dummyDataBtn.setText("Load Test");
+                if (isFinishing() || isDestroyed()) return;
+                showLoadTestReport(report);
+            });
+        }, "LoadTest").start();
+    }
+
+    private void showLoadTestReport(String report) {
+        TextView reportView = new TextView(this);
+        reportView.setTypeface(android.graphics.Typeface.MONOSPACE);
+        reportView.setTextSize(11);
+        reportView.setPadding(32, 16, 32, 16);
+        reportView.setText(report);
+
+        android.widget.ScrollView scrollView = new android.widget.ScrollView(this);
+        scrollView.addView(reportView);
+
+        new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle("Load Test Report")
+                .setView(scrollView)
+                .setPositiveButton("Close", null)
+                .show();
     }
 
     private void startDetection() {
@@ -665,87 +1209,166 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
 
         // Reset session ID for new detection session
         currentSessionId = UUID.randomUUID().toString();
-        zAxisBuffer.clear();
+        potholeDetector.clear();
+        locationTrack.clear();
+        speedEstimator.reset();
+        signatureRing.clear();
+        roughnessProfile.reset();
+        roughnessChunkIndex = 0;
+        FirebaseUser exportUser = session.getUser();
+        if (exportUser != null) {
+            tripExporter.startAsync(currentSessionId, exportUser.getUid());
+        }
+        spectralEngine.reset();
+        mountVehicleClassifier.reset();
+        confidenceScorer.reload();
+        DetectorConfig budgetConfig = configStore.get();
+        eventWriter.setBudget(budgetConfig.writeBudget, budgetConfig.budgetWindowMs);
+        if (mapMatcher != null) mapMatcher.resetTrack();
+        if (PipelineMetrics.enabled && !spectralBenchmarked) {
+            spectralBenchmarked = true;
+            // One window every 64 samples: at 200 Hz it must finish well inside 320 ms
+            new Thread(() -> Log.d(TAG, String.format("Spectral features: %.1f us per window",
+                    SpectralFeatureEngine.benchmark(200))), "SpectralBenchmark").start();
+        }
+        PipelineMetrics.reset();
 
         isDetectionActive = true;
         statusText.setText("Detection Active - Monitoring for potholes...");
 
-        sensorManager.registerListener(this, accelerometer, SensorManager.SENSOR_DELAY_GAME);
-        sensorManager.registerListener(this, gyroscope, SensorManager.SENSOR_DELAY_GAME);
+        samplingGovernor.start(SystemClock.elapsedRealtime());
+        applySamplingMode(samplingGovernor.getMode());
 
-        try {
-            locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, 1000, 1, this);
-            locationManager.requestLocationUpdates(LocationManager.NETWORK_PROVIDER, 1000, 1, this);
-        } catch (SecurityException e) {
-            Log.e(TAG, "Location permission not granted", e);
+        if (dashCamSwitch.isChecked()) {
+            startDashCam();
         }
         Log.d(TAG, "RoadSurP pothole detection started");
     }
 
+    // Re-registers sensors and location updates at the rates of the given mode
+    private void applySamplingMode(SamplingGovernor.Mode mode) {
+        sensorManager.unregisterListener(this);
+        if (significantMotion != null) {
+            sensorManager.cancelTriggerSensor(significantMotionListener, significantMotion);
+        }
+
+        if (mode == SamplingGovernor.Mode.STATIONARY) {
+            // Accelerometer pipeline suspended; wake on significant motion or a moving GPS fix
+            if (significantMotion != null) {
+                sensorManager.requestTriggerSensor(significantMotionListener, significantMotion);
+            }
+            potholeDetector.clear();
+        } else {
+            sensorManager.registerListener(this, accelerometer, mode.samplingPeriodUs);
+            sensorManager.registerListener(this, gyroscope, mode.samplingPeriodUs);
+        }
+
+        // Most modes share the 1 s interval; re-registering would only restart the providers
+        if (mode.locationIntervalMs != locationIntervalMs) {
+            try {
+                locationManager.removeUpdates(this);
+                locationManager.requestLocationUpdates(LocationManager.GPS_PROVIDER, mode.locationIntervalMs, 1, this);
+                locationManager.requestLocationUpdates(LocationManager.NETWORK_PROVIDER, mode.locationIntervalMs, 1, this);
+                locationIntervalMs = mode.locationIntervalMs;
+            } catch (SecurityException e) {
+                Log.e(TAG, "Location permission not granted", e);
+            }
+        }
+
+        uiHandler.post(() -> statusText.setText(mode == SamplingGovernor.Mode.STATIONARY
+                ? "Detection Active - Idle (vehicle stopped)"
+                : "Detection Active - Monitoring for potholes..."));
+    }
+
     private void stopDetection() {
         isDetectionActive = false;
         statusText.setText("Detection Stopped");
 
         sensorManager.unregisterListener(this);
-        zAxisBuffer.clear();
+        if (significantMotion != null) {
+            sensorManager.cancelTriggerSensor(significantMotionListener, significantMotion);
+        }
+        Log.i(TAG, "Sampling summary: " + samplingGovernor.summary(SystemClock.elapsedRealtime()));
+        dumpMetricsToFile();
+        thresholdCalibrator.save();
+        // Events still in their signature or evidence window go out with the next budget window
+        eventWriter.flush(currentSessionId);
+        uploadRoughnessChunk();
+        tripExporter.finishAsync(this::uploadTripExports);
+
+        // Pick up this trip's server timestamps for the local history
+        FirebaseUser user = session.getUser();
+        if (user != null) {
+            historySync.syncAsync(user.getUid());
+        }
+        potholeDetector.clear();
+        stopDashCam();
 
         try {
             locationManager.removeUpdates(this);
         } catch (SecurityException e) {
             Log.e(TAG, "Location permission not granted", e);
         }
+        locationIntervalMs = -1;
         Log.d(TAG, "RoadSurP pothole detection stopped");
     }
 
     private void updateSensorDisplay() {
         uiHandler.post(() -> {
-            float dynamicThreshold = calculateDynamicThreshold();
+            float dynamicThreshold = calculateDynamicThreshold(configStore.get());
+            float fusedSpeed = speedEstimator.getSpeedKmh();
             String sensorData = String.format(
                     "Accelerometer:\nX: %.2f m/s²\nY: %.2f m/s²\nZ: %.2f m/s²\n\n" +
-                            "Speed: %.1f km/h\n" +
+                            "Speed: %.1f ± %.1f km/h (GPS %.1f)\n" +
                             "Dynamic Threshold: %.1f\n" +
                             "Buffer Size: %d\n" +
                             "Driving: %s",
                     accelerometerValues[0], accelerometerValues[1], accelerometerValues[2],
-                    currentSpeed,
+                    fusedSpeed, speedEstimator.getUncertaintyKmh(), currentSpeed,
                     dynamicThreshold,
-                    zAxisBuffer.size(),
+                    potholeDetector.size(),
                     isDriving ? "Yes" : "No"
             );
             sensorDataText.setText(sensorData);
-            speedText.setText(String.format("%.1f km/h", currentSpeed));
+            speedText.setText(String.format("%.1f km/h", fusedSpeed));
         });
     }
 
-    private boolean shouldDetectPothole() {
-        checkDrivingStatus();
+    private boolean shouldDetectPothole(DetectorConfig config) {
+        checkDrivingStatus(config);
         checkPhoneUsage();
         return isDetectionActive && isDriving && !isPhoneInUse;
     }
 
-    private void checkDrivingStatus() {
-        isDriving = currentSpeed > SPEED_THRESHOLD;
+    private void checkDrivingStatus(DetectorConfig config) {
+        isDriving = speedEstimator.getSpeedKmh() > config.speedThreshold;
     }
 
     private void checkPhoneUsage() {
         isPhoneInUse = false;
     }
 
-    private void savePotholeToFirebase(Map<String, Object> potholeData) {
-        firestore.collection("potholes")
-                .add(potholeData)
-                .addOnSuccessListener(documentReference -> {
-                    Log.d(TAG, "Pothole saved with ID: " + documentReference.getId());
-                })
-                .addOnFailureListener(e -> {
-                    Log.w(TAG, "Error adding pothole", e);
-                });
-    }
-
     @Override
     public void onLocationChanged(@NonNull Location location) {
         currentLocation = location;
+        boolean tracked = locationTrack.add(location.getElapsedRealtimeNanos(),
+                location.getLatitude(), location.getLongitude(), location.getSpeed(),
+                location.hasBearing() ? location.getBearing() : Float.NaN,
+                location.getAccuracy());
         currentSpeed = location.getSpeed() * 3.6f;
+        if (tracked && mapMatcher != null && isDetectionActive) {
+            mapMatcher.onFix(location.getLatitude(), location.getLongitude(), location.getAccuracy(),
+                    location.hasBearing() ? location.getBearing() : Float.NaN);
+        }
+        if (location.hasSpeed()) {
+            speedEstimator.onGpsSpeed(location.getSpeed(),
+                    location.hasSpeedAccuracy() ? location.getSpeedAccuracyMetersPerSecond() : Float.NaN,
+                    location.getElapsedRealtimeNanos());
+        }
+        if (isDetectionActive) {
+            samplingGovernor.update(speedEstimator.getSpeedKmh(), configStore.get().speedThreshold,
+                    SystemClock.elapsedRealtime());
+        }
     }
 
     @Override
@@ -762,35 +1385,104 @@ public class MainActivity extends AppCompatActivity implements SensorEventListen
                 == PackageManager.PERMISSION_GRANTED;
     }
 
+    // Debug screen for the pipeline metrics (long-press the status text)
+    private void showMetricsDialog() {
+        TextView metricsView = new TextView(this);
+        metricsView.setTypeface(android.graphics.Typeface.MONOSPACE);
+        metricsView.setTextSize(11);
+        metricsView.setPadding(32, 16, 32, 16);
+        metricsView.setText(StartupTrace.summary() + "\n" + (PipelineMetrics.enabled
+                ? PipelineMetrics.dump()
+                : "Metrics are disabled."));
+
+        android.widget.ScrollView scrollView = new android.widget.ScrollView(this);
+        scrollView.addView(metricsView);
+
+        new androidx.appcompat.app.AlertDialog.Builder(this)
+                .setTitle("Pipeline Metrics")
+                .setView(scrollView)
+                .setPositiveButton("Save", (dialog, which) -> dumpMetricsToFile())
+                .setNeutralButton(PipelineMetrics.enabled ? "Disable" : "Enable", (dialog, which) -> {
+                    PipelineMetrics.enabled = !PipelineMetrics.enabled;
+                    PipelineMetrics.reset();
+                })
+                .setNegativeButton("Close", null)
+                .show();
+    }
+
+    private void dumpMetricsToFile() {
+        if (!PipelineMetrics.enabled) return;
+
+        File dir = new File(getExternalFilesDir(null), "metrics");
+        if (!dir.exists() && !dir.mkdirs()) {
+            Log.w(TAG, "Could not create metrics directory");
+            return;
+        }
+        File file = new File(dir, "session_" + currentSessionId + ".txt");
+        try {
+            PipelineMetrics.dumpToFile(file);
+            Log.d(TAG, "Metrics written to " + file.getAbsolutePath());
+        } catch (IOException e) {
+            Log.e(TAG, "Failed to write metrics: " + e.getMessage());
+        }
+    }
+
     private void openSettings() {
-        Toast.makeText(this, "Settings clicked", Toast.LENGTH_SHORT).show();
+        startActivity(new Intent(this, SettingsActivity.class));
     }
 
     private void openHistory() {
-        Toast.makeText(this, "History clicked", Toast.LENGTH_SHORT).show();
+        startActivity(new Intent(this, HistoryActivity.class));
     }
 
     private void logout() {
-        firebaseAuth.signOut();
+        session.signOut();
         startActivity(new Intent(MainActivity.this, LoginActivity.class));
         finish();
         Toast.makeText(this, "Logged out", Toast.LENGTH_SHORT).show();
     }
 
+    // Detection keeps running while another screen (e.g. Settings) is in front, so a trip
+    // isn't cut short and edits apply to it mid-session. Detector settings are read per
+    // sample; the write budget is re-applied here.
+    @Override
+    protected void onStart() {
+        super.onStart();
+        resetFrameTracking();
+    }
+
     @Override
     protected void onResume() {
         super.onResume();
         if (isDetectionActive) {
-            startDetection();
+            DetectorConfig config = configStore.get();
+            eventWriter.setBudget(config.writeBudget, config.budgetWindowMs);
         }
     }
 
     @Override
-    protected void onPause() {
-        super.onPause();
+    protected void onDestroy() {
+        super.onDestroy();
         if (isDetectionActive) {
             stopDetection();
         }
+        if (analysisExecutor != null) {
+            analysisExecutor.execute(() -> {
+                if (frameAnalyzer != null) {
+                    frameAnalyzer.close();
+                }
+            });
+            analysisExecutor.shutdown();
+        }
+        if (evidenceExecutor != null) {
+            evidenceExecutor.shutdown();
+        }
+        if (configExecutor != null) {
+            configExecutor.shutdown();
+        }
+        if (loadGenerator != null) {
+            loadGenerator.cancel();
+        }
     }
 
     @Override
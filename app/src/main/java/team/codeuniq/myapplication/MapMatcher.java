@@ -0,0 +1,129 @@
+package team.codeuniq.myapplication;
+
+import android.content.Context;
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+
+import team.codeuniq.formats.RoadNetworkIndex;
+
+// Snaps positions to road segments of the offline network in
+// files/road_network.ptrn (built with team.codeuniq.formats.RoadNetworkWriter).
+// Candidates within a radius derived from the fix accuracy are scored on
+// distance (in units of accuracy), heading disagreement with the direction of
+// travel, and continuity with the segment the recent track was matched to, so
+// a detection on a road next to a parallel one or a car park stays on the
+// road being driven. All scratch state is preallocated; the network itself is
+// memory-mapped and never copied to the heap.
+public class MapMatcher implements RoadNetworkIndex.Visitor {
+
+    private static final String TAG = "MapMatcher";
+    public static final String NETWORK_FILE = "road_network.ptrn";
+
+    private static final double MIN_RADIUS_M = 20, MAX_RADIUS_M = 100;
+    private static final double MIN_SIGMA_M = 5;
+    private static final double HEADING_WEIGHT = 1.5;     // cost of a 90° disagreement
+    private static final double CONTINUITY_BONUS = 0.75;  // same or adjoining segment as the track
+    private static final float TRACK_MAX_ACCURACY_M = 30f;
+
+    private final RoadNetworkIndex index;
+
+    // Result of the last successful match()
+    public long segmentId;
+    public double offsetM;
+    public double distanceM;
+
+    // Query scratch (visit() is called back from index.search)
+    private final double[] projection = new double[2];
+    private double queryLat, queryLon, querySigma, queryBearing;
+    private int bestSegment;
+    private double bestCost, bestOffset, bestDistance;
+    private int trackSegment = -1;
+
+    public static MapMatcher open(Context context) {
+        File file = new File(context.getFilesDir(), NETWORK_FILE);
+        if (!file.exists()) return null;
+        try {
+            MapMatcher matcher = new MapMatcher(new RoadNetworkIndex(file));
+            Log.d(TAG, "Road network loaded: " + matcher.index.getSegmentCount() + " segments");
+            return matcher;
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot open " + NETWORK_FILE + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    MapMatcher(RoadNetworkIndex index) {
+        this.index = index;
+    }
+
+    public synchronized void resetTrack() {
+        trackSegment = -1;
+    }
+
+    // Follows the driven road with every good fix so detections can prefer it
+    public synchronized void onFix(double lat, double lon, float accuracyM, float bearingDeg) {
+        if (accuracyM > TRACK_MAX_ACCURACY_M) return;
+        if (find(lat, lon, accuracyM, bearingDeg)) {
+            trackSegment = bestSegment;
+        }
+    }
+
+    // bearingDeg is NaN when the direction of travel is unknown
+    public synchronized boolean match(double lat, double lon, float accuracyM, float bearingDeg) {
+        if (!find(lat, lon, accuracyM, bearingDeg)) return false;
+        segmentId = index.getSegmentId(bestSegment);
+        offsetM = bestOffset;
+        distanceM = bestDistance;
+        return true;
+    }
+
+    private boolean find(double lat, double lon, float accuracyM, float bearingDeg) {
+        double accuracy = Float.isNaN(accuracyM) || accuracyM <= 0 ? MIN_RADIUS_M : accuracyM;
+        double radius = Math.max(MIN_RADIUS_M, Math.min(MAX_RADIUS_M, 2 * accuracy + 10));
+
+        queryLat = lat;
+        queryLon = lon;
+        querySigma = Math.max(MIN_SIGMA_M, accuracy);
+        queryBearing = bearingDeg;
+        bestSegment = -1;
+        bestCost = Double.MAX_VALUE;
+
+        double dLat = RoadNetworkIndex.metersToLatDegrees(radius);
+        double dLon = RoadNetworkIndex.metersToLonDegrees(radius, lat);
+        index.search(lat - dLat, lon - dLon, lat + dLat, lon + dLon, this);
+        return bestSegment >= 0;
+    }
+
+    @Override
+    public void visit(int segment) {
+        double distance = index.project(segment, queryLat, queryLon, projection);
+        double cost = distance / querySigma;
+
+        if (!Double.isNaN(queryBearing)) {
+            // Roads are two-way unless proven otherwise: compare modulo 180°
+            double diff = Math.abs(queryBearing - projection[1]) % 180;
+            if (diff > 90) diff = 180 - diff;
+            double normalised = diff / 90;
+            cost += HEADING_WEIGHT * normalised * normalised;
+        }
+        if (trackSegment >= 0 && (segment == trackSegment || index.sharesEndpoint(segment, trackSegment))) {
+            cost -= CONTINUITY_BONUS;
+        }
+
+        if (cost < bestCost) {
+            bestCost = cost;
+            bestSegment = segment;
+            bestOffset = projection[0];
+            bestDistance = distance;
+        }
+    }
+
+    public void close() {
+        try {
+            index.close();
+        } catch (IOException ignored) {
+        }
+    }
+}
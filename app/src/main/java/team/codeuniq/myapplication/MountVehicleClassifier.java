@@ -0,0 +1,94 @@
+package team.codeuniq.myapplication;
+
+// Infers the vehicle class and how the phone is carried from the band energies
+// of SpectralFeatureEngine. Each window casts a vote for one class per field;
+// votes decay exponentially so the answer follows changes (phone picked up,
+// moved to a mount) within a few seconds while single odd windows are ignored.
+public class MountVehicleClassifier {
+
+    public static final String UNKNOWN = "unknown";
+
+    public static final String[] VEHICLE_TYPES = {"bus_truck", "car", "two_wheeler"};
+    public static final String[] PLACEMENTS = {"mounted", "hand", "pocket_seat"};
+
+    private static final float VOTE_DECAY = 0.9f;
+    private static final float MIN_VOTES = 3f;          // about 4 s of windows at 50 Hz
+    private static final float MIN_ACCEL_ENERGY = 0.02f; // (m/s²)², below this the car is idle
+
+    // Body bounce frequency limits (Hz) from typical suspension natural frequencies
+    private static final float HEAVY_MAX_HZ = 1.3f;
+    private static final float CAR_MAX_HZ = 2.5f;
+
+    private static final float HAND_GYRO_ENERGY = 0.05f;     // (rad/s)²
+    private static final float MOUNT_GYRO_ENERGY = 0.01f;
+    private static final float MOUNT_HIGH_FRACTION = 0.25f;  // share of accel power above 8 Hz
+    private static final float TWO_WHEELER_GYRO_LOW = 0.4f;  // share of gyro power below 2 Hz (leaning)
+
+    private final float[] vehicleVotes = new float[VEHICLE_TYPES.length];
+    private final float[] placementVotes = new float[PLACEMENTS.length];
+
+    public void reset() {
+        for (int i = 0; i < vehicleVotes.length; i++) vehicleVotes[i] = 0f;
+        for (int i = 0; i < placementVotes.length; i++) placementVotes[i] = 0f;
+    }
+
+    public void update(SpectralFeatureEngine features) {
+        if (!features.hasFeatures() || features.getAccelEnergy() < MIN_ACCEL_ENERGY) return;
+
+        float[] accel = features.getAccelBands();
+        float[] gyro = features.getGyroBands();
+        float highFraction = accel[3] + accel[4] + accel[5];
+        float gyroEnergy = features.getGyroEnergy();
+        float bounceHz = features.getDominantFrequencyHz();
+
+        int vehicle;
+        if (gyro[0] > TWO_WHEELER_GYRO_LOW && gyroEnergy > MOUNT_GYRO_ENERGY
+                && gyroEnergy < HAND_GYRO_ENERGY) {
+            vehicle = 2;
+        } else if (bounceHz < HEAVY_MAX_HZ) {
+            vehicle = 0;
+        } else if (bounceHz <= CAR_MAX_HZ) {
+            vehicle = 1;
+        } else {
+            vehicle = 2;
+        }
+
+        int placement;
+        if (gyroEnergy >= HAND_GYRO_ENERGY) {
+            placement = 1;
+        } else if (gyroEnergy < MOUNT_GYRO_ENERGY && highFraction >= MOUNT_HIGH_FRACTION) {
+            placement = 0;
+        } else {
+            placement = 2; // body or cushion damps the high frequencies
+        }
+
+        vote(placementVotes, placement);
+        // A phone in the hand tells little about the vehicle's suspension
+        if (placement != 1) vote(vehicleVotes, vehicle);
+    }
+
+    private static void vote(float[] votes, int winner) {
+        for (int i = 0; i < votes.length; i++) votes[i] *= VOTE_DECAY;
+        votes[winner] += 1f;
+    }
+
+    public String getVehicleType() {
+        return leader(vehicleVotes, VEHICLE_TYPES);
+    }
+
+    public String getPhonePlacement() {
+        return leader(placementVotes, PLACEMENTS);
+    }
+
+    private static String leader(float[] votes, String[] labels) {
+        int best = 0;
+        float total = 0f;
+        for (int i = 0; i < votes.length; i++) {
+            total += votes[i];
+            if (votes[i] > votes[best]) best = i;
+        }
+        // Need enough evidence and a clear majority
+        if (total < MIN_VOTES || votes[best] < total * 0.5f) return UNKNOWN;
+        return labels[best];
+    }
+}
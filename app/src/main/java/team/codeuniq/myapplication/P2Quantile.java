@@ -0,0 +1,130 @@
+package team.codeuniq.myapplication;
+
+import java.util.Arrays;
+
+// Streaming quantile estimate using the P² algorithm (Jain & Chlamtac, 1985).
+// Keeps five markers regardless of how many samples are seen, so memory and
+// per-sample cost are constant.
+public class P2Quantile {
+
+    private final double p;
+    private final double[] heights = new double[5];   // marker heights q
+    private final double[] positions = new double[5]; // actual positions n
+    private final double[] desired = new double[5];   // desired positions n'
+    private final double[] increments = new double[5];
+    private long count = 0;
+
+    public P2Quantile(double p) {
+        this.p = p;
+        increments[0] = 0;
+        increments[1] = p / 2;
+        increments[2] = p;
+        increments[3] = (1 + p) / 2;
+        increments[4] = 1;
+    }
+
+    public void add(double x) {
+        if (count < 5) {
+            heights[(int) count] = x;
+            count++;
+            if (count == 5) initialise();
+            return;
+        }
+        count++;
+
+        // Find the cell k containing x, extending the extremes if needed
+        int k;
+        if (x < heights[0]) {
+            heights[0] = x;
+            k = 0;
+        } else if (x >= heights[4]) {
+            heights[4] = x;
+            k = 3;
+        } else {
+            k = 0;
+            while (k < 3 && x >= heights[k + 1]) k++;
+        }
+
+        for (int i = k + 1; i < 5; i++) positions[i]++;
+        for (int i = 0; i < 5; i++) desired[i] += increments[i];
+
+        // Adjust the three middle markers
+        for (int i = 1; i <= 3; i++) {
+            double d = desired[i] - positions[i];
+            if ((d >= 1 && positions[i + 1] - positions[i] > 1)
+                    || (d <= -1 && positions[i - 1] - positions[i] < -1)) {
+                int sign = d > 0 ? 1 : -1;
+                double candidate = parabolic(i, sign);
+                if (heights[i - 1] < candidate && candidate < heights[i + 1]) {
+                    heights[i] = candidate;
+                } else {
+                    heights[i] = linear(i, sign);
+                }
+                positions[i] += sign;
+            }
+        }
+    }
+
+    private void initialise() {
+        Arrays.sort(heights);
+        for (int i = 0; i < 5; i++) positions[i] = i;
+        desired[0] = 0;
+        desired[1] = 2 * p;
+        desired[2] = 4 * p;
+        desired[3] = 2 + 2 * p;
+        desired[4] = 4;
+    }
+
+    private double parabolic(int i, int sign) {
+        double n0 = positions[i - 1], n1 = positions[i], n2 = positions[i + 1];
+        return heights[i] + sign / (n2 - n0) * (
+                (n1 - n0 + sign) * (heights[i + 1] - heights[i]) / (n2 - n1)
+                        + (n2 - n1 - sign) * (heights[i] - heights[i - 1]) / (n1 - n0));
+    }
+
+    private double linear(int i, int sign) {
+        return heights[i] + sign * (heights[i + sign] - heights[i]) / (positions[i + sign] - positions[i]);
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public double getQuantile() {
+        if (count == 0) return Double.NaN;
+        if (count < 5) {
+            // Exact quantile of the few samples seen so far
+            double[] sorted = Arrays.copyOf(heights, (int) count);
+            Arrays.sort(sorted);
+            return sorted[(int) Math.min(count - 1, Math.round(p * (count - 1)))];
+        }
+        return heights[2];
+    }
+
+    // Marker state as 16 numbers (count, 5 heights, 5 positions, 5 desired) for persistence
+    public String serialise() {
+        StringBuilder sb = new StringBuilder().append(count);
+        for (double v : heights) sb.append(',').append(v);
+        for (double v : positions) sb.append(',').append(v);
+        for (double v : desired) sb.append(',').append(v);
+        return sb.toString();
+    }
+
+    public boolean restore(String state) {
+        if (state == null) return false;
+        String[] parts = state.split(",");
+        if (parts.length != 16) return false;
+        try {
+            long restoredCount = Long.parseLong(parts[0]);
+            double[] values = new double[15];
+            for (int i = 0; i < 15; i++) values[i] = Double.parseDouble(parts[i + 1]);
+            count = restoredCount;
+            System.arraycopy(values, 0, heights, 0, 5);
+            System.arraycopy(values, 5, positions, 0, 5);
+            System.arraycopy(values, 10, desired, 0, 5);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
@@ -0,0 +1,195 @@
+package team.codeuniq.myapplication;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Process-wide counters and latency histograms for the detection pipeline.
+// Everything is lock-free and preallocated; call sites check PipelineMetrics.enabled
+// first, so a disabled registry costs one volatile read.
+public final class PipelineMetrics {
+
+    public static volatile boolean enabled = BuildConfig.DEBUG;
+
+    // Sensor path
+    public static final LongAdder sensorEvents = new LongAdder();
+    public static final Histogram sensorIntervalUs = new Histogram("sensor_interval_us");
+    public static final Histogram sensorJitterUs = new Histogram("sensor_jitter_us");
+    public static final Histogram onSensorChangedUs = new Histogram("on_sensor_changed_us");
+    public static final LongAdder detections = new LongAdder();
+    public static final LongAdder rejectedCandidates = new LongAdder();
+
+    // Backend
+    public static final Histogram firestoreWriteMs = new Histogram("firestore_write_ms");
+    public static final Histogram uploadMs = new Histogram("storage_upload_ms");
+    public static final LongAdder writeFailures = new LongAdder();
+    public static final LongAdder evictedEvents = new LongAdder(); // over the write budget
+    public static final LongAdder uploadFailures = new LongAdder();
+    public static final Gauge pendingWrites = new Gauge("pending_writes");
+    public static final Gauge pendingUploads = new Gauge("pending_uploads");
+
+    // Camera
+    public static final Histogram frameInferenceUs = new Histogram("frame_inference_us");
+    public static final LongAdder droppedFrames = new LongAdder();
+
+    // Spectral features
+    public static final Histogram spectralUs = new Histogram("spectral_features_us");
+
+    private static final Histogram[] HISTOGRAMS = {
+            sensorIntervalUs, sensorJitterUs, onSensorChangedUs,
+            firestoreWriteMs, uploadMs, frameInferenceUs, spectralUs
+    };
+    private static final Gauge[] GAUGES = {pendingWrites, pendingUploads};
+
+    // Only touched from the sensor thread
+    private static long lastSensorTimestampNs = 0;
+    private static long expectedIntervalUs = 0;
+
+    private static volatile long sessionStartMs = System.currentTimeMillis();
+
+    private PipelineMetrics() {}
+
+    // Rate and jitter from SensorEvent.timestamp - jitter is the deviation from the running mean interval
+    public static void recordSensorEvent(long timestampNs) {
+        sensorEvents.increment();
+        if (lastSensorTimestampNs != 0) {
+            long intervalUs = (timestampNs - lastSensorTimestampNs) / 1000;
+            if (intervalUs > 0) {
+                sensorIntervalUs.record(intervalUs);
+                expectedIntervalUs = expectedIntervalUs == 0
+                        ? intervalUs
+                        : expectedIntervalUs + (intervalUs - expectedIntervalUs) / 16;
+                sensorJitterUs.record(Math.abs(intervalUs - expectedIntervalUs));
+            }
+        }
+        lastSensorTimestampNs = timestampNs;
+    }
+
+    public static void reset() {
+        sensorEvents.reset();
+        detections.reset();
+        rejectedCandidates.reset();
+        writeFailures.reset();
+        evictedEvents.reset();
+        uploadFailures.reset();
+        droppedFrames.reset();
+        for (Histogram h : HISTOGRAMS) h.reset();
+        for (Gauge g : GAUGES) g.resetMax();
+        lastSensorTimestampNs = 0;
+        expectedIntervalUs = 0;
+        sessionStartMs = System.currentTimeMillis();
+    }
+
+    public static String dump() {
+        long elapsedS = Math.max(1, (System.currentTimeMillis() - sessionStartMs) / 1000);
+        StringBuilder sb = new StringBuilder();
+        sb.append("session_seconds ").append(elapsedS).append('\n');
+        sb.append("sensor_events ").append(sensorEvents.sum())
+                .append(" (").append(sensorEvents.sum() / elapsedS).append("/s)\n");
+        sb.append("detections ").append(detections.sum()).append('\n');
+        sb.append("rejected_candidates ").append(rejectedCandidates.sum()).append('\n');
+        sb.append("write_failures ").append(writeFailures.sum()).append('\n');
+        sb.append("evicted_events ").append(evictedEvents.sum()).append('\n');
+        sb.append("upload_failures ").append(uploadFailures.sum()).append('\n');
+        sb.append("dropped_frames ").append(droppedFrames.sum()).append('\n');
+        for (Gauge g : GAUGES) sb.append(g).append('\n');
+        for (Histogram h : HISTOGRAMS) sb.append(h).append('\n');
+        return sb.toString();
+    }
+
+    public static void dumpToFile(File file) throws IOException {
+        try (FileWriter writer = new FileWriter(file)) {
+            writer.write(dump());
+        }
+    }
+
+    // Power-of-two buckets: bucket i holds values in [2^(i-1), 2^i)
+    public static final class Histogram {
+        private static final int BUCKETS = 40;
+
+        private final String name;
+        private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+        private final LongAdder count = new LongAdder();
+        private final LongAdder sum = new LongAdder();
+        private final AtomicLong max = new AtomicLong();
+
+        Histogram(String name) {
+            this.name = name;
+        }
+
+        public void record(long value) {
+            if (value < 0) value = 0;
+            int bucket = Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(value));
+            buckets.incrementAndGet(bucket);
+            count.increment();
+            sum.add(value);
+            long current;
+            while (value > (current = max.get()) && !max.compareAndSet(current, value)) {
+                // retry
+            }
+        }
+
+        // Upper bound of the bucket containing the given percentile
+        public long percentile(double p) {
+            long total = count.sum();
+            if (total == 0) return 0;
+            long rank = (long) Math.ceil(total * p / 100.0);
+            long seen = 0;
+            for (int i = 0; i < BUCKETS; i++) {
+                seen += buckets.get(i);
+                if (seen >= rank) return i == 0 ? 0 : (1L << i) - 1;
+            }
+            return max.get();
+        }
+
+        void reset() {
+            for (int i = 0; i < BUCKETS; i++) buckets.set(i, 0);
+            count.reset();
+            sum.reset();
+            max.set(0);
+        }
+
+        @Override
+        public String toString() {
+            long n = count.sum();
+            return String.format("%s n=%d mean=%d p50<=%d p90<=%d p99<=%d max=%d",
+                    name, n, n == 0 ? 0 : sum.sum() / n,
+                    percentile(50), percentile(90), percentile(99), max.get());
+        }
+    }
+
+    // Current value plus high-water mark, e.g. for queue depths
+    public static final class Gauge {
+        private final String name;
+        private final AtomicLong value = new AtomicLong();
+        private final AtomicLong max = new AtomicLong();
+
+        Gauge(String name) {
+            this.name = name;
+        }
+
+        public void increment() {
+            long v = value.incrementAndGet();
+            long current;
+            while (v > (current = max.get()) && !max.compareAndSet(current, v)) {
+                // retry
+            }
+        }
+
+        public void decrement() {
+            value.decrementAndGet();
+        }
+
+        void resetMax() {
+            max.set(value.get());
+        }
+
+        @Override
+        public String toString() {
+            return name + " current=" + value.get() + " max=" + max.get();
+        }
+    }
+}
@@ -0,0 +1,169 @@
+package team.codeuniq.myapplication;
+
+import android.app.Application;
+import android.content.Context;
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.google.android.gms.location.FusedLocationProviderClient;
+import com.google.android.gms.location.LocationServices;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.storage.FirebaseStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+// Starts the app's services in parallel on background threads as soon as the
+// process is created, so activities only inflate views on the main thread.
+// Activities register with whenReady() and pick the instances up from the
+// getters once every stage has finished; the getters never block after that.
+// Getters of required services throw IllegalStateException if their stage
+// failed, and the activities handle that where they pick the services up;
+// the road network is optional and just comes back null.
+public class PotholeApp extends Application {
+
+    private static final String TAG = "PotholeApp";
+
+    private final ExecutorService initExecutor = Executors.newFixedThreadPool(3);
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());
+    private final List<Future<?>> stages = new ArrayList<>();
+    private final List<Runnable> readyCallbacks = new ArrayList<>();
+    private boolean ready = false;
+
+    private Future<FirebaseAuth> firebaseAuth;
+    private Future<FirebaseFirestore> firestore;
+    private Future<FirebaseStorage> storage;
+    private Future<FusedLocationProviderClient> locationClient;
+    private Future<MapMatcher> mapMatcher;
+    private SessionManager sessionManager;
+
+    public static PotholeApp get(Context context) {
+        return (PotholeApp) context.getApplicationContext();
+    }
+
+    @Override
+    public void onCreate() {
+        long start = SystemClock.uptimeMillis();
+        StartupTrace.begin("app_on_create");
+        super.onCreate();
+
+        // FirebaseApp itself is set up by its content provider before this runs
+        firebaseAuth = stage("firebase_auth", FirebaseAuth::getInstance);
+        firestore = stage("firestore", FirebaseFirestore::getInstance);
+        storage = stage("firebase_storage", FirebaseStorage::getInstance);
+        locationClient = stage("location_client",
+                () -> LocationServices.getFusedLocationProviderClient(this));
+        stage("detector_state", () -> {
+            DetectorConfigStore.getInstance(this);
+            ThresholdCalibrator.getInstance(this);
+            ConfidenceScorer.getInstance(this);
+            return null;
+        });
+        mapMatcher = stage("road_network", () -> MapMatcher.open(this));
+
+        // Joins the stages on a pool thread and then releases the waiting activities.
+        // Nothing is submitted after this, so the pool's threads go once it finishes.
+        initExecutor.execute(() -> {
+            for (Future<?> stage : stages) {
+                try {
+                    stage.get();
+                } catch (ExecutionException | InterruptedException e) {
+                    Log.e(TAG, "Startup stage failed", e);
+                }
+            }
+            mainHandler.post(this::onStagesDone);
+        });
+        initExecutor.shutdown();
+
+        StartupTrace.end("app_on_create", start);
+    }
+
+    private <T> Future<T> stage(String name, Callable<T> work) {
+        Future<T> future = initExecutor.submit(() -> {
+            long start = SystemClock.uptimeMillis();
+            StartupTrace.begin(name);
+            try {
+                return work.call();
+            } finally {
+                StartupTrace.end(name, start);
+            }
+        });
+        stages.add(future);
+        return future;
+    }
+
+    private void onStagesDone() {
+        List<Runnable> callbacks;
+        synchronized (readyCallbacks) {
+            ready = true;
+            callbacks = new ArrayList<>(readyCallbacks);
+            readyCallbacks.clear();
+        }
+        for (Runnable callback : callbacks) callback.run();
+    }
+
+    // Runs the callback on the main thread once all services are available
+    public void whenReady(Runnable callback) {
+        synchronized (readyCallbacks) {
+            if (!ready) {
+                readyCallbacks.add(callback);
+                return;
+            }
+        }
+        mainHandler.post(callback);
+    }
+
+    public FirebaseAuth getFirebaseAuth() {
+        return await(firebaseAuth);
+    }
+
+    public FirebaseFirestore getFirestore() {
+        return await(firestore);
+    }
+
+    public FirebaseStorage getStorage() {
+        return await(storage);
+    }
+
+    public FusedLocationProviderClient getLocationClient() {
+        return await(locationClient);
+    }
+
+    // Null when no offline road network is installed or it failed to open
+    public MapMatcher getMapMatcher() {
+        try {
+            return await(mapMatcher);
+        } catch (IllegalStateException e) {
+            Log.w(TAG, "Road network unavailable, detections won't be map-matched", e.getCause());
+            return null;
+        }
+    }
+
+    // Created on first use, after startup; lives as long as the process
+    public synchronized SessionManager getSessionManager() {
+        if (sessionManager == null) {
+            sessionManager = new SessionManager(getFirebaseAuth(), getFirestore(), getStorage(),
+                    HistoryStore.getInstance(this));
+        }
+        return sessionManager;
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Startup stage failed", e.getCause());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for startup", e);
+        }
+    }
+}
@@ -0,0 +1,170 @@
+package team.codeuniq.myapplication;
+
+// RoadSurP threshold detector over a window of Z-axis samples: a sample whose
+// |Z| crosses the dynamic threshold outside the cooldown becomes a candidate
+// with the paper's features, scored by the confidence model once the samples
+// after the peak are in. Holds no Android state so the activity and the load
+// generator run the same code; one instance per sensor stream, called from a
+// single thread.
+public class PotholeDetector {
+
+    public static final int MIN_SAMPLES = 10;
+    private static final int EXTREMA_WINDOW = 5;
+    private static final long MIN_SEPARATION_MS = 300; // one impact spans fewer samples than this
+
+    public static class Candidate {
+        public final float zt;
+        public final float zPrev;
+        public final float zNext;
+        public final long intervalSinceLastDetection;
+        public final float speed;
+        public final long timestampNs; // sensor timestamp of the peak
+        public final float threshold;
+        public final int confidence;
+        public final boolean rejected;  // below the trained model's confidence threshold
+
+        Candidate(float zt, float zPrev, float zNext, long interval, float speed, long timestampNs,
+                  float threshold, int confidence, boolean rejected) {
+            this.zt = zt;
+            this.zPrev = zPrev;
+            this.zNext = zNext;
+            this.intervalSinceLastDetection = interval;
+            this.speed = speed;
+            this.timestampNs = timestampNs;
+            this.threshold = threshold;
+            this.confidence = confidence;
+            this.rejected = rejected;
+        }
+    }
+
+    private final ConfidenceScorer scorer;
+    private final float[] features = new float[ConfidenceScorer.FEATURES];
+
+    // Ring of the last bufferSize samples; grows when the configured size does
+    private float[] samples = new float[DetectorConfig.DEFAULTS.bufferSize];
+    private int head = 0;
+    private int size = 0;
+    private long lastDetectionMs = 0;
+    private float lastMargin = 0;
+
+    // Peak waiting for the samples after it; pendingAge counts the samples added since
+    private boolean pending = false;
+    private int pendingAge;
+    private float pendingZ;
+    private float pendingThreshold;
+    private float pendingSpeed;
+    private long pendingInterval;
+    private long pendingTimestampNs;
+
+    public PotholeDetector(ConfidenceScorer scorer) {
+        this.scorer = scorer;
+    }
+
+    public void add(float z, int bufferSize) {
+        if (bufferSize > samples.length) {
+            float[] grown = new float[bufferSize];
+            for (int i = 0; i < size; i++) grown[i] = get(i);
+            samples = grown;
+            head = size % samples.length;
+        }
+        samples[head] = z;
+        head = (head + 1) % samples.length;
+        // Drops the oldest values (more than one if the buffer was shrunk)
+        size = Math.min(size + 1, bufferSize);
+        // A peak that has left the ring (checks skipped meanwhile) can't be scored any more
+        if (pending && ++pendingAge >= size) pending = false;
+    }
+
+    // i = 0 is the oldest buffered sample
+    private float get(int i) {
+        int index = head - size + i;
+        return samples[index < 0 ? index + samples.length : index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public long getLastDetectionMs() {
+        return lastDetectionMs;
+    }
+
+    // Drops the buffered samples and any pending peak; the cooldown still runs from the last detection
+    public void clear() {
+        head = 0;
+        size = 0;
+        pending = false;
+    }
+
+    // Checks the newest sample. A crossing outside the cooldown starts a pending peak, which
+    // follows any larger sample of the same impact and is scored once EXTREMA_WINDOW samples
+    // after it have arrived, so zNext comes from the road after the peak. Returns the scored
+    // candidate then, and null otherwise.
+    // Inside the cooldown a separate, stronger impact still gets through, so a weak pothole
+    // can't mask a strong one right behind it. Both are written; under a write budget the
+    // per-segment cap and the window's budget keep the stronger ones and report the rest.
+    // Rejected candidates still restart the cooldown.
+    public Candidate check(float speedKmh, long timestampNs, long nowMs, DetectorConfig config) {
+        if (size < MIN_SAMPLES) return null;
+
+        float zt = get(size - 1);
+        if (pending) {
+            if (Math.abs(zt) > Math.abs(pendingZ)) {
+                pendingZ = zt;
+                pendingTimestampNs = timestampNs;
+                pendingAge = 0;
+                lastMargin = Math.max(lastMargin, Math.abs(zt) - pendingThreshold);
+                return null;
+            }
+            return pendingAge < EXTREMA_WINDOW ? null : emit(config);
+        }
+
+        float threshold = config.dynamicThreshold(speedKmh);
+        float margin = Math.abs(zt) - threshold;
+        if (margin <= 0) return null;
+        long sinceLast = nowMs - lastDetectionMs;
+        if (sinceLast <= config.detectionCooldownMs
+                && (sinceLast < MIN_SEPARATION_MS || margin <= lastMargin)) {
+            return null;
+        }
+
+        pending = true;
+        pendingZ = zt;
+        pendingTimestampNs = timestampNs;
+        pendingAge = 0;
+        pendingThreshold = threshold;
+        pendingSpeed = speedKmh;
+        pendingInterval = sinceLast;
+        lastDetectionMs = nowMs;
+        lastMargin = margin;
+        return null;
+    }
+
+    private Candidate emit(DetectorConfig config) {
+        pending = false;
+        int peak = size - 1 - pendingAge;
+        // Extrema either side of the peak, not counting the peak itself
+        float zPrev = findLocalExtrema(peak - EXTREMA_WINDOW, peak - 1);
+        float zNext = findLocalExtrema(peak + 1, peak + EXTREMA_WINDOW);
+
+        int confidence = scorer.score(features, pendingZ, zPrev, zNext, pendingSpeed, pendingInterval, pendingThreshold);
+        boolean rejected = scorer.isTrained() && confidence < config.confidenceThreshold;
+        return new Candidate(pendingZ, zPrev, zNext, pendingInterval, pendingSpeed, pendingTimestampNs,
+                pendingThreshold, confidence, rejected);
+    }
+
+    private float findLocalExtrema(int start, int end) {
+        start = Math.max(start, 0);
+        end = Math.min(end, size - 1);
+        if (start > end) return 0f;
+
+        float extrema = get(start);
+        for (int i = start; i <= end; i++) {
+            float value = get(i);
+            if (Math.abs(value) > Math.abs(extrema)) {
+                extrema = value;
+            }
+        }
+        return extrema;
+    }
+}
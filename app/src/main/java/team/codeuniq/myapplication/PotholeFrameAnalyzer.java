@@ -0,0 +1,285 @@
+package team.codeuniq.myapplication;
+
+import android.content.Context;
+import android.content.res.AssetFileDescriptor;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.camera.core.ImageAnalysis;
+import androidx.camera.core.ImageProxy;
+
+import org.tensorflow.lite.DataType;
+import org.tensorflow.lite.Interpreter;
+import org.tensorflow.lite.Tensor;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+
+// Runs the pothole classifier (quantized or float32) on downscaled camera frames.
+// The camera delivers frames with STRATEGY_KEEP_ONLY_LATEST, so a slow inference
+// simply makes the camera skip frames; we count those skips from the frame timestamps.
+public class PotholeFrameAnalyzer implements ImageAnalysis.Analyzer {
+
+    private static final String TAG = "PotholeFrameAnalyzer";
+    static final String MODEL_ASSET = "pothole_classifier.tflite";
+
+    private static final int POTHOLE_CLASS_INDEX = 1; // labels: [road, pothole]
+    private static final long CONFIDENCE_MAX_AGE_MS = 1500;
+    private static final int REPORT_EVERY_FRAMES = 100;
+
+    private Interpreter interpreter;
+    private int inputWidth, inputHeight, inputChannels;
+    private boolean signedInput;
+    private boolean floatInput;
+
+    // Reused between frames - nothing is allocated per frame
+    private ByteBuffer inputBuffer;
+    private ByteBuffer outputBuffer;
+    private int outputClasses;
+    private float outputScale;
+    private int outputZeroPoint;
+    private boolean signedOutput;
+    private boolean floatOutput;
+
+    // Stats (written on the analysis thread, read from the UI thread)
+    private volatile int latestConfidence = -1;
+    private volatile long latestConfidenceTime = 0;
+    private volatile long lastInferenceNanos = 0;
+    private volatile float avgInferenceMs = 0f;
+    private volatile long analyzedFrames = 0;
+    private volatile long droppedFrames = 0;
+    private long lastFrameTimestampNs = 0;
+    private long frameIntervalNs = 0;
+
+    public PotholeFrameAnalyzer(Context context) {
+        try {
+            Interpreter.Options options = new Interpreter.Options();
+            options.setNumThreads(2);
+            interpreter = new Interpreter(loadModel(context), options);
+
+            Tensor input = interpreter.getInputTensor(0);
+            int[] shape = input.shape(); // [1, height, width, channels]
+            inputHeight = shape[1];
+            inputWidth = shape[2];
+            inputChannels = shape.length > 3 ? shape[3] : 1;
+            checkSupported(input.dataType());
+            signedInput = input.dataType() == DataType.INT8;
+            floatInput = input.dataType() == DataType.FLOAT32;
+            inputBuffer = ByteBuffer.allocateDirect(input.numBytes());
+            inputBuffer.order(ByteOrder.nativeOrder());
+
+            Tensor output = interpreter.getOutputTensor(0);
+            int[] outShape = output.shape();
+            outputClasses = outShape[outShape.length - 1];
+            outputScale = output.quantizationParams().getScale();
+            outputZeroPoint = output.quantizationParams().getZeroPoint();
+            checkSupported(output.dataType());
+            signedOutput = output.dataType() == DataType.INT8;
+            floatOutput = output.dataType() == DataType.FLOAT32;
+            outputBuffer = ByteBuffer.allocateDirect(output.numBytes());
+            outputBuffer.order(ByteOrder.nativeOrder());
+
+            Log.d(TAG, "Classifier loaded - input " + inputWidth + "x" + inputHeight + "x" + inputChannels
+                    + " " + input.dataType());
+        } catch (IOException | IllegalArgumentException e) {
+            Log.w(TAG, "Frame classifier unavailable: " + e.getMessage());
+            interpreter = null;
+        }
+    }
+
+    private static void checkSupported(DataType type) {
+        if (type != DataType.UINT8 && type != DataType.INT8 && type != DataType.FLOAT32) {
+            throw new IllegalArgumentException("Unsupported tensor type " + type);
+        }
+    }
+
+    private static MappedByteBuffer loadModel(Context context) throws IOException {
+        try (AssetFileDescriptor fd = context.getAssets().openFd(MODEL_ASSET);
+             FileInputStream stream = new FileInputStream(fd.getFileDescriptor())) {
+            FileChannel channel = stream.getChannel();
+            return channel.map(FileChannel.MapMode.READ_ONLY, fd.getStartOffset(), fd.getDeclaredLength());
+        }
+    }
+
+    public boolean isAvailable() {
+        return interpreter != null;
+    }
+
+    @Override
+    public void analyze(@NonNull ImageProxy image) {
+        try {
+            classify(image);
+        } finally {
+            image.close();
+        }
+    }
+
+    // Same as analyze() but leaves the frame open so other consumers can read it
+    public void classify(@NonNull ImageProxy image) {
+        trackDroppedFrames(image.getImageInfo().getTimestamp());
+        if (interpreter == null) return;
+
+        fillInputBuffer(image);
+
+        long start = System.nanoTime();
+        outputBuffer.rewind();
+        interpreter.run(inputBuffer, outputBuffer);
+        long elapsed = System.nanoTime() - start;
+
+        latestConfidence = readPotholeConfidence();
+        latestConfidenceTime = System.currentTimeMillis();
+        lastInferenceNanos = elapsed;
+        avgInferenceMs = avgInferenceMs == 0f
+                ? elapsed / 1_000_000f
+                : avgInferenceMs * 0.9f + (elapsed / 1_000_000f) * 0.1f;
+        analyzedFrames++;
+        if (PipelineMetrics.enabled) PipelineMetrics.frameInferenceUs.record(elapsed / 1000);
+
+        if (analyzedFrames % REPORT_EVERY_FRAMES == 0) {
+            Log.d(TAG, String.format("Frame analysis - last: %.1f ms, avg: %.1f ms, analyzed: %d, dropped: %d",
+                    elapsed / 1_000_000f, avgInferenceMs, analyzedFrames, droppedFrames));
+        }
+    }
+
+    // Call on the analysis thread whenever classification pauses. The frames that
+    // go by unclassified (or the camera being unbound) are not drops, and the
+    // camera may come back at a different frame rate.
+    public void resetFrameTracking() {
+        lastFrameTimestampNs = 0;
+        frameIntervalNs = 0;
+    }
+
+    // Frames arrive at a steady interval; any gap larger than that means the
+    // camera discarded frames while we were still busy with the previous one.
+    private void trackDroppedFrames(long timestampNs) {
+        if (lastFrameTimestampNs != 0) {
+            long gap = timestampNs - lastFrameTimestampNs;
+            if (gap > 0) {
+                if (frameIntervalNs == 0 || gap < frameIntervalNs) {
+                    frameIntervalNs = gap;
+                }
+                long skipped = Math.round((double) gap / frameIntervalNs) - 1;
+                if (skipped > 0) {
+                    droppedFrames += skipped;
+                    if (PipelineMetrics.enabled) PipelineMetrics.droppedFrames.add(skipped);
+                }
+            }
+        }
+        lastFrameTimestampNs = timestampNs;
+    }
+
+    // Nearest-neighbour downscale of the YUV_420_888 frame straight into the model
+    // input, rotated upright. Grayscale models only read the Y plane.
+    private void fillInputBuffer(ImageProxy image) {
+        ImageProxy.PlaneProxy[] planes = image.getPlanes();
+        ByteBuffer yBuffer = planes[0].getBuffer();
+        int yRowStride = planes[0].getRowStride();
+        int yPixelStride = planes[0].getPixelStride();
+        ByteBuffer uBuffer = planes[1].getBuffer();
+        ByteBuffer vBuffer = planes[2].getBuffer();
+        int uvRowStride = planes[1].getRowStride();
+        int uvPixelStride = planes[1].getPixelStride();
+
+        int rotation = image.getImageInfo().getRotationDegrees();
+        int srcWidth = image.getWidth();
+        int srcHeight = image.getHeight();
+        boolean swap = rotation == 90 || rotation == 270;
+        int uprightWidth = swap ? srcHeight : srcWidth;
+        int uprightHeight = swap ? srcWidth : srcHeight;
+        int offset = signedInput ? 128 : 0;
+
+        inputBuffer.rewind();
+        for (int oy = 0; oy < inputHeight; oy++) {
+            int uy = oy * uprightHeight / inputHeight;
+            for (int ox = 0; ox < inputWidth; ox++) {
+                int ux = ox * uprightWidth / inputWidth;
+
+                int sx, sy;
+                switch (rotation) {
+                    case 90: sx = uy; sy = srcHeight - 1 - ux; break;
+                    case 180: sx = srcWidth - 1 - ux; sy = srcHeight - 1 - uy; break;
+                    case 270: sx = srcWidth - 1 - uy; sy = ux; break;
+                    default: sx = ux; sy = uy; break;
+                }
+
+                int y = yBuffer.get(sy * yRowStride + sx * yPixelStride) & 0xFF;
+                if (inputChannels == 1) {
+                    putChannel(y, offset);
+                    continue;
+                }
+
+                int uvIndex = (sy >> 1) * uvRowStride + (sx >> 1) * uvPixelStride;
+                int u = (uBuffer.get(uvIndex) & 0xFF) - 128;
+                int v = (vBuffer.get(uvIndex) & 0xFF) - 128;
+
+                // BT.601 in fixed point (x1024)
+                int r = clamp(y + ((1436 * v) >> 10));
+                int g = clamp(y - ((352 * u + 731 * v) >> 10));
+                int b = clamp(y + ((1815 * u) >> 10));
+                putChannel(r, offset);
+                putChannel(g, offset);
+                putChannel(b, offset);
+            }
+        }
+        inputBuffer.rewind();
+    }
+
+    // Float models take [0, 1]; quantized ones the raw byte, shifted for INT8
+    private void putChannel(int value, int offset) {
+        if (floatInput) {
+            inputBuffer.putFloat(value / 255f);
+        } else {
+            inputBuffer.put((byte) (value - offset));
+        }
+    }
+
+    private static int clamp(int value) {
+        return value < 0 ? 0 : (value > 255 ? 255 : value);
+    }
+
+    private int readPotholeConfidence() {
+        int index = outputClasses > POTHOLE_CLASS_INDEX ? POTHOLE_CLASS_INDEX : 0;
+        if (floatOutput) {
+            float probability = outputBuffer.getFloat(index * 4);
+            return Math.max(0, Math.min(100, Math.round(probability * 100f)));
+        }
+        int raw = outputBuffer.get(index);
+        int quantized = signedOutput ? raw : raw & 0xFF;
+        float probability = (quantized - outputZeroPoint) * outputScale;
+        return Math.max(0, Math.min(100, Math.round(probability * 100f)));
+    }
+
+    // Confidence (0-100) of the most recent frame, or null if there is no recent result
+    public Integer getRecentConfidence() {
+        if (latestConfidence < 0) return null;
+        if (System.currentTimeMillis() - latestConfidenceTime > CONFIDENCE_MAX_AGE_MS) return null;
+        return latestConfidence;
+    }
+
+    public float getLastInferenceMs() {
+        return lastInferenceNanos / 1_000_000f;
+    }
+
+    public float getAverageInferenceMs() {
+        return avgInferenceMs;
+    }
+
+    public long getAnalyzedFrames() {
+        return analyzedFrames;
+    }
+
+    public long getDroppedFrames() {
+        return droppedFrames;
+    }
+
+    public void close() {
+        if (interpreter != null) {
+            interpreter.close();
+            interpreter = null;
+        }
+    }
+}
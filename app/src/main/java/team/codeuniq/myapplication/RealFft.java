@@ -0,0 +1,93 @@
+package team.codeuniq.myapplication;
+
+// Real-input FFT of a fixed power-of-two size N: the N real samples are packed
+// as N/2 complex values (even samples real, odd imaginary), run through a
+// radix-2 complex FFT of size N/2, and the two interleaved half spectra are
+// split apart again. Half the butterflies of a full complex transform.
+// Tables are precomputed and the transform works in place on caller-owned
+// arrays, so it allocates nothing.
+public class RealFft {
+
+    private final int size;
+    private final int half;
+    private final float[] cos; // e^(-2*pi*i*k/N) for k = 0..N/2
+    private final float[] sin;
+    private final int[] reversed; // bit reversal over N/2 points
+
+    public RealFft(int size) {
+        if (Integer.bitCount(size) != 1 || size < 4) {
+            throw new IllegalArgumentException("FFT size must be a power of two, at least 4");
+        }
+        this.size = size;
+        half = size / 2;
+        cos = new float[half + 1];
+        sin = new float[half + 1];
+        for (int k = 0; k <= half; k++) {
+            double angle = -2 * Math.PI * k / size;
+            cos[k] = (float) Math.cos(angle);
+            sin[k] = (float) Math.sin(angle);
+        }
+
+        reversed = new int[half];
+        int bits = Integer.numberOfTrailingZeros(half);
+        for (int i = 0; i < half; i++) {
+            reversed[i] = bits == 0 ? 0 : Integer.reverse(i) >>> (32 - bits);
+        }
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    // Transforms the real signal in re (size samples; overwritten, im is scratch of at
+    // least size/2) and writes the power of bins 0..size/2 into power.
+    public void powerSpectrum(float[] re, float[] im, float[] power) {
+        // z[k] = x[2k] + i x[2k+1]; compacting re forwards never overwrites an unread sample
+        for (int k = 0; k < half; k++) im[k] = re[2 * k + 1];
+        for (int k = 1; k < half; k++) re[k] = re[2 * k];
+        transform(re, im);
+
+        // X[k] = E[k] + W^k O[k] with E = (Z[k] + conj Z[M-k]) / 2 and O = (Z[k] - conj Z[M-k]) / 2i
+        for (int k = 0; k <= half; k++) {
+            int a = k == half ? 0 : k;
+            int b = k == 0 ? 0 : half - k;
+            float er = (re[a] + re[b]) * 0.5f;
+            float ei = (im[a] - im[b]) * 0.5f;
+            float or = (im[a] + im[b]) * 0.5f;
+            float oi = (re[b] - re[a]) * 0.5f;
+            float xr = er + cos[k] * or - sin[k] * oi;
+            float xi = ei + cos[k] * oi + sin[k] * or;
+            power[k] = xr * xr + xi * xi;
+        }
+    }
+
+    // Complex radix-2 FFT over the first size/2 entries of re/im
+    private void transform(float[] re, float[] im) {
+        for (int i = 0; i < half; i++) {
+            int j = reversed[i];
+            if (j > i) {
+                float t = re[i]; re[i] = re[j]; re[j] = t;
+                t = im[i]; im[i] = im[j]; im[j] = t;
+            }
+        }
+
+        for (int len = 2; len <= half; len <<= 1) {
+            int span = len >> 1;
+            int step = 2 * (half / len); // twiddles of size N/2 are every other entry of the N table
+            for (int start = 0; start < half; start += len) {
+                for (int k = 0; k < span; k++) {
+                    float wr = cos[k * step];
+                    float wi = sin[k * step];
+                    int a = start + k;
+                    int b = a + span;
+                    float xr = re[b] * wr - im[b] * wi;
+                    float xi = re[b] * wi + im[b] * wr;
+                    re[b] = re[a] - xr;
+                    im[b] = im[a] - xi;
+                    re[a] += xr;
+                    im[a] += xi;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package team.codeuniq.myapplication;
+
+import java.util.Arrays;
+
+// Continuous road-roughness profile of a trip, one value per SEGMENT_M of road.
+// Per accelerometer sample it projects the reading on SpeedEstimator's gravity
+// estimate and accumulates the vertical sum, sum of squares and distance
+// (speed × dt); when a segment is complete its RMS vertical acceleration is
+// normalised by speed into an IRI-like index and the segment end point is
+// appended to an encoded polyline. Working state is a handful of scalars; the
+// output grows by about 5 bytes per segment and is handed out in chunks.
+//
+// Encoding follows Google's polyline algorithm with a third dimension: each
+// point is (lat × 1e5, lon × 1e5, index × 10), all delta-encoded against the
+// previous point of the chunk. The first point is where the chunk's first
+// segment starts (index 0); every later point is the end of a segment and
+// carries its index. decode() reverses it.
+public class RoughnessProfile {
+
+    public static final float SEGMENT_M = 100f;
+    public static final float INDEX_RESOLUTION = 0.1f;
+    public static final int MAX_SEGMENTS_PER_CHUNK = 200;  // ~20 km, ~1 KB
+
+    private static final float MIN_SPEED_MPS = 3f;         // below this the vehicle is crawling
+    private static final double POSITION_SCALE = 1e5;
+
+    public static class Chunk {
+        public final String polyline;
+        public final int segmentCount;
+        public final float meanIndex;
+        public final float maxIndex;
+        public final long startElapsedNs;
+        public final long endElapsedNs;
+
+        Chunk(String polyline, int segmentCount, float meanIndex, float maxIndex,
+              long startElapsedNs, long endElapsedNs) {
+            this.polyline = polyline;
+            this.segmentCount = segmentCount;
+            this.meanIndex = meanIndex;
+            this.maxIndex = maxIndex;
+            this.startElapsedNs = startElapsedNs;
+            this.endElapsedNs = endElapsedNs;
+        }
+    }
+
+    private final LocationTrack locationTrack;
+    private final SpeedEstimator speedEstimator;
+    private final double[] position = new double[3];
+    private final float[] gravity = new float[3];
+    private long lastTimestampNs = 0;
+
+    // Current segment
+    private double sum, sumSquares;
+    private int samples;
+    private float distanceM;
+    private double speedSum;
+    private long segmentStartNs;
+
+    // Current chunk
+    private final StringBuilder encoded = new StringBuilder();
+    private int segmentCount;
+    private long prevLat, prevLon, prevIndex;
+    private double indexSum;
+    private float maxIndex;
+    private long chunkStartNs, chunkEndNs;
+
+    // speedEstimator must see every sample before this profile does
+    public RoughnessProfile(LocationTrack locationTrack, SpeedEstimator speedEstimator) {
+        this.locationTrack = locationTrack;
+        this.speedEstimator = speedEstimator;
+    }
+
+    public void reset() {
+        lastTimestampNs = 0;
+        resetSegment();
+        resetChunk();
+    }
+
+    // Returns true when the current chunk is full and should be taken
+    public boolean addAccelerometer(float x, float y, float z, long timestampNs, float speedKmh) {
+        long dtNs = lastTimestampNs == 0 ? 0 : timestampNs - lastTimestampNs;
+        lastTimestampNs = timestampNs;
+
+        float speedMps = speedKmh / 3.6f;
+        if (speedMps < MIN_SPEED_MPS || dtNs <= 0 || dtNs > 1_000_000_000L) return false;
+
+        if (!speedEstimator.getGravity(gravity)) return false;
+        float gX = gravity[0], gY = gravity[1], gZ = gravity[2];
+        float gNorm = (float) Math.sqrt(gX * gX + gY * gY + gZ * gZ);
+        if (gNorm < 1f) return false;
+        float vertical = (x * gX + y * gY + z * gZ) / gNorm - gNorm;
+
+        if (samples == 0) segmentStartNs = timestampNs;
+        sum += vertical;
+        sumSquares += (double) vertical * vertical;
+        speedSum += speedMps;
+        samples++;
+        distanceM += speedMps * dtNs / 1e9f;
+
+        if (distanceM < SEGMENT_M) return false;
+        closeSegment(timestampNs);
+        return segmentCount >= MAX_SEGMENTS_PER_CHUNK;
+    }
+
+    private void closeSegment(long timestampNs) {
+        double mean = sum / samples;
+        double rms = Math.sqrt(Math.max(0, sumSquares / samples - mean * mean));
+        double meanSpeed = speedSum / samples;
+        float index = (float) (100.0 * rms / Math.max(MIN_SPEED_MPS, meanSpeed));
+        long startNs = segmentStartNs;
+        resetSegment();
+
+        // Segments without a usable position are dropped rather than misplaced
+        if (segmentCount == 0) {
+            if (locationTrack.positionAt(startNs, position) == LocationTrack.METHOD_NONE) return;
+            long startLat = Math.round(position[0] * POSITION_SCALE);
+            long startLon = Math.round(position[1] * POSITION_SCALE);
+            if (locationTrack.positionAt(timestampNs, position) == LocationTrack.METHOD_NONE) return;
+            chunkStartNs = startNs;
+            prevLat = prevLon = prevIndex = 0;
+            appendPoint(startLat, startLon, 0);
+        } else if (locationTrack.positionAt(timestampNs, position) == LocationTrack.METHOD_NONE) {
+            return;
+        }
+        appendPoint(Math.round(position[0] * POSITION_SCALE), Math.round(position[1] * POSITION_SCALE),
+                Math.round(index / INDEX_RESOLUTION));
+
+        segmentCount++;
+        indexSum += index;
+        maxIndex = Math.max(maxIndex, index);
+        chunkEndNs = timestampNs;
+    }
+
+    private void appendPoint(long lat, long lon, long quantisedIndex) {
+        encodeSigned(lat - prevLat, encoded);
+        encodeSigned(lon - prevLon, encoded);
+        encodeSigned(quantisedIndex - prevIndex, encoded);
+        prevLat = lat;
+        prevLon = lon;
+        prevIndex = quantisedIndex;
+    }
+
+    public boolean hasSegments() {
+        return segmentCount > 0;
+    }
+
+    // Hands out the encoded segments collected so far and starts a new chunk
+    public Chunk takeChunk() {
+        if (segmentCount == 0) return null;
+        Chunk chunk = new Chunk(encoded.toString(), segmentCount, (float) (indexSum / segmentCount),
+                maxIndex, chunkStartNs, chunkEndNs);
+        resetChunk();
+        return chunk;
+    }
+
+    private void resetSegment() {
+        sum = 0;
+        sumSquares = 0;
+        samples = 0;
+        distanceM = 0;
+        speedSum = 0;
+    }
+
+    private void resetChunk() {
+        encoded.setLength(0);
+        segmentCount = 0;
+        indexSum = 0;
+        maxIndex = 0f;
+    }
+
+    static void encodeSigned(long value, StringBuilder out) {
+        long v = value < 0 ? ~(value << 1) : value << 1;
+        while (v >= 0x20) {
+            out.append((char) ((0x20 | (v & 0x1f)) + 63));
+            v >>= 5;
+        }
+        out.append((char) (v + 63));
+    }
+
+    // Points of an encoded chunk as {lat, lon, index} triples: the start of the
+    // first segment (index 0), then the end of every segment
+    public static double[] decode(String polyline) {
+        double[] points = new double[16];
+        int n = 0;
+        long[] value = new long[3];
+        int[] pos = {0};
+        while (pos[0] < polyline.length()) {
+            if (n + 3 > points.length) points = Arrays.copyOf(points, points.length * 2);
+            for (int d = 0; d < 3; d++) value[d] += decodeSigned(polyline, pos);
+            points[n++] = value[0] / POSITION_SCALE;
+            points[n++] = value[1] / POSITION_SCALE;
+            points[n++] = value[2] * INDEX_RESOLUTION;
+        }
+        return Arrays.copyOf(points, n);
+    }
+
+    private static long decodeSigned(String in, int[] pos) {
+        long v = 0;
+        int shift = 0;
+        int b;
+        do {
+            if (pos[0] >= in.length()) throw new IllegalArgumentException("Truncated polyline");
+            b = in.charAt(pos[0]++) - 63;
+            v |= (long) (b & 0x1f) << shift;
+            shift += 5;
+        } while (b >= 0x20);
+        return (v & 1) != 0 ? ~(v >> 1) : v >> 1;
+    }
+}
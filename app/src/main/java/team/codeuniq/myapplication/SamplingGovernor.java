@@ -0,0 +1,131 @@
+package team.codeuniq.myapplication;
+
+import android.hardware.SensorManager;
+import android.util.Log;
+
+// Picks the sensor sampling rate from the fused speed. Detection only runs above
+// the configured speed threshold, so there is no point sampling at full rate in
+// traffic jams or at stops; after a sustained stop the accelerometer is suspended
+// entirely and a significant-motion trigger (or a moving GPS fix) wakes it up again.
+// DRIVING is the fastest mode: the detector's sample-count windows
+// (config.bufferSize, the extrema window) are tuned for ~50 Hz.
+// Every transition is logged together with the time spent in the previous mode.
+public class SamplingGovernor {
+
+    private static final String TAG = "SamplingGovernor";
+
+    public enum Mode {
+        STATIONARY(0, 5000),                      // accelerometer suspended, slow GPS
+        SLOW(50_000, 1000),                       // 20 Hz - keeps the speed estimate alive
+        DRIVING(SensorManager.SENSOR_DELAY_GAME, 1000); // ~50 Hz, the rate detection is tuned for
+
+        public final int samplingPeriodUs;
+        public final long locationIntervalMs;
+
+        Mode(int samplingPeriodUs, long locationIntervalMs) {
+            this.samplingPeriodUs = samplingPeriodUs;
+            this.locationIntervalMs = locationIntervalMs;
+        }
+    }
+
+    public interface Listener {
+        void onModeChanged(Mode previous, Mode current);
+    }
+
+    private static final float STATIONARY_SPEED_KMH = 3f;
+    private static final long STATIONARY_AFTER_MS = 30_000;
+    private static final float WAKE_SPEED_KMH = 5f;
+    private static final float HYSTERESIS_KMH = 2f;
+    private static final long MIN_DWELL_MS = 3000;
+
+    private final Listener listener;
+    private Mode mode = Mode.DRIVING;
+    private long modeSinceMs;
+    private long slowSinceMs = -1; // start of the current run below STATIONARY_SPEED_KMH
+    private final long[] timeInModeMs = new long[Mode.values().length];
+    private int transitions = 0;
+
+    public SamplingGovernor(Listener listener) {
+        this.listener = listener;
+    }
+
+    public void start(long nowMs) {
+        mode = Mode.DRIVING;
+        modeSinceMs = nowMs;
+        slowSinceMs = -1;
+        transitions = 0;
+        for (int i = 0; i < timeInModeMs.length; i++) timeInModeMs[i] = 0;
+        Log.i(TAG, "Sampling governor started in " + mode);
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    // Called on every accelerometer sample and every fix - cheap unless the mode changes.
+    // drivingSpeedKmh is DetectorConfig.speedThreshold, the speed detection starts at.
+    public void update(float speedKmh, float drivingSpeedKmh, long nowMs) {
+        if (speedKmh < STATIONARY_SPEED_KMH) {
+            if (slowSinceMs < 0) slowSinceMs = nowMs;
+        } else {
+            slowSinceMs = -1;
+        }
+
+        if (mode == Mode.STATIONARY) {
+            if (speedKmh > WAKE_SPEED_KMH) transition(Mode.SLOW, nowMs, "GPS speed");
+            return;
+        }
+        if (nowMs - modeSinceMs < MIN_DWELL_MS) return;
+
+        Mode target = mode;
+        switch (mode) {
+            case SLOW:
+                if (speedKmh > drivingSpeedKmh + HYSTERESIS_KMH) target = Mode.DRIVING;
+                break;
+            case DRIVING:
+                if (speedKmh < drivingSpeedKmh - HYSTERESIS_KMH) target = Mode.SLOW;
+                break;
+            default:
+                break;
+        }
+        if (slowSinceMs >= 0 && nowMs - slowSinceMs >= STATIONARY_AFTER_MS) {
+            target = Mode.STATIONARY;
+        }
+
+        if (target != mode) {
+            transition(target, nowMs, String.format("%.1f km/h", speedKmh));
+        }
+    }
+
+    // Significant-motion trigger fired while the accelerometer was suspended
+    public void onSignificantMotion(long nowMs) {
+        if (mode == Mode.STATIONARY) {
+            slowSinceMs = -1;
+            transition(Mode.SLOW, nowMs, "significant motion");
+        }
+    }
+
+    private void transition(Mode target, long nowMs, String reason) {
+        Mode previous = mode;
+        long spent = nowMs - modeSinceMs;
+        timeInModeMs[previous.ordinal()] += spent;
+        mode = target;
+        modeSinceMs = nowMs;
+        transitions++;
+
+        Log.i(TAG, "Sampling " + previous + " -> " + target + " (" + reason + ") after "
+                + spent / 1000 + " s in " + previous);
+        listener.onModeChanged(previous, target);
+    }
+
+    // Time spent per mode for the session, e.g. "STATIONARY=120s SLOW=30s ..."
+    public String summary(long nowMs) {
+        StringBuilder sb = new StringBuilder();
+        for (Mode m : Mode.values()) {
+            long ms = timeInModeMs[m.ordinal()] + (m == mode ? nowMs - modeSinceMs : 0);
+            sb.append(m).append('=').append(ms / 1000).append("s ");
+        }
+        sb.append("transitions=").append(transitions);
+        return sb.toString();
+    }
+}
@@ -0,0 +1,169 @@
+package team.codeuniq.myapplication;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+
+import com.google.android.gms.tasks.Task;
+import com.google.firebase.auth.FirebaseAuth;
+import com.google.firebase.auth.FirebaseUser;
+import com.google.firebase.firestore.DocumentSnapshot;
+import com.google.firebase.firestore.FieldValue;
+import com.google.firebase.firestore.FirebaseFirestore;
+import com.google.firebase.storage.FirebaseStorage;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+// Signed-in session for the whole process, owned by PotholeApp so activities
+// share it instead of rebuilding it. Login calls warmUp() while the user is
+// still typing or authentication is in flight, so the Firestore client and
+// its local cache are up before the first write. Once a user is signed in
+// (tracked with an auth listener, so cold starts are covered too) their
+// profile is fetched from `users` and cached for MainActivity, and the
+// Storage connection is opened by listing their own folder. Profile writes go
+// through the same EventWriter as detections: Firestore queues them locally
+// at once, so a write issued just before navigating away is never lost.
+public class SessionManager implements FirebaseAuth.AuthStateListener {
+
+    private static final String TAG = "SessionManager";
+
+    private final FirebaseAuth auth;
+    private final FirebaseFirestore firestore;
+    private final FirebaseStorage storage;
+    private final EventWriter eventWriter;
+
+    private volatile FirebaseUser user;
+    private volatile Map<String, Object> profile;
+    private volatile Task<DocumentSnapshot> profileFetch;
+    private boolean warmedUp = false;
+    private boolean restored = false;
+
+    SessionManager(FirebaseAuth auth, FirebaseFirestore firestore, FirebaseStorage storage,
+                   HistoryStore historyStore) {
+        this.auth = auth;
+        this.firestore = firestore;
+        this.storage = storage;
+        this.eventWriter = new EventWriter(new FirestoreEventSink(firestore), historyStore, true);
+        // The listener's first call comes later on the main thread; start on the current user now
+        onAuthStateChanged(auth);
+        auth.addAuthStateListener(this);
+    }
+
+    public FirebaseAuth getAuth() {
+        return auth;
+    }
+
+    public FirebaseFirestore getFirestore() {
+        return firestore;
+    }
+
+    public FirebaseStorage getStorage() {
+        return storage;
+    }
+
+    public EventWriter getEventWriter() {
+        return eventWriter;
+    }
+
+    public FirebaseUser getUser() {
+        FirebaseUser current = user;
+        // Signed in moments ago and the listener hasn't run yet
+        return current != null ? current : auth.getCurrentUser();
+    }
+
+    // Null until the prefetch completes, or if the user has no profile document
+    public Map<String, Object> getProfile() {
+        return profile;
+    }
+
+    // Main thread. Hands over the cached profile, or waits on the prefetch already
+    // in flight instead of fetching again; null when the user has no profile.
+    public void loadProfile(Consumer<Map<String, Object>> callback) {
+        Map<String, Object> cached = profile;
+        Task<DocumentSnapshot> fetch = profileFetch;
+        if (cached != null || fetch == null) {
+            callback.accept(cached);
+            return;
+        }
+        fetch.addOnCompleteListener(task -> callback.accept(profile));
+    }
+
+    // Sets up the backend clients ahead of the first request; safe to call repeatedly
+    public synchronized void warmUp() {
+        if (warmedUp) return;
+        warmedUp = true;
+
+        // Opens the local cache and starts the client now instead of on the first write
+        firestore.enableNetwork()
+                .addOnFailureListener(e -> Log.w(TAG, "Firestore warm-up failed", e));
+    }
+
+    @Override
+    public void onAuthStateChanged(@NonNull FirebaseAuth firebaseAuth) {
+        FirebaseUser current = firebaseAuth.getCurrentUser();
+        FirebaseUser previous = user;
+        if (current != null && previous != null && current.getUid().equals(previous.getUid())) return;
+
+        user = current;
+        profile = null;
+        profileFetch = null;
+        if (current != null) {
+            warmUp();
+            restorePending();
+            prefetchProfile(current.getUid());
+            warmStorage(current.getUid());
+        }
+    }
+
+    private void prefetchProfile(String uid) {
+        profileFetch = firestore.collection("users").document(uid).get()
+                .addOnSuccessListener(snapshot -> {
+                    FirebaseUser current = user;
+                    if (current == null || !current.getUid().equals(uid)) return;
+                    // A profile just created here may not have reached the server yet
+                    if (snapshot.exists()) profile = snapshot.getData();
+                    Log.d(TAG, "Profile prefetched for " + uid);
+                })
+                .addOnFailureListener(e -> Log.w(TAG, "Profile prefetch failed", e));
+    }
+
+    // Uploads go under the user's folder, so listing it is allowed and succeeds even when it is empty
+    private void warmStorage(String uid) {
+        storage.getReference().child(uid).list(1)
+                .addOnSuccessListener(result -> Log.d(TAG, "Storage connection warmed"))
+                .addOnFailureListener(e -> Log.w(TAG, "Storage warm-up failed", e));
+    }
+
+    // Events a previous process left waiting for their budget window; the backend
+    // refuses writes before sign-in, so they go out with the first signed-in user
+    private synchronized void restorePending() {
+        if (restored) return;
+        restored = true;
+        eventWriter.restorePending();
+    }
+
+    // Registration: queued before the activity navigates away
+    public void createProfile(String uid, String name, String email) {
+        Map<String, Object> userMap = new HashMap<>();
+        userMap.put("name", name);
+        userMap.put("email", email);
+        userMap.put("role", "user"); // default role
+        userMap.put("createdAt", FieldValue.serverTimestamp());
+        userMap.put("lastActive", FieldValue.serverTimestamp());
+        userMap.put("isActive", true);
+
+        profile = userMap;
+        eventWriter.saveProfile(uid, userMap);
+    }
+
+    public void signOut() {
+        // Queued detections belong to this user; write them before the session ends
+        eventWriter.flushAll();
+        auth.signOut();
+        user = null;
+        profile = null;
+        profileFetch = null;
+    }
+}
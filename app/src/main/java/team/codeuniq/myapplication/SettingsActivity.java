@@ -0,0 +1,118 @@
+package team.codeuniq.myapplication;
+
+import android.os.Bundle;
+import android.widget.Button;
+import android.widget.CheckBox;
+import android.widget.EditText;
+import android.widget.TextView;
+import android.widget.Toast;
+
+import androidx.appcompat.app.AppCompatActivity;
+
+// Edits the detector configuration. Saving publishes a new snapshot that a
+// running detection session picks up on its next sensor sample.
+public class SettingsActivity extends AppCompatActivity {
+
+    private EditText baseThresholdEditText, speedScalingEditText, speedOffsetEditText;
+    private EditText bufferSizeEditText, cooldownEditText, minSpeedEditText;
+    private EditText signaturePreEditText, signaturePostEditText, confidenceEditText;
+    private EditText writeBudgetEditText, budgetWindowEditText;
+    private CheckBox autoCalibrateCheckBox;
+    private TextView configVersionText, calibrationText;
+    private Button saveButton, reloadButton, resetButton;
+
+    private DetectorConfigStore configStore;
+
+    @Override
+    protected void onCreate(Bundle savedInstanceState) {
+        super.onCreate(savedInstanceState);
+        setContentView(R.layout.activity_settings);
+
+        configStore = DetectorConfigStore.getInstance(this);
+
+        initializeViews();
+        setupEventListeners();
+        showConfig(configStore.get());
+    }
+
+    private void initializeViews() {
+        baseThresholdEditText = findViewById(R.id.baseThresholdEditText);
+        speedScalingEditText = findViewById(R.id.speedScalingEditText);
+        speedOffsetEditText = findViewById(R.id.speedOffsetEditText);
+        bufferSizeEditText = findViewById(R.id.bufferSizeEditText);
+        cooldownEditText = findViewById(R.id.cooldownEditText);
+        minSpeedEditText = findViewById(R.id.minSpeedEditText);
+        signaturePreEditText = findViewById(R.id.signaturePreEditText);
+        signaturePostEditText = findViewById(R.id.signaturePostEditText);
+        confidenceEditText = findViewById(R.id.confidenceEditText);
+        writeBudgetEditText = findViewById(R.id.writeBudgetEditText);
+        budgetWindowEditText = findViewById(R.id.budgetWindowEditText);
+        autoCalibrateCheckBox = findViewById(R.id.autoCalibrateCheckBox);
+        configVersionText = findViewById(R.id.configVersionText);
+        calibrationText = findViewById(R.id.calibrationText);
+        saveButton = findViewById(R.id.saveButton);
+        reloadButton = findViewById(R.id.reloadButton);
+        resetButton = findViewById(R.id.resetButton);
+    }
+
+    private void setupEventListeners() {
+        saveButton.setOnClickListener(v -> saveConfig());
+
+        reloadButton.setOnClickListener(v -> {
+            if (configStore.reloadFromFile()) {
+                showConfig(configStore.get());
+                Toast.makeText(this, "Configuration reloaded", Toast.LENGTH_SHORT).show();
+            } else {
+                Toast.makeText(this, "No valid " + DetectorConfigStore.CONFIG_FILE + " found",
+                        Toast.LENGTH_SHORT).show();
+            }
+        });
+
+        resetButton.setOnClickListener(v -> {
+            showConfig(configStore.resetToDefaults());
+            Toast.makeText(this, "Defaults restored", Toast.LENGTH_SHORT).show();
+        });
+    }
+
+    private void showConfig(DetectorConfig config) {
+        baseThresholdEditText.setText(String.valueOf(config.baseThreshold));
+        speedScalingEditText.setText(String.valueOf(config.speedScalingFactor));
+        speedOffsetEditText.setText(String.valueOf(config.speedOffset));
+        bufferSizeEditText.setText(String.valueOf(config.bufferSize));
+        cooldownEditText.setText(String.valueOf(config.detectionCooldownMs));
+        minSpeedEditText.setText(String.valueOf(config.speedThreshold));
+        signaturePreEditText.setText(String.valueOf(config.signaturePreMs));
+        signaturePostEditText.setText(String.valueOf(config.signaturePostMs));
+        confidenceEditText.setText(String.valueOf(config.confidenceThreshold));
+        writeBudgetEditText.setText(String.valueOf(config.writeBudget));
+        budgetWindowEditText.setText(String.valueOf(config.budgetWindowMs / 1000));
+        autoCalibrateCheckBox.setChecked(config.autoCalibrate);
+        configVersionText.setText("Configuration version " + config.version);
+        calibrationText.setText(ThresholdCalibrator.getInstance(this).describe());
+    }
+
+    private void saveConfig() {
+        try {
+            DetectorConfig edited = new DetectorConfig(
+                    configStore.get().version,
+                    Float.parseFloat(baseThresholdEditText.getText().toString().trim()),
+                    Float.parseFloat(speedScalingEditText.getText().toString().trim()),
+                    Float.parseFloat(speedOffsetEditText.getText().toString().trim()),
+                    Integer.parseInt(bufferSizeEditText.getText().toString().trim()),
+                    Long.parseLong(cooldownEditText.getText().toString().trim()),
+                    Float.parseFloat(minSpeedEditText.getText().toString().trim()),
+                    autoCalibrateCheckBox.isChecked(),
+                    Integer.parseInt(signaturePreEditText.getText().toString().trim()),
+                    Integer.parseInt(signaturePostEditText.getText().toString().trim()),
+                    Integer.parseInt(confidenceEditText.getText().toString().trim()),
+                    Integer.parseInt(writeBudgetEditText.getText().toString().trim()),
+                    Long.parseLong(budgetWindowEditText.getText().toString().trim()) * 1000);
+            showConfig(configStore.update(edited));
+            Toast.makeText(this, "Settings saved", Toast.LENGTH_SHORT).show();
+        } catch (NumberFormatException e) {
+            Toast.makeText(this, "Please enter valid numbers", Toast.LENGTH_SHORT).show();
+        } catch (IllegalArgumentException e) {
+            Toast.makeText(this, e.getMessage(), Toast.LENGTH_SHORT).show();
+        }
+    }
+}
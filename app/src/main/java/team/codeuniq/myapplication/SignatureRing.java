@@ -0,0 +1,144 @@
+package team.codeuniq.myapplication;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import team.codeuniq.formats.SignatureReader;
+
+// Recent accelerometer and gyroscope samples kept as parallel primitive arrays
+// (one per axis plus timestamps), so recording a sample boxes nothing. The gyro
+// runs on its own clock; each accelerometer sample stores the latest gyro reading.
+//
+// export() packs a time window around an event into the little-endian blob
+// SignatureReader (in :formats) decodes; the layout is documented there. That
+// is 14 bytes per sample, against ~10 for a single boxed Z in a Firestore array.
+// A gap the u16 delta can't hold (sensor stall, ~655 ms or more) costs 4 more.
+public class SignatureRing {
+
+    public static final int FORMAT_VERSION = SignatureReader.VERSION;
+    public static final int CAPACITY = 1024; // ~5 s at 200 Hz, ~20 s at 50 Hz
+
+    private static final float ACCEL_SCALE = 1f / 400f;  // m/s² per LSB, ±81 m/s² range
+    private static final float GYRO_SCALE = 1f / 1000f;  // rad/s per LSB, ±32 rad/s range
+    private static final int HEADER_BYTES = SignatureReader.HEADER_BYTES;
+    private static final long DELTA_UNIT_NS = SignatureReader.DELTA_UNIT_NS;
+    private static final int DELTA_ESCAPE = SignatureReader.DELTA_ESCAPE;
+
+    private final float[] ax = new float[CAPACITY];
+    private final float[] ay = new float[CAPACITY];
+    private final float[] az = new float[CAPACITY];
+    private final float[] gx = new float[CAPACITY];
+    private final float[] gy = new float[CAPACITY];
+    private final float[] gz = new float[CAPACITY];
+    private final long[] timestamps = new long[CAPACITY];
+
+    private int head = 0;  // next slot to write
+    private int size = 0;
+    private float lastGx, lastGy, lastGz;
+
+    public void clear() {
+        head = 0;
+        size = 0;
+        lastGx = lastGy = lastGz = 0f;
+    }
+
+    public void addGyroscope(float x, float y, float z) {
+        lastGx = x;
+        lastGy = y;
+        lastGz = z;
+    }
+
+    public void addAccelerometer(float x, float y, float z, long timestampNs) {
+        ax[head] = x;
+        ay[head] = y;
+        az[head] = z;
+        gx[head] = lastGx;
+        gy[head] = lastGy;
+        gz[head] = lastGz;
+        timestamps[head] = timestampNs;
+        head = (head + 1) % CAPACITY;
+        if (size < CAPACITY) size++;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Packs the samples in [eventNs - preMs, eventNs + postMs]; null if none are held
+    public byte[] export(long eventNs, long preMs, long postMs) {
+        long from = eventNs - preMs * 1_000_000L;
+        long to = eventNs + postMs * 1_000_000L;
+
+        int oldest = (head - size + CAPACITY) % CAPACITY;
+        int first = lowerBound(oldest, from);
+        int count = 0;
+        while (first + count < size && timestamps[(oldest + first + count) % CAPACITY] <= to) {
+            count++;
+        }
+        if (count == 0) return null;
+        count = Math.min(count, 0xFFFF);
+        int start = (oldest + first) % CAPACITY;
+
+        int escapes = 0;
+        for (int i = 1; i < count; i++) {
+            if (quantizedDelta(start, i) >= DELTA_ESCAPE) escapes++;
+        }
+        ByteBuffer out = ByteBuffer.allocate(HEADER_BYTES + (count - 1) * 2 + escapes * 4 + count * 12)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        out.put((byte) 'P').put((byte) 'S').put((byte) FORMAT_VERSION).put((byte) 0);
+        out.putShort((short) count).putShort((short) 0);
+        out.putFloat(ACCEL_SCALE).putFloat(GYRO_SCALE);
+        out.putInt((int) ((timestamps[start] - eventNs) / 1000L));
+
+        for (int i = 1; i < count; i++) {
+            long delta = quantizedDelta(start, i);
+            if (delta < DELTA_ESCAPE) {
+                out.putShort((short) delta);
+            } else {
+                out.putShort((short) DELTA_ESCAPE).putInt((int) Math.min(0xFFFFFFFFL, delta));
+            }
+        }
+        putColumn(out, ax, start, count, ACCEL_SCALE);
+        putColumn(out, ay, start, count, ACCEL_SCALE);
+        putColumn(out, az, start, count, ACCEL_SCALE);
+        putColumn(out, gx, start, count, GYRO_SCALE);
+        putColumn(out, gy, start, count, GYRO_SCALE);
+        putColumn(out, gz, start, count, GYRO_SCALE);
+        return out.array();
+    }
+
+    // Delta between the quantized times of samples i-1 and i of the window, so
+    // the rounding of one delta is made up by the next instead of accumulating
+    private long quantizedDelta(int start, int i) {
+        long t0 = timestamps[start];
+        long previous = Math.round((timestamps[(start + i - 1) % CAPACITY] - t0) / (double) DELTA_UNIT_NS);
+        long current = Math.round((timestamps[(start + i) % CAPACITY] - t0) / (double) DELTA_UNIT_NS);
+        return current - previous;
+    }
+
+    // Number of samples (counted from the oldest) with a timestamp before t
+    private int lowerBound(int oldest, long t) {
+        int lo = 0, hi = size;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (timestamps[(oldest + mid) % CAPACITY] < t) {
+                lo = mid + 1;
+            } else {
+                hi = mid;
+            }
+        }
+        return lo;
+    }
+
+    private static void putColumn(ByteBuffer out, float[] column, int start, int count, float scale) {
+        for (int i = 0; i < count; i++) {
+            float q = column[(start + i) % CAPACITY] / scale;
+            out.putShort((short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(q))));
+        }
+    }
+
+    public static int sampleCount(byte[] blob) {
+        if (blob == null || blob.length < HEADER_BYTES) return 0;
+        return ByteBuffer.wrap(blob).order(ByteOrder.LITTLE_ENDIAN).getShort(4) & 0xFFFF;
+    }
+}
@@ -0,0 +1,198 @@
+package team.codeuniq.myapplication;
+
+// Band-energy features over sliding windows of the accelerometer and gyroscope
+// magnitudes. Every HOP samples the last WINDOW samples are Hann-windowed, run
+// through a fixed-size FFT and summed into BANDS frequency bands. All buffers
+// and tables are allocated once; adding a sample only writes into a ring.
+public class SpectralFeatureEngine {
+
+    public static final int WINDOW = 128;
+    private static final int HOP = 64;
+
+    // Band edges in Hz: body bounce, pitch, seat/engine, wheel hop, structure, rest
+    public static final float[] BAND_EDGES_HZ = {0.5f, 2f, 4f, 8f, 15f, 25f, 1000f};
+    public static final int BANDS = BAND_EDGES_HZ.length - 1;
+
+    private final RealFft fft = new RealFft(WINDOW);
+    private final float[] hann = new float[WINDOW];
+    private final float[] re = new float[WINDOW];
+    private final float[] im = new float[WINDOW];
+    private final float[] power = new float[WINDOW / 2 + 1];
+
+    private final Channel accel = new Channel();
+    private final Channel gyro = new Channel();
+
+    // Latest features (valid once hasFeatures() is true)
+    private final float[] accelBands = new float[BANDS];
+    private final float[] gyroBands = new float[BANDS];
+    private float accelEnergy, gyroEnergy;
+    private float dominantFrequencyHz;
+    private float sampleRateHz;
+    private boolean hasFeatures = false;
+    private boolean recordMetrics = true; // off for the benchmark's synthetic windows
+
+    public SpectralFeatureEngine() {
+        for (int i = 0; i < WINDOW; i++) {
+            hann[i] = (float) (0.5 - 0.5 * Math.cos(2 * Math.PI * i / (WINDOW - 1)));
+        }
+    }
+
+    public void reset() {
+        accel.reset();
+        gyro.reset();
+        hasFeatures = false;
+    }
+
+    // Returns true when a new set of features has been computed
+    public boolean addAccelerometer(float x, float y, float z, long timestampNs) {
+        accel.add((float) Math.sqrt(x * x + y * y + z * z), timestampNs);
+        if (!accel.windowReady()) return false;
+
+        boolean metrics = recordMetrics && PipelineMetrics.enabled;
+        long start = metrics ? System.nanoTime() : 0;
+
+        sampleRateHz = accel.sampleRateHz();
+        accelEnergy = computeBands(accel, accelBands);
+        dominantFrequencyHz = dominantFrequency();
+        hasFeatures = gyro.count >= WINDOW || gyro.count == 0;
+
+        if (metrics) PipelineMetrics.spectralUs.record((System.nanoTime() - start) / 1000);
+        return hasFeatures;
+    }
+
+    public void addGyroscope(float x, float y, float z, long timestampNs) {
+        gyro.add((float) Math.sqrt(x * x + y * y + z * z), timestampNs);
+        if (gyro.windowReady()) {
+            gyroEnergy = computeBands(gyro, gyroBands);
+        }
+    }
+
+    // Copies the channel's last WINDOW samples (mean removed, Hann-windowed) into re,
+    // transforms them and sums the power per band as a fraction of the total.
+    private float computeBands(Channel channel, float[] bands) {
+        float mean = 0f;
+        for (int i = 0; i < WINDOW; i++) mean += channel.values[i];
+        mean /= WINDOW;
+
+        for (int i = 0; i < WINDOW; i++) {
+            int slot = (channel.head + i) % WINDOW; // oldest first
+            re[i] = (channel.values[slot] - mean) * hann[i];
+        }
+        fft.powerSpectrum(re, im, power);
+
+        float rate = channel.sampleRateHz();
+        float binHz = rate / WINDOW;
+        float total = 0f;
+        for (int b = 0; b < BANDS; b++) bands[b] = 0f;
+        for (int k = 1; k <= WINDOW / 2; k++) {
+            float hz = k * binHz;
+            total += power[k];
+            for (int b = 0; b < BANDS; b++) {
+                if (hz >= BAND_EDGES_HZ[b] && hz < BAND_EDGES_HZ[b + 1]) {
+                    bands[b] += power[k];
+                    break;
+                }
+            }
+        }
+        if (total > 0f) {
+            for (int b = 0; b < BANDS; b++) bands[b] /= total;
+        }
+        return total / (WINDOW * WINDOW);
+    }
+
+    // Strongest bin of the last accelerometer transform inside the 0.5-8 Hz body range
+    private float dominantFrequency() {
+        float binHz = sampleRateHz / WINDOW;
+        int best = 0;
+        for (int k = 1; k <= WINDOW / 2; k++) {
+            float hz = k * binHz;
+            if (hz < 0.5f || hz > 8f) continue;
+            if (best == 0 || power[k] > power[best]) best = k;
+        }
+        return best * binHz;
+    }
+
+    public boolean hasFeatures() {
+        return hasFeatures;
+    }
+
+    public float[] getAccelBands() {
+        return accelBands;
+    }
+
+    public float[] getGyroBands() {
+        return gyroBands;
+    }
+
+    public float getAccelEnergy() {
+        return accelEnergy;
+    }
+
+    public float getGyroEnergy() {
+        return gyroEnergy;
+    }
+
+    public float getDominantFrequencyHz() {
+        return dominantFrequencyHz;
+    }
+
+    public float getSampleRateHz() {
+        return sampleRateHz;
+    }
+
+    // Average cost of one feature computation in microseconds, for checking the
+    // sensor budget (1 / rate per sample, HOP samples per computation)
+    public static float benchmark(int windows) {
+        SpectralFeatureEngine engine = new SpectralFeatureEngine();
+        engine.recordMetrics = false;
+        long t = 0;
+        for (int i = 0; i < WINDOW; i++) {
+            t += 5_000_000L;
+            engine.addGyroscope(0.1f, 0.2f, 0.3f, t);
+            engine.addAccelerometer(0f, 0f, 9.81f + (float) Math.sin(i * 0.3), t);
+        }
+        long start = System.nanoTime();
+        int computed = 0;
+        int i = 0;
+        while (computed < windows) {
+            t += 5_000_000L;
+            float z = 9.81f + (float) Math.sin(i++ * 0.3);
+            if (engine.addAccelerometer(0f, 0f, z, t)) computed++;
+        }
+        return (System.nanoTime() - start) / 1000f / windows;
+    }
+
+    private static class Channel {
+        final float[] values = new float[WINDOW];
+        final long[] timestamps = new long[WINDOW];
+        int head = 0;   // next slot to write (= oldest sample once full)
+        int count = 0;
+        int sinceLast = 0;
+
+        void reset() {
+            head = 0;
+            count = 0;
+            sinceLast = 0;
+        }
+
+        void add(float value, long timestampNs) {
+            values[head] = value;
+            timestamps[head] = timestampNs;
+            head = (head + 1) % WINDOW;
+            count++;
+            sinceLast++;
+        }
+
+        boolean windowReady() {
+            if (count < WINDOW || sinceLast < HOP) return false;
+            sinceLast = 0;
+            return true;
+        }
+
+        float sampleRateHz() {
+            long oldest = timestamps[head];
+            long newest = timestamps[(head + WINDOW - 1) % WINDOW];
+            return newest > oldest ? (WINDOW - 1) * 1e9f / (newest - oldest) : 50f;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package team.codeuniq.myapplication;
+
+// One-dimensional Kalman filter that fuses the 1 Hz GPS speed with longitudinal
+// acceleration so the speed estimate moves at the sensor rate between fixes.
+//
+// The phone's orientation in the vehicle is unknown, so the forward axis (in
+// device coordinates) is learned online: between two fixes the mean horizontal
+// acceleration is compared with the GPS speed change and the axis is nudged
+// towards explaining it (normalised LMS). Everything is constant time and uses
+// only primitive fields.
+//
+// Gravity is a slow low-pass of the raw accelerometer that only runs while the
+// last two fixes and the learned axis both show steady speed. A fast filter would absorb sustained
+// braking or acceleration into "gravity" within a second or so and the
+// longitudinal term would fade to zero exactly when it matters. Until the
+// filter has seen GRAVITY_TIME_CONSTANT_S of samples it is a plain running
+// mean, so it settles quickly after reset().
+public class SpeedEstimator {
+
+    static final float GRAVITY_TIME_CONSTANT_S = 20f;
+    private static final float MOTION_TIME_CONSTANT_S = 0.5f;
+    private static final float STEADY_ACCELERATION = 0.3f; // m/s^2 between fixes
+    private static final float PROCESS_NOISE = 0.5f;          // (m/s)^2 per second of prediction
+    private static final float DEFAULT_GPS_VARIANCE = 1.0f;   // (m/s)^2 when the fix has no speed accuracy
+    private static final float AXIS_LEARNING_RATE = 0.2f;
+    private static final float MAX_PREDICTION_DT_S = 0.5f;
+
+    // State
+    private float speed = 0f;      // m/s
+    private float variance = 100f; // (m/s)^2 - large until the first fix
+    private boolean hasFix = false;
+
+    // Gravity estimate (gated low-pass of the raw accelerometer)
+    private float gx, gy, gz;
+    private boolean gravityInitialised = false;
+    private int gravitySamples = 0;
+    private float gpsAcceleration = 0f; // between the last two fixes
+    private float smoothedLongitudinal = 0f;
+
+    // Learned forward axis in device coordinates
+    private float fx, fy, fz;
+
+    // Mean horizontal acceleration since the last fix
+    private float sumHx, sumHy, sumHz;
+    private int horizontalSamples;
+
+    private long lastSampleNs = 0;
+    private long lastFixNs = 0;
+    private float lastGpsSpeed = 0f;
+
+    public void reset() {
+        speed = 0f;
+        variance = 100f;
+        hasFix = false;
+        gravityInitialised = false;
+        gravitySamples = 0;
+        gpsAcceleration = 0f;
+        smoothedLongitudinal = 0f;
+        fx = fy = fz = 0f;
+        sumHx = sumHy = sumHz = 0f;
+        horizontalSamples = 0;
+        lastSampleNs = 0;
+        lastFixNs = 0;
+        lastGpsSpeed = 0f;
+    }
+
+    // Prediction step, called for every accelerometer sample (m/s^2, SensorEvent.timestamp)
+    public void onAccelerometer(float ax, float ay, float az, long timestampNs) {
+        float dt = lastSampleNs == 0 ? 0f : (timestampNs - lastSampleNs) / 1e9f;
+        lastSampleNs = timestampNs;
+
+        if (!gravityInitialised) {
+            gx = ax;
+            gy = ay;
+            gz = az;
+            gravityInitialised = true;
+            gravitySamples = 1;
+            return;
+        }
+        if (dt <= 0f || dt > MAX_PREDICTION_DT_S) return;
+
+        // Linear acceleration with the vertical component removed
+        float lx = ax - gx, ly = ay - gy, lz = az - gz;
+        float g2 = gx * gx + gy * gy + gz * gz;
+        if (g2 < 1e-3f) return;
+        float vertical = (lx * gx + ly * gy + lz * gz) / g2;
+        float hx = lx - vertical * gx;
+        float hy = ly - vertical * gy;
+        float hz = lz - vertical * gz;
+
+        sumHx += hx;
+        sumHy += hy;
+        sumHz += hz;
+        horizontalSamples++;
+
+        // Between fixes the last GPS acceleration goes stale, so the learned axis
+        // also has to agree that the vehicle is not speeding up or slowing down
+        float longitudinal = fx * hx + fy * hy + fz * hz;
+        smoothedLongitudinal += dt / (MOTION_TIME_CONSTANT_S + dt) * (longitudinal - smoothedLongitudinal);
+        if (Math.abs(gpsAcceleration) < STEADY_ACCELERATION
+                && Math.abs(smoothedLongitudinal) < STEADY_ACCELERATION) {
+            float alpha = Math.max(dt / (GRAVITY_TIME_CONSTANT_S + dt), 1f / ++gravitySamples);
+            gx += alpha * (ax - gx);
+            gy += alpha * (ay - gy);
+            gz += alpha * (az - gz);
+        }
+
+        if (!hasFix) return;
+
+        speed = Math.max(0f, speed + longitudinal * dt);
+        variance += PROCESS_NOISE * dt;
+    }
+
+    // Correction step, called for every fix that carries a speed.
+    // speedAccuracy is the 1-sigma speed accuracy in m/s, or NaN if unknown.
+    public void onGpsSpeed(float gpsSpeed, float speedAccuracy, long elapsedNanos) {
+        if (hasFix && elapsedNanos > lastFixNs) {
+            gpsAcceleration = (gpsSpeed - lastGpsSpeed) / ((elapsedNanos - lastFixNs) / 1e9f);
+            if (horizontalSamples > 0) learnForwardAxis(gpsAcceleration);
+        }
+        sumHx = sumHy = sumHz = 0f;
+        horizontalSamples = 0;
+        lastFixNs = elapsedNanos;
+        lastGpsSpeed = gpsSpeed;
+
+        float measurementVariance = Float.isNaN(speedAccuracy) || speedAccuracy <= 0f
+                ? DEFAULT_GPS_VARIANCE
+                : speedAccuracy * speedAccuracy;
+
+        if (!hasFix) {
+            speed = gpsSpeed;
+            variance = measurementVariance;
+            hasFix = true;
+            return;
+        }
+
+        float gain = variance / (variance + measurementVariance);
+        speed = Math.max(0f, speed + gain * (gpsSpeed - speed));
+        variance = (1f - gain) * variance;
+    }
+
+    private void learnForwardAxis(float gpsAcceleration) {
+        float mx = sumHx / horizontalSamples;
+        float my = sumHy / horizontalSamples;
+        float mz = sumHz / horizontalSamples;
+        float norm = mx * mx + my * my + mz * mz;
+        // Steady driving says nothing about the axis; learning from the small gravity
+        // error left over then would only shrink it
+        if (norm < STEADY_ACCELERATION * STEADY_ACCELERATION) return;
+
+        float error = gpsAcceleration - (fx * mx + fy * my + fz * mz);
+        float step = AXIS_LEARNING_RATE * error / norm;
+        fx += step * mx;
+        fy += step * my;
+        fz += step * mz;
+
+        // The axis is a direction; keep its length at most 1
+        float length = (float) Math.sqrt(fx * fx + fy * fy + fz * fz);
+        if (length > 1f) {
+            fx /= length;
+            fy /= length;
+            fz /= length;
+        }
+    }
+
+    // Writes the gravity estimate (device coordinates, m/s^2) into out; false before
+    // the first sample. RoughnessProfile projects on it too rather than keeping its own.
+    public boolean getGravity(float[] out) {
+        if (!gravityInitialised) return false;
+        out[0] = gx;
+        out[1] = gy;
+        out[2] = gz;
+        return true;
+    }
+
+    public float getSpeedKmh() {
+        return speed * 3.6f;
+    }
+
+    // One standard deviation of the estimate, in km/h
+    public float getUncertaintyKmh() {
+        return (float) Math.sqrt(variance) * 3.6f;
+    }
+
+    public boolean hasFix() {
+        return hasFix;
+    }
+}
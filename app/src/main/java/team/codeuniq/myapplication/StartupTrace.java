@@ -0,0 +1,70 @@
+package team.codeuniq.myapplication;
+
+import android.os.Process;
+import android.os.SystemClock;
+import android.os.Trace;
+import android.util.Log;
+
+// Startup stage timings. Each stage is also a Trace section so it shows up in
+// Perfetto/systrace captures; the durations are kept here for logcat and the
+// metrics dialog. Time to first frame is measured from process start and
+// checked against BUDGET_MS; on device an overrun is only logged, and
+// StartupBudgetTest fails on one.
+public final class StartupTrace {
+
+    private static final String TAG = "StartupTrace";
+    public static final long BUDGET_MS = 700;
+
+    private static final StringBuilder stages = new StringBuilder();
+    private static volatile long firstFrameMs = -1;
+
+    private StartupTrace() {
+    }
+
+    public static long sinceProcessStartMs() {
+        return SystemClock.uptimeMillis() - Process.getStartUptimeMillis();
+    }
+
+    public static void begin(String stage) {
+        Trace.beginSection(stage);
+    }
+
+    // Ends the innermost section on this thread and records how long the stage took
+    public static void end(String stage, long startUptimeMs) {
+        Trace.endSection();
+        long durationMs = SystemClock.uptimeMillis() - startUptimeMs;
+        String line = String.format("%-22s %4d ms  (done at +%d ms, %s)", stage, durationMs,
+                sinceProcessStartMs(), Thread.currentThread().getName());
+        synchronized (stages) {
+            stages.append(line).append('\n');
+        }
+        Log.d(TAG, line);
+    }
+
+    // Returns false when the first frame came in over budget
+    public static boolean markFirstFrame() {
+        synchronized (stages) {
+            if (firstFrameMs >= 0) return true;
+            firstFrameMs = sinceProcessStartMs();
+        }
+        boolean withinBudget = firstFrameMs <= BUDGET_MS;
+        if (withinBudget) {
+            Log.i(TAG, "Time to first frame: " + firstFrameMs + " ms");
+        } else {
+            Log.w(TAG, "Time to first frame " + firstFrameMs + " ms exceeds the " + BUDGET_MS
+                    + " ms budget\n" + summary());
+        }
+        return withinBudget;
+    }
+
+    public static long getFirstFrameMs() {
+        return firstFrameMs;
+    }
+
+    public static String summary() {
+        synchronized (stages) {
+            return "time_to_first_frame " + (firstFrameMs < 0 ? "pending" : firstFrameMs + " ms")
+                    + " (budget " + BUDGET_MS + " ms)\n" + stages;
+        }
+    }
+}
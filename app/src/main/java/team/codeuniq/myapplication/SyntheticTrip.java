@@ -0,0 +1,172 @@
+package team.codeuniq.myapplication;
+
+import java.util.Random;
+
+// One simulated drive for the load generator, sampled at a fixed rate. Speed
+// follows a target that changes every 20-60 s, with stops at junctions and
+// bounded acceleration; the route bends gently and may turn 90° at each
+// stop. The accelerometer sees gravity on Z plus speed-dependent road noise
+// and engine vibration, and potholes arrive as a Poisson process over
+// distance, each a damped dip-and-rebound whose size grows with speed.
+// Deterministic for a given seed.
+public class SyntheticTrip {
+
+    private static final double GRAVITY = 9.81;
+    private static final double METERS_PER_DEGREE = 111_320.0;
+    private static final double MAX_ACCEL = 1.5, MAX_DECEL = 3.0; // m/s²
+    private static final double POTHOLE_DURATION_S = 0.2;
+    private static final double POTHOLE_DECAY_S = 0.1;
+    private static final double POTHOLE_FREQUENCY_HZ = 10;
+    private static final double MIN_POTHOLE_SPEED_KMH = 5;
+
+    private final Random random;
+    private final double dt;
+    private final double potholesPerMeter;
+
+    // Current sample
+    public float x, y, z;
+    public float gyroX, gyroY, gyroZ;
+    public double latitude, longitude;
+    public float speedKmh;
+    public float bearing;
+    public long timestampNs;
+
+    private long sample = 0;
+    private double speed = 0;          // m/s
+    private double targetSpeed;
+    private double nextTargetChangeS;
+    private double nextStopS;
+    private double stopUntilS = -1;
+    private double headingRad;
+    private double enginePhase = 0;
+
+    private double untilNextPotholeM;
+    private double potholeStartS = -1;
+    private double potholeAmplitude;
+    private long injected = 0;
+    private double lastInjectedS = Double.NaN;
+
+    public SyntheticTrip(long seed, double startLat, double startLon, int sampleRateHz, float potholesPerKm) {
+        this.random = new Random(seed);
+        this.dt = 1.0 / sampleRateHz;
+        this.potholesPerMeter = potholesPerKm / 1000.0;
+        this.latitude = startLat;
+        this.longitude = startLon;
+        this.headingRad = random.nextDouble() * 2 * Math.PI;
+        this.targetSpeed = randomTargetSpeed();
+        this.nextTargetChangeS = 20 + 40 * random.nextDouble();
+        this.nextStopS = 60 + 120 * random.nextDouble();
+        this.untilNextPotholeM = nextPotholeGap();
+    }
+
+    public double elapsedSeconds() {
+        return sample * dt;
+    }
+
+    public long getInjectedCount() {
+        return injected;
+    }
+
+    // Simulated time of the most recent pothole, NaN before the first
+    public double getLastPotholeSeconds() {
+        return lastInjectedS;
+    }
+
+    public void next() {
+        double t = sample * dt;
+        sample++;
+        timestampNs = Math.round(t * 1e9);
+
+        double accel = updateSpeed(t);
+        updatePosition(t);
+
+        // Road noise grows with speed; the engine adds a narrow vibration on top
+        double noise = 0.25 + 0.015 * speedKmh;
+        enginePhase += 2 * Math.PI * (8 + speed) * dt;
+        double vibration = speed > 0.5 ? 0.15 * Math.sin(enginePhase) : 0;
+
+        double bump = potholeResponse(t);
+        z = (float) (GRAVITY + noise * random.nextGaussian() + vibration + bump);
+        y = (float) (accel + 0.3 * noise * random.nextGaussian());
+        double yawRate = turnRate(t);
+        x = (float) (speed * yawRate + 0.3 * noise * random.nextGaussian());
+
+        gyroX = (float) (0.02 * random.nextGaussian() + 0.3 * bump / GRAVITY);
+        gyroY = (float) (0.02 * random.nextGaussian());
+        gyroZ = (float) (yawRate + 0.01 * random.nextGaussian());
+    }
+
+    private double updateSpeed(double t) {
+        if (t >= nextTargetChangeS) {
+            targetSpeed = randomTargetSpeed();
+            nextTargetChangeS = t + 20 + 40 * random.nextDouble();
+        }
+        if (t >= nextStopS) {
+            // Decelerate, wait 10-30 s, then turn and pull away
+            stopUntilS = t + speed / MAX_DECEL + 10 + 20 * random.nextDouble();
+            nextStopS = stopUntilS + 60 + 120 * random.nextDouble();
+        }
+
+        double target = t < stopUntilS ? 0 : targetSpeed;
+        if (stopUntilS >= 0 && t >= stopUntilS) {
+            headingRad += (random.nextBoolean() ? 1 : -1) * Math.PI / 2 * random.nextInt(2);
+            stopUntilS = -1;
+        }
+
+        double previous = speed;
+        if (speed < target) {
+            speed = Math.min(target, speed + MAX_ACCEL * dt);
+        } else {
+            speed = Math.max(target, speed - MAX_DECEL * dt);
+        }
+        speedKmh = (float) (speed * 3.6);
+        return (speed - previous) / dt;
+    }
+
+    private double randomTargetSpeed() {
+        return (20 + 45 * random.nextDouble()) / 3.6;
+    }
+
+    private double turnRate(double t) {
+        // Gentle bends between the junction turns
+        return speed > 0.5 ? 0.02 * Math.sin(t / 15.0) : 0;
+    }
+
+    private void updatePosition(double t) {
+        headingRad += turnRate(t) * dt;
+        double step = speed * dt;
+        latitude += step * Math.cos(headingRad) / METERS_PER_DEGREE;
+        longitude += step * Math.sin(headingRad) / (METERS_PER_DEGREE * Math.cos(Math.toRadians(latitude)));
+        double degrees = Math.toDegrees(headingRad) % 360;
+        bearing = (float) (degrees < 0 ? degrees + 360 : degrees);
+
+        untilNextPotholeM -= step;
+        if (untilNextPotholeM <= 0) {
+            untilNextPotholeM = nextPotholeGap();
+            if (speedKmh >= MIN_POTHOLE_SPEED_KMH) {
+                // Severity 2-12 m/s², scaled by how hard the wheel hits at this speed
+                potholeAmplitude = (2 + 10 * random.nextDouble()) * (0.6 + speedKmh / 50.0);
+                potholeStartS = t;
+                lastInjectedS = t;
+                injected++;
+            }
+        }
+    }
+
+    private double nextPotholeGap() {
+        if (potholesPerMeter <= 0) return Double.MAX_VALUE;
+        return -Math.log(1 - random.nextDouble()) / potholesPerMeter;
+    }
+
+    // Wheel drops in, then the suspension rebounds and rings down
+    private double potholeResponse(double t) {
+        if (potholeStartS < 0) return 0;
+        double since = t - potholeStartS;
+        if (since > POTHOLE_DURATION_S) {
+            potholeStartS = -1;
+            return 0;
+        }
+        return -potholeAmplitude * Math.exp(-since / POTHOLE_DECAY_S)
+                * Math.sin(2 * Math.PI * POTHOLE_FREQUENCY_HZ * since + Math.PI / 4);
+    }
+}
@@ -0,0 +1,135 @@
+package team.codeuniq.myapplication;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.util.Log;
+
+// Learns a per-device base threshold T0 from ordinary road noise.
+// While driving, |Z| samples are fed into streaming P² quantile estimators per
+// speed band; the noise ceiling of each band, corrected back to T0 with the
+// speed term of T_t = T0 + S × (V_t - L), gives a baseline that adapts to the
+// phone, mount and vehicle. Memory is a fixed handful of markers per band and
+// the estimator state is persisted so calibration carries across sessions.
+public class ThresholdCalibrator {
+
+    private static final String TAG = "ThresholdCalibrator";
+    private static final String PREFS_NAME = "threshold_calibration";
+
+    private static final float[] BAND_LOWER_KMH = {10f, 25f, 40f, 60f};
+    private static final double HIGH_QUANTILE = 0.999;
+    private static final float NOISE_MARGIN = 0.5f;      // extra headroom as a fraction of (high - median)
+    private static final long MIN_BAND_SAMPLES = 3000;   // ~1 minute at 50 Hz
+    private static final int RECOMPUTE_EVERY = 1000;
+    private static final float MIN_T0 = 4f, MAX_T0 = 30f;
+
+    private static ThresholdCalibrator instance;
+
+    private final SharedPreferences prefs;
+    private final P2Quantile[] high = new P2Quantile[BAND_LOWER_KMH.length];
+    private final P2Quantile[] median = new P2Quantile[BAND_LOWER_KMH.length];
+    private final double[] speedSum = new double[BAND_LOWER_KMH.length];
+    private int samplesSinceRecompute = 0;
+    private float calibratedT0 = Float.NaN;
+
+    public static synchronized ThresholdCalibrator getInstance(Context context) {
+        if (instance == null) {
+            instance = new ThresholdCalibrator(context.getApplicationContext());
+        }
+        return instance;
+    }
+
+    private ThresholdCalibrator(Context context) {
+        prefs = context.getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+        for (int b = 0; b < BAND_LOWER_KMH.length; b++) {
+            high[b] = new P2Quantile(HIGH_QUANTILE);
+            median[b] = new P2Quantile(0.5);
+            high[b].restore(prefs.getString("high_" + b, null));
+            median[b].restore(prefs.getString("median_" + b, null));
+            speedSum[b] = Double.longBitsToDouble(prefs.getLong("speed_sum_" + b, 0L));
+        }
+        calibratedT0 = prefs.getFloat("calibrated_t0", Float.NaN);
+    }
+
+    // Called for every accelerometer sample taken while driving and away from detections.
+    // Returns true when a new calibrated T0 is available.
+    public boolean add(float absZ, float speedKmh, DetectorConfig config) {
+        int band = bandFor(speedKmh);
+        if (band < 0) return false;
+
+        high[band].add(absZ);
+        median[band].add(absZ);
+        speedSum[band] += speedKmh;
+
+        if (++samplesSinceRecompute < RECOMPUTE_EVERY) return false;
+        samplesSinceRecompute = 0;
+        return recompute(config);
+    }
+
+    private static int bandFor(float speedKmh) {
+        for (int b = BAND_LOWER_KMH.length - 1; b >= 0; b--) {
+            if (speedKmh >= BAND_LOWER_KMH[b]) return b;
+        }
+        return -1;
+    }
+
+    private boolean recompute(DetectorConfig config) {
+        double weightedSum = 0;
+        long totalSamples = 0;
+        for (int b = 0; b < BAND_LOWER_KMH.length; b++) {
+            long n = high[b].getCount();
+            if (n < MIN_BAND_SAMPLES) continue;
+
+            double qHigh = high[b].getQuantile();
+            double qMedian = median[b].getQuantile();
+            double noiseCeiling = qHigh + NOISE_MARGIN * (qHigh - qMedian);
+            double meanSpeed = speedSum[b] / n;
+            double bandT0 = noiseCeiling - config.speedScalingFactor * (meanSpeed - config.speedOffset);
+
+            weightedSum += bandT0 * n;
+            totalSamples += n;
+        }
+        if (totalSamples == 0) return false;
+
+        float t0 = (float) Math.max(MIN_T0, Math.min(MAX_T0, weightedSum / totalSamples));
+        boolean changed = Float.isNaN(calibratedT0) || Math.abs(t0 - calibratedT0) >= 0.05f;
+        calibratedT0 = t0;
+        return changed;
+    }
+
+    public float getCalibratedT0() {
+        return calibratedT0;
+    }
+
+    public void save() {
+        SharedPreferences.Editor editor = prefs.edit();
+        for (int b = 0; b < BAND_LOWER_KMH.length; b++) {
+            editor.putString("high_" + b, high[b].serialise());
+            editor.putString("median_" + b, median[b].serialise());
+            editor.putLong("speed_sum_" + b, Double.doubleToRawLongBits(speedSum[b]));
+        }
+        editor.putFloat("calibrated_t0", calibratedT0);
+        editor.apply();
+        Log.d(TAG, "Calibration saved - " + describe());
+    }
+
+    public void reset() {
+        for (int b = 0; b < BAND_LOWER_KMH.length; b++) {
+            high[b] = new P2Quantile(HIGH_QUANTILE);
+            median[b] = new P2Quantile(0.5);
+            speedSum[b] = 0;
+        }
+        calibratedT0 = Float.NaN;
+        prefs.edit().clear().apply();
+    }
+
+    public String describe() {
+        StringBuilder sb = new StringBuilder("Calibrated T0: ");
+        sb.append(Float.isNaN(calibratedT0) ? "not enough data" : String.format("%.2f", calibratedT0));
+        for (int b = 0; b < BAND_LOWER_KMH.length; b++) {
+            sb.append(String.format("\n%.0f+ km/h: n=%d p50=%.2f p99.9=%.2f",
+                    BAND_LOWER_KMH[b], high[b].getCount(),
+                    median[b].getQuantile(), high[b].getQuantile()));
+        }
+        return sb.toString();
+    }
+}
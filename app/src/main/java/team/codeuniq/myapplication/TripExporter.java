@@ -0,0 +1,194 @@
+package team.codeuniq.myapplication;
+
+import android.util.Log;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+import team.codeuniq.formats.ColumnType;
+import team.codeuniq.formats.ColumnarWriter;
+
+// Writes the research fields of every sensor detection in a session into one
+// columnar export (files/exports/<session>.ptc), uploaded as a single object
+// when the trip ends. Training jobs read these with team.codeuniq.formats
+// instead of paging through individual Firestore documents.
+//
+// All file work runs on one background thread in call order, so the *Async
+// methods are safe to call from the UI thread. The thread is shared by every
+// instance: an activity recreated mid-trip queues behind the old one's finish.
+// An export is written as <session>.ptc.tmp and renamed when finished; a .tmp
+// file no instance has open was left by a crash and is deleted at construction,
+// since its last block was never completed.
+public class TripExporter {
+
+    private static final String TAG = "TripExporter";
+    public static final String EXPORT_DIR = "exports";
+    public static final String EXTENSION = ".ptc";
+    private static final int BLOCK_ROWS = 1024;
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private static final String[] COLUMNS = {
+            "timestamp_ms", "latitude", "longitude", "speed", "zt_peak", "z_prev_extrema",
+            "z_next_extrema", "interval_since_last_detection", "dynamic_threshold",
+            "base_threshold", "config_version", "signature"
+    };
+    private static final ColumnType[] TYPES = {
+            // Coordinates as FLOAT64: float32 steps are ~1 m at these latitudes
+            ColumnType.INT64, ColumnType.FLOAT64, ColumnType.FLOAT64, ColumnType.FLOAT32,
+            ColumnType.FLOAT32, ColumnType.FLOAT32, ColumnType.FLOAT32, ColumnType.INT64,
+            ColumnType.FLOAT32, ColumnType.FLOAT32, ColumnType.INT64, ColumnType.BYTES
+    };
+
+    private static final ExecutorService ioExecutor = Executors.newSingleThreadExecutor();
+    private static final Set<File> openFiles = new HashSet<>(); // export thread only
+
+    private final File directory;
+    // Export thread only
+    private ColumnarWriter writer;
+    private File currentFile;
+    private int rows;
+
+    public TripExporter(File filesDir) {
+        directory = new File(filesDir, EXPORT_DIR);
+        ioExecutor.execute(this::deleteStale);
+    }
+
+    public void startAsync(String sessionId, String userId) {
+        ioExecutor.execute(() -> start(sessionId, userId));
+    }
+
+    // timestampMs is the wall-clock time of the peak. Ignored when no export is open
+    // (e.g. a detection completing after stop)
+    public void addAsync(long timestampMs, double latitude, double longitude, float speed,
+                         float zt, float zPrev, float zNext, long interval,
+                         float dynamicThreshold, float baseThreshold, int configVersion,
+                         byte[] signature) {
+        ioExecutor.execute(() -> add(timestampMs, latitude, longitude, speed, zt, zPrev, zNext,
+                interval, dynamicThreshold, baseThreshold, configVersion, signature));
+    }
+
+    // Closes the current export, then hands every finished export not yet uploaded
+    // (including ones left by earlier sessions) to onPending on the export thread
+    public void finishAsync(Consumer<List<File>> onPending) {
+        ioExecutor.execute(() -> {
+            finish();
+            onPending.accept(pendingExports());
+        });
+    }
+
+    private void deleteStale() {
+        File[] files = directory.listFiles();
+        if (files == null) return;
+        for (File file : files) {
+            if (file.getName().endsWith(EXTENSION + TMP_SUFFIX) && !openFiles.contains(file) && file.delete()) {
+                Log.w(TAG, "Deleted unfinished export " + file.getName());
+            }
+        }
+    }
+
+    void start(String sessionId, String userId) {
+        finish();
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            Log.w(TAG, "Cannot create " + directory);
+            return;
+        }
+
+        Map<String, String> metadata = new HashMap<>();
+        metadata.put("session_id", sessionId);
+        metadata.put("user_id", userId);
+        metadata.put("signature_format", String.valueOf(SignatureRing.FORMAT_VERSION));
+        metadata.put("created_at_ms", String.valueOf(System.currentTimeMillis()));
+
+        // Written under a temporary name so a crash never leaves a half file that looks finished
+        currentFile = new File(directory, sessionId + EXTENSION + TMP_SUFFIX);
+        try {
+            writer = new ColumnarWriter(new BufferedOutputStream(new FileOutputStream(currentFile)),
+                    metadata, COLUMNS, TYPES, BLOCK_ROWS);
+            openFiles.add(currentFile);
+            rows = 0;
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot start export", e);
+            writer = null;
+        }
+    }
+
+    void add(long timestampMs, double latitude, double longitude, float speed,
+             float zt, float zPrev, float zNext, long interval,
+             float dynamicThreshold, float baseThreshold, int configVersion,
+             byte[] signature) {
+        if (writer == null) return;
+        try {
+            writer.setLong(0, timestampMs);
+            writer.setDouble(1, latitude);
+            writer.setDouble(2, longitude);
+            writer.setFloat(3, speed);
+            writer.setFloat(4, zt);
+            writer.setFloat(5, zPrev);
+            writer.setFloat(6, zNext);
+            writer.setLong(7, interval);
+            writer.setFloat(8, dynamicThreshold);
+            writer.setFloat(9, baseThreshold);
+            writer.setLong(10, configVersion);
+            writer.setBytes(11, signature);
+            writer.endRow();
+            rows++;
+        } catch (IOException e) {
+            Log.w(TAG, "Export write failed, dropping this trip's export", e);
+            abort();
+        }
+    }
+
+    // Closes the current export; it is kept only if it holds at least one detection
+    File finish() {
+        if (writer == null) return null;
+        File done = null;
+        try {
+            writer.close();
+            if (rows > 0) {
+                String name = currentFile.getName();
+                done = new File(directory, name.substring(0, name.length() - TMP_SUFFIX.length()));
+                if (!currentFile.renameTo(done)) done = null;
+            }
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot finish export", e);
+        }
+        if (done == null) currentFile.delete();
+        openFiles.remove(currentFile);
+        writer = null;
+        currentFile = null;
+        return done;
+    }
+
+    private void abort() {
+        try {
+            writer.close();
+        } catch (IOException ignored) {
+        }
+        currentFile.delete();
+        openFiles.remove(currentFile);
+        writer = null;
+        currentFile = null;
+    }
+
+    // Finished exports not yet uploaded, including ones left by earlier sessions
+    List<File> pendingExports() {
+        List<File> pending = new ArrayList<>();
+        File[] files = directory.listFiles();
+        if (files == null) return pending;
+        for (File file : files) {
+            if (file.getName().endsWith(EXTENSION)) pending.add(file);
+        }
+        return pending;
+    }
+}
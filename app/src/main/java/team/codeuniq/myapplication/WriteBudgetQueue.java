@@ -0,0 +1,171 @@
+package team.codeuniq.myapplication;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+// Sensor events of one session waiting for the next budget window. Ordered by
+// strength (|zt_peak| - dynamic_threshold), bounded by the window's write
+// budget overall and by MAX_PER_SEGMENT per road segment, so one broken
+// stretch can't use up the whole budget. A full queue evicts its weakest
+// event (possibly the one being offered). Evictions are tallied per segment
+// until takeEvictions() so they can be reported instead of vanishing.
+public class WriteBudgetQueue {
+
+    public static final int MAX_PER_SEGMENT = 3;
+
+    public static final class Entry {
+        public final String docId;
+        public final Map<String, Object> data;
+        public final float strength;
+        public final String segmentKey;
+        final EventSink.Callback callback;
+        final long sequence;
+
+        Entry(String docId, Map<String, Object> data, float strength, String segmentKey,
+              EventSink.Callback callback, long sequence) {
+            this.docId = docId;
+            this.data = data;
+            this.strength = strength;
+            this.segmentKey = segmentKey;
+            this.callback = callback;
+            this.sequence = sequence;
+        }
+    }
+
+    // Evictions since the last takeEvictions()
+    public static final class Evictions {
+        public final Object userId;
+        public final long count;
+        public final float maxStrength;
+        public final Map<String, Long> bySegment;
+
+        Evictions(Object userId, long count, float maxStrength, Map<String, Long> bySegment) {
+            this.userId = userId;
+            this.count = count;
+            this.maxStrength = maxStrength;
+            this.bySegment = bySegment;
+        }
+    }
+
+    // Weakest first; among equals the newer one goes first, keeping the earlier report
+    private final PriorityQueue<Entry> queue = new PriorityQueue<>(16, (a, b) -> a.strength != b.strength
+            ? Float.compare(a.strength, b.strength)
+            : Long.compare(b.sequence, a.sequence));
+    private final Map<String, Integer> perSegment = new HashMap<>();
+    private long sequence = 0;
+
+    private Object evictedUserId;
+    private long evictedCount = 0;
+    private float evictedMaxStrength = 0;
+    private Map<String, Long> evictedBySegment = new HashMap<>();
+
+    // Sensor events carry zt_peak and dynamic_threshold; anything else bypasses the budget
+    public static boolean isBudgeted(Map<String, Object> data) {
+        return data.get("zt_peak") instanceof Number && data.get("dynamic_threshold") instanceof Number;
+    }
+
+    public static float strengthOf(Map<String, Object> data) {
+        return Math.abs(((Number) data.get("zt_peak")).floatValue())
+                - ((Number) data.get("dynamic_threshold")).floatValue();
+    }
+
+    // Map-matched segment, else the ~150 m geohash cell, else one shared bucket
+    public static String segmentKeyOf(Map<String, Object> data) {
+        Object segment = data.get("segment_id");
+        if (segment != null) return "seg:" + segment;
+        Object lat = data.get("latitude"), lon = data.get("longitude");
+        if (lat instanceof Number && lon instanceof Number) {
+            return "gh:" + GeoHash.encode(((Number) lat).doubleValue(), ((Number) lon).doubleValue(),
+                    HistoryStore.GEOHASH_PRECISION);
+        }
+        return "unknown";
+    }
+
+    // Returns the evicted entry (the offered one if it is the weakest), or null
+    public synchronized Entry offer(String docId, Map<String, Object> data, EventSink.Callback callback,
+                                    int capacity) {
+        Entry entry = new Entry(docId, data, strengthOf(data), segmentKeyOf(data), callback, sequence++);
+        Entry victim = victimFor(entry, capacity);
+        if (victim != null && queue.comparator().compare(entry, victim) < 0) {
+            victim = entry;
+        } else {
+            if (victim != null) remove(victim);
+            queue.add(entry);
+            perSegment.merge(entry.segmentKey, 1, Integer::sum);
+        }
+
+        if (victim != null) tally(victim);
+        return victim;
+    }
+
+    // Whether offer() would keep this event right now, without offering it
+    public synchronized boolean admits(String docId, Map<String, Object> data, int capacity) {
+        Entry entry = new Entry(docId, data, strengthOf(data), segmentKeyOf(data), null, sequence);
+        Entry victim = victimFor(entry, capacity);
+        return victim == null || queue.comparator().compare(entry, victim) >= 0;
+    }
+
+    // The entry that has to go for `entry` to fit: the weakest on its segment when
+    // that is full, else the weakest overall when the queue is
+    private Entry victimFor(Entry entry, int capacity) {
+        Integer inSegment = perSegment.get(entry.segmentKey);
+        if (inSegment != null && inSegment >= MAX_PER_SEGMENT) return weakestIn(entry.segmentKey);
+        if (queue.size() >= capacity) return queue.peek();
+        return null;
+    }
+
+    private void tally(Entry victim) {
+        evictedUserId = victim.data.get("user_id");
+        evictedCount++;
+        evictedMaxStrength = Math.max(evictedMaxStrength, victim.strength);
+        evictedBySegment.merge(victim.segmentKey, 1L, Long::sum);
+    }
+
+    private Entry weakestIn(String segmentKey) {
+        Entry weakest = null;
+        for (Entry e : queue) {
+            if (e.segmentKey.equals(segmentKey) && (weakest == null || queue.comparator().compare(e, weakest) < 0)) {
+                weakest = e;
+            }
+        }
+        return weakest;
+    }
+
+    private void remove(Entry entry) {
+        queue.remove(entry);
+        perSegment.merge(entry.segmentKey, -1, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    // The strongest `limit` entries, strongest first. Anything beyond that (the budget
+    // was lowered while events were queued) is evicted into `evicted`. Leaves the queue empty.
+    public synchronized List<Entry> drain(int limit, List<Entry> evicted) {
+        List<Entry> entries = new ArrayList<>(queue.size());
+        while (!queue.isEmpty()) entries.add(queue.poll());
+        perSegment.clear();
+        Collections.reverse(entries);
+
+        while (entries.size() > limit) {
+            Entry victim = entries.remove(entries.size() - 1);
+            tally(victim);
+            evicted.add(victim);
+        }
+        return entries;
+    }
+
+    public synchronized Evictions takeEvictions() {
+        if (evictedCount == 0) return null;
+        Evictions evictions = new Evictions(evictedUserId, evictedCount, evictedMaxStrength, evictedBySegment);
+        evictedCount = 0;
+        evictedMaxStrength = 0;
+        evictedBySegment = new HashMap<>();
+        return evictions;
+    }
+}
@@ -0,0 +1,78 @@
+package team.codeuniq.myapplication;
+
+import org.json.JSONException;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class EventCodecTest {
+
+    @Test
+    public void roundTrip() throws JSONException {
+        Map<String, Object> accelerometer = new HashMap<>();
+        accelerometer.put("x", 0.5f);
+        accelerometer.put("z", 9.81f);
+
+        Map<String, Object> data = new HashMap<>();
+        data.put("timestamp", EventSink.SERVER_TIMESTAMP);
+        data.put("user_id", "user");
+        data.put("vehicle_type", "Auto-rickshaw – ऑटो");
+        data.put("latitude", 19.0760123456789);
+        data.put("zt_peak", -21.5f);
+        data.put("confidence", 87);
+        data.put("interval_since_last_detection", 123_456_789_012L);
+        data.put("match_distance_m", Double.NaN);
+        data.put("speed_uncertainty", Float.POSITIVE_INFINITY);
+        data.put("segment_id", null);
+        data.put("is_active", true);
+        data.put("signature_blob", new byte[]{0, 1, -1, 127, -128});
+        data.put("evidence_frame_offsets_ms", Arrays.asList(-120L, 0L, 80L));
+        data.put("accelerometer_data", accelerometer);
+
+        Map<String, Object> decoded = EventCodec.decode(EventCodec.encode(data));
+
+        assertEquals(data.keySet(), decoded.keySet());
+        assertSame(EventSink.SERVER_TIMESTAMP, decoded.get("timestamp"));
+        assertEquals("user", decoded.get("user_id"));
+        assertEquals("Auto-rickshaw – ऑटो", decoded.get("vehicle_type"));
+        assertEquals(19.0760123456789, decoded.get("latitude"));
+        // Floats come back as the double the backend would have stored
+        assertEquals((double) -21.5f, decoded.get("zt_peak"));
+        assertEquals(87L, decoded.get("confidence"));
+        assertEquals(123_456_789_012L, decoded.get("interval_since_last_detection"));
+        assertTrue(Double.isNaN((Double) decoded.get("match_distance_m")));
+        assertEquals(Double.POSITIVE_INFINITY, decoded.get("speed_uncertainty"));
+        assertNull(decoded.get("segment_id"));
+        assertEquals(true, decoded.get("is_active"));
+        assertArrayEquals(new byte[]{0, 1, -1, 127, -128}, (byte[]) decoded.get("signature_blob"));
+        assertEquals(Arrays.asList(-120L, 0L, 80L), decoded.get("evidence_frame_offsets_ms"));
+
+        Map<?, ?> nested = (Map<?, ?>) decoded.get("accelerometer_data");
+        assertEquals((double) 0.5f, nested.get("x"));
+        assertEquals((double) 9.81f, nested.get("z"));
+    }
+
+    @Test
+    public void wholeDoubles_stayDoubles() throws JSONException {
+        Map<String, Object> data = new HashMap<>();
+        data.put("speed", 40.0);
+        data.put("altitude", -0.0);
+        data.put("offsets", List.of(1.0, 2.5));
+        Map<String, Object> decoded = EventCodec.decode(EventCodec.encode(data));
+        assertEquals(40.0, decoded.get("speed"));
+        assertEquals(-0.0, decoded.get("altitude"));
+        assertEquals(List.of(1.0, 2.5), decoded.get("offsets"));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownValueType_isRejected() {
+        Map<String, Object> data = new HashMap<>();
+        data.put("when", new java.util.Date());
+        EventCodec.encode(data);
+    }
+}
@@ -0,0 +1,166 @@
+package team.codeuniq.myapplication;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+import static team.codeuniq.myapplication.WriteBudgetQueueTest.event;
+
+// The budgeted write path against a sink that acknowledges at once. Windows are
+// an hour long so only the test's own flushes drain the queues.
+public class EventWriterTest {
+
+    private static final long WINDOW_MS = 3_600_000;
+
+    private static final class RecordingSink implements EventSink {
+        final Map<String, Map<String, Object>> written = new LinkedHashMap<>();
+        final List<Map<String, Object>> evictions = new ArrayList<>();
+        int ids = 0;
+
+        @Override
+        public synchronized String newDocumentId() {
+            return "doc" + ids++;
+        }
+
+        @Override
+        public synchronized void write(String docId, Map<String, Object> data, Callback callback) {
+            written.put(docId, data);
+            callback.onComplete(null);
+        }
+
+        @Override
+        public synchronized void writeEvictions(Map<String, Object> summary, Callback callback) {
+            evictions.add(summary);
+            callback.onComplete(null);
+        }
+
+        @Override
+        public void writeProfile(String userId, Map<String, Object> fields, Callback callback) {
+            callback.onComplete(null);
+        }
+    }
+
+    private final RecordingSink sink = new RecordingSink();
+    private final EventWriter writer = new EventWriter(sink, null, false);
+    private final Map<String, Exception> results = new HashMap<>();
+
+    @After
+    public void tearDown() {
+        writer.close();
+    }
+
+    private void save(String docId, float strength, String segment) {
+        writer.save(docId, event(strength, segment), error -> results.put(docId, error));
+    }
+
+    @Test
+    public void noBudget_writesAtOnce() {
+        save("a", 1f, "s1");
+        assertTrue(sink.written.containsKey("a"));
+        assertTrue(results.containsKey("a"));
+        assertNull(results.get("a"));
+    }
+
+    @Test
+    public void budget_writesTheStrongestAtTheWindowEnd() {
+        writer.setBudget(2, WINDOW_MS);
+        save("a", 3f, "s1");
+        save("b", 1f, "s2");
+        save("c", 2f, "s3");
+        assertTrue(sink.written.isEmpty());
+        assertTrue(results.get("b") instanceof EventWriter.EvictedException);
+
+        writer.flushAll();
+        assertEquals(List.of("a", "c"), new ArrayList<>(sink.written.keySet()));
+        assertNull(results.get("a"));
+        assertNull(results.get("c"));
+
+        assertEquals(1, sink.evictions.size());
+        Map<String, Object> summary = sink.evictions.get(0);
+        assertEquals("session", summary.get("session_id"));
+        assertEquals(1L, summary.get("evicted_count"));
+        assertEquals(2, summary.get("write_budget"));
+    }
+
+    @Test
+    public void unbudgetedEvents_skipTheQueue() {
+        writer.setBudget(1, WINDOW_MS);
+        Map<String, Object> image = new HashMap<>();
+        image.put("session_id", "session");
+        image.put("detection_type", "IMAGE");
+        writer.save("image", image);
+        assertTrue(sink.written.containsKey("image"));
+    }
+
+    @Test
+    public void flushSession_writesOnlyThatSession() {
+        writer.setBudget(5, WINDOW_MS);
+        save("a", 1f, "s1");
+        Map<String, Object> other = event(1f, "s1");
+        other.put("session_id", "other");
+        writer.save("b", other);
+
+        writer.flush("session");
+        assertEquals(List.of("a"), new ArrayList<>(sink.written.keySet()));
+        writer.flushAll();
+        assertTrue(sink.written.containsKey("b"));
+    }
+
+    @Test
+    public void lowerBudgetAtFlush_evictsTheOverflow() {
+        writer.setBudget(3, WINDOW_MS);
+        save("a", 1f, "s1");
+        save("b", 2f, "s2");
+        writer.setBudget(1, WINDOW_MS);
+        writer.flushAll();
+        assertEquals(List.of("b"), new ArrayList<>(sink.written.keySet()));
+        assertTrue(results.get("a") instanceof EventWriter.EvictedException);
+    }
+
+    @Test
+    public void strongerImpactInTheCooldown_bothKeptUnderTheBudget() {
+        // Two separate impacts on one segment, the second stronger: both are written
+        writer.setBudget(5, WINDOW_MS);
+        save("a", 1f, "s1");
+        save("b", 2f, "s1");
+        writer.flushAll();
+        assertEquals(List.of("b", "a"), new ArrayList<>(sink.written.keySet()));
+        assertTrue(sink.evictions.isEmpty());
+    }
+
+    @Test
+    public void fullSegment_evictsTheWeakestAndReportsIt() {
+        writer.setBudget(10, WINDOW_MS);
+        for (int i = 0; i <= WriteBudgetQueue.MAX_PER_SEGMENT; i++) save("e" + i, 1f + i, "s1");
+        assertTrue(results.get("e0") instanceof EventWriter.EvictedException);
+
+        writer.flushAll();
+        assertEquals(WriteBudgetQueue.MAX_PER_SEGMENT, sink.written.size());
+        assertEquals(1L, sink.evictions.get(0).get("evicted_count"));
+    }
+
+    @Test
+    public void wouldAdmit_followsTheQueue() {
+        assertTrue(writer.wouldAdmit("x", event(0.1f, "s1")));
+        writer.setBudget(1, WINDOW_MS);
+        save("a", 3f, "s1");
+        assertFalse(writer.wouldAdmit("x", event(1f, "s2")));
+        assertTrue(writer.wouldAdmit("x", event(4f, "s2")));
+    }
+
+    @Test
+    public void close_writesEverythingQueued() {
+        writer.setBudget(5, WINDOW_MS);
+        save("a", 1f, "s1");
+        writer.close();
+        assertTrue(sink.written.containsKey("a"));
+        save("b", 1f, "s1");
+        assertTrue("no budget after close", sink.written.containsKey("b"));
+    }
+}
@@ -0,0 +1,108 @@
+package team.codeuniq.myapplication;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+// The load generator end to end on the JVM, against the in-process backend
+public class LoadGeneratorTest {
+
+    private static LoadGenerator.Report run(LoadGenerator.Profile profile, FakeEventSink backend) throws InterruptedException {
+        ConfidenceScorer scorer = new ConfidenceScorer(new File("no_such_model.json"));
+        try {
+            return new LoadGenerator(profile, DetectorConfig.DEFAULTS,
+                    new EventWriter(backend, null, false), scorer).run();
+        } finally {
+            backend.shutdown();
+        }
+    }
+
+    @Test
+    public void everyAcceptedEventIsAccountedFor() throws InterruptedException {
+        // Four drivers, ten simulated minutes each, at 200x real time
+        FakeEventSink backend = new FakeEventSink(5, 0.05);
+        LoadGenerator.Report report = run(new LoadGenerator.Profile(4, 600, 50, 200f, 5f, 64), backend);
+
+        assertFalse(report.cancelled);
+        assertTrue(report.samples >= 4 * 600 * 50);
+        assertTrue("no potholes injected", report.injected > 0);
+        assertTrue("none detected", report.matched > 0);
+        assertEquals(report.candidates - report.rejected,
+                report.written + report.failed + report.dropped + report.evicted);
+        assertEquals(backend.getStoredCount(), report.written);
+        assertTrue(backend.getStoredBytes() > 0);
+
+        // One exact latency per acknowledged write
+        assertEquals(report.written, report.submitToAckMs.count());
+        assertEquals(report.written, report.endToEndMs.count());
+        assertTrue(report.endToEndMs.percentile(50) <= report.endToEndMs.percentile(99));
+        assertTrue(report.submitToAckMs.percentile(50) <= report.endToEndMs.percentile(100));
+    }
+
+    @Test
+    public void tightInFlightLimit_dropsInsteadOfQueueing() throws InterruptedException {
+        // One pending event per driver while the budget window holds them back
+        FakeEventSink backend = new FakeEventSink(5, 0);
+        LoadGenerator.Report report = run(new LoadGenerator.Profile(2, 600, 50, 200f, 20f, 1), backend);
+
+        assertTrue(report.dropped > 0);
+        assertEquals(0, report.failed);
+        assertEquals(report.candidates - report.rejected,
+                report.written + report.dropped + report.evicted);
+    }
+
+    @Test(timeout = 30_000)
+    public void throwingBackend_endsTheDriversInsteadOfHanging() throws InterruptedException {
+        // Document ids are taken on the driver's own thread, as each event is submitted
+        EventSink broken = new EventSink() {
+            @Override
+            public String newDocumentId() {
+                throw new IllegalStateException("backend gone");
+            }
+
+            @Override
+            public void write(String docId, Map<String, Object> data, Callback callback) {
+                callback.onComplete(null);
+            }
+
+            @Override
+            public void writeEvictions(Map<String, Object> summary, Callback callback) {
+                callback.onComplete(null);
+            }
+
+            @Override
+            public void writeProfile(String userId, Map<String, Object> fields, Callback callback) {
+                callback.onComplete(null);
+            }
+        };
+        LoadGenerator.Report report = new LoadGenerator(new LoadGenerator.Profile(2, 600, 50, 200f, 5f, 64),
+                DetectorConfig.DEFAULTS, new EventWriter(broken, null, false),
+                new ConfidenceScorer(new File("no_such_model.json"))).run();
+
+        assertTrue(report.failed > 0);
+        assertEquals(0, report.written);
+        assertEquals(report.candidates - report.rejected,
+                report.written + report.failed + report.dropped + report.evicted);
+    }
+
+    @Test
+    public void latencies_areExactPercentiles() {
+        LoadGenerator.Latencies latencies = new LoadGenerator.Report().endToEndMs;
+        assertEquals(0, latencies.percentile(50));
+        for (int v = 100; v >= 1; v--) latencies.record(v);
+
+        assertEquals(100, latencies.count());
+        assertEquals(1, latencies.percentile(1));
+        assertEquals(50, latencies.percentile(50));
+        assertEquals(90, latencies.percentile(90));
+        assertEquals(99, latencies.percentile(99));
+        assertEquals(100, latencies.percentile(100));
+
+        latencies.record(1000);
+        assertEquals(1000, latencies.percentile(100));
+        assertTrue(latencies.toString().contains("p50=51"));
+    }
+}
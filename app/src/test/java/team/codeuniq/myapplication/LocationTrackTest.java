@@ -0,0 +1,127 @@
+package team.codeuniq.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LocationTrackTest {
+
+    private static final long SECOND_NS = 1_000_000_000L;
+    private static final double LAT = 19.0760, LON = 72.8777;
+    private static final double METRES_PER_DEGREE = 111_195.0;
+
+    private final LocationTrack track = new LocationTrack(8);
+    private final double[] out = new double[3];
+
+    // A fix the given number of metres north of (LAT, LON), heading north at 10 m/s
+    private boolean fix(long seconds, double northM, float accuracyM) {
+        return track.add(seconds * SECOND_NS, LAT + northM / METRES_PER_DEGREE, LON, 10f, 0f, accuracyM);
+    }
+
+    private double northOf(double[] position) {
+        return (position[0] - LAT) * METRES_PER_DEGREE;
+    }
+
+    @Test
+    public void empty_hasNoPosition() {
+        assertEquals(LocationTrack.METHOD_NONE, track.positionAt(SECOND_NS, out));
+    }
+
+    @Test
+    public void betweenFixes_interpolates() {
+        fix(10, 0, 4f);
+        fix(11, 10, 8f);
+        assertEquals(LocationTrack.METHOD_INTERPOLATED, track.positionAt(10 * SECOND_NS + SECOND_NS / 4, out));
+        assertEquals(2.5, northOf(out), 1e-3);
+        assertEquals(LON, out[1], 1e-9);
+        assertEquals(5.0, out[2], 1e-6);
+    }
+
+    @Test
+    public void atAFix_returnsThatFix() {
+        fix(10, 0, 4f);
+        fix(11, 10, 8f);
+        assertEquals(LocationTrack.METHOD_NEAREST_FIX, track.positionAt(11 * SECOND_NS, out));
+        assertEquals(10.0, northOf(out), 1e-3);
+    }
+
+    @Test
+    public void beforeTheFirstFix_returnsIt() {
+        fix(10, 0, 4f);
+        assertEquals(LocationTrack.METHOD_NEAREST_FIX, track.positionAt(9 * SECOND_NS, out));
+        assertEquals(0.0, northOf(out), 1e-6);
+    }
+
+    @Test
+    public void pastTheLastFix_deadReckons() {
+        fix(10, 0, 4f);
+        assertEquals(LocationTrack.METHOD_DEAD_RECKONED, track.positionAt(12 * SECOND_NS, out));
+        assertEquals(20.0, northOf(out), 0.01);
+        assertEquals(LON, out[1], 1e-9);
+        assertEquals(4.0 + 20 * 0.1, out[2], 1e-3);
+    }
+
+    @Test
+    public void pastTheCap_staysAtFiveSecondsAndLosesAccuracy() {
+        fix(10, 0, 4f);
+        assertEquals(LocationTrack.METHOD_DEAD_RECKONED, track.positionAt(15 * SECOND_NS, out));
+        assertEquals(50.0, northOf(out), 0.01);
+
+        assertEquals(LocationTrack.METHOD_DEAD_RECKONED, track.positionAt(18 * SECOND_NS, out));
+        assertEquals(50.0, northOf(out), 0.01);
+        // 5 s extrapolated, 3 s (30 m) not covered
+        assertEquals(4.0 + 50 * 0.1 + 30, out[2], 1e-3);
+    }
+
+    @Test
+    public void withoutBearingOrWhenDisabled_returnsTheLastFix() {
+        track.add(10 * SECOND_NS, LAT, LON, 10f, Float.NaN, 4f);
+        assertEquals(LocationTrack.METHOD_NEAREST_FIX, track.positionAt(12 * SECOND_NS, out));
+
+        fix(11, 10, 4f);
+        track.setDeadReckoningEnabled(false);
+        assertEquals(LocationTrack.METHOD_NEAREST_FIX, track.positionAt(12 * SECOND_NS, out));
+        assertEquals(10.0, northOf(out), 1e-3);
+    }
+
+    @Test
+    public void longGap_isNotInterpolated() {
+        fix(10, 0, 4f);
+        fix(30, 200, 4f);
+        assertEquals(LocationTrack.METHOD_NEAREST_FIX, track.positionAt(14 * SECOND_NS, out));
+        assertEquals(0.0, northOf(out), 1e-6);
+        assertEquals(LocationTrack.METHOD_NEAREST_FIX, track.positionAt(26 * SECOND_NS, out));
+        assertEquals(200.0, northOf(out), 1e-3);
+    }
+
+    @Test
+    public void coarseFix_isRejectedWhileAGoodOneIsRecent() {
+        assertTrue(fix(10, 0, 5f));
+        // A 500 m network fix a second later would drag interpolation off the road
+        assertFalse(fix(11, 300, 500f));
+        assertEquals(1, track.size());
+        // Close in accuracy, or after a long gap, it is kept
+        assertTrue(fix(12, 20, 15f));
+        assertTrue(fix(30, 200, 500f));
+        assertEquals(3, track.size());
+    }
+
+    @Test
+    public void outOfOrderFix_isRejected() {
+        assertTrue(fix(10, 0, 5f));
+        assertFalse(fix(10, 5, 5f));
+        assertFalse(fix(9, 5, 5f));
+        assertEquals(10 * SECOND_NS, track.latestFixTime());
+    }
+
+    @Test
+    public void fullTrack_dropsTheOldest() {
+        for (int s = 0; s < 10; s++) fix(10 + s, 10 * s, 4f);
+        assertEquals(8, track.size());
+        // The first two fixes are gone; before the oldest kept one its position is returned
+        assertEquals(LocationTrack.METHOD_NEAREST_FIX, track.positionAt(10 * SECOND_NS, out));
+        assertEquals(20.0, northOf(out), 1e-3);
+        assertEquals(LocationTrack.METHOD_INTERPOLATED, track.positionAt(15 * SECOND_NS + SECOND_NS / 2, out));
+        assertEquals(55.0, northOf(out), 1e-3);
+    }
+}
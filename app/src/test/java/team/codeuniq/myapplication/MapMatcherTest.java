@@ -0,0 +1,113 @@
+package team.codeuniq.myapplication;
+
+import org.junit.After;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+import team.codeuniq.formats.RoadNetworkIndex;
+import team.codeuniq.formats.RoadNetworkWriter;
+
+import static org.junit.Assert.*;
+
+public class MapMatcherTest {
+
+    private static final double LAT = 19.0, LON = 72.8;
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private MapMatcher matcher;
+
+    @After
+    public void close() {
+        if (matcher != null) matcher.close();
+    }
+
+    private static double north(double meters) {
+        return RoadNetworkIndex.metersToLatDegrees(meters);
+    }
+
+    private static double east(double meters) {
+        return RoadNetworkIndex.metersToLonDegrees(meters, LAT);
+    }
+
+    private MapMatcher open(RoadNetworkWriter writer) throws IOException {
+        File file = folder.newFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            writer.write(out, RoadNetworkWriter.DEFAULT_NODE_SIZE);
+        }
+        matcher = new MapMatcher(new RoadNetworkIndex(file));
+        return matcher;
+    }
+
+    // Two east-west roads 25 m apart, e.g. a main road and its service road
+    private MapMatcher parallelRoads() throws IOException {
+        RoadNetworkWriter writer = new RoadNetworkWriter();
+        writer.add(10, LAT, LON, LAT, LON + east(200));
+        writer.add(11, LAT + north(25), LON, LAT + north(25), LON + east(200));
+        return open(writer);
+    }
+
+    @Test
+    public void withoutTrack_nearestRoadWins() throws IOException {
+        MapMatcher matcher = parallelRoads();
+        assertTrue(matcher.match(LAT + north(14), LON + east(100), 15f, 90f));
+        assertEquals(11, matcher.segmentId);
+        assertEquals(11, matcher.distanceM, 0.1);
+        assertEquals(100, matcher.offsetM, 0.1);
+    }
+
+    @Test
+    public void parallelRoad_trackKeepsTheDrivenRoad() throws IOException {
+        MapMatcher matcher = parallelRoads();
+        matcher.onFix(LAT, LON + east(60), 5f, 90f);
+
+        // A detection geotagged nearer the other road stays on the one being driven
+        assertTrue(matcher.match(LAT + north(14), LON + east(100), 15f, 90f));
+        assertEquals(10, matcher.segmentId);
+        assertEquals(14, matcher.distanceM, 0.1);
+
+        // Poor fixes don't move the track
+        matcher.onFix(LAT + north(25), LON + east(80), 40f, 90f);
+        assertTrue(matcher.match(LAT + north(14), LON + east(100), 15f, 90f));
+        assertEquals(10, matcher.segmentId);
+
+        matcher.resetTrack();
+        assertTrue(matcher.match(LAT + north(14), LON + east(100), 15f, 90f));
+        assertEquals(11, matcher.segmentId);
+    }
+
+    @Test
+    public void heading_isComparedModulo180() throws IOException {
+        // A north-south road crossing an east-west one; the fix is 5 m from both
+        RoadNetworkWriter writer = new RoadNetworkWriter();
+        writer.add(1, LAT, LON, LAT, LON + east(100));                                // bearing 90
+        writer.add(2, LAT - north(50), LON + east(50), LAT + north(50), LON + east(50)); // bearing 0
+        MapMatcher matcher = open(writer);
+        double lat = LAT + north(5), lon = LON + east(45);
+
+        // Either direction along a road matches it
+        assertTrue(matcher.match(lat, lon, 10f, 90f));
+        assertEquals(1, matcher.segmentId);
+        assertTrue(matcher.match(lat, lon, 10f, 270f));
+        assertEquals(1, matcher.segmentId);
+        assertTrue(matcher.match(lat, lon, 10f, 0f));
+        assertEquals(2, matcher.segmentId);
+        assertTrue(matcher.match(lat, lon, 10f, 185f));
+        assertEquals(2, matcher.segmentId);
+        assertTrue(matcher.match(lat, lon, 10f, 355f));
+        assertEquals(2, matcher.segmentId);
+    }
+
+    @Test
+    public void nothingWithinRadius_noMatch() throws IOException {
+        MapMatcher matcher = parallelRoads();
+        assertFalse(matcher.match(LAT - north(500), LON, 5f, Float.NaN));
+    }
+}
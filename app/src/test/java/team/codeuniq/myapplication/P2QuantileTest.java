@@ -0,0 +1,77 @@
+package team.codeuniq.myapplication;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class P2QuantileTest {
+
+    private static final int SAMPLES = 200_000;
+
+    private static double exactQuantile(double[] values, double p) {
+        double[] sorted = values.clone();
+        Arrays.sort(sorted);
+        return sorted[(int) Math.round(p * (sorted.length - 1))];
+    }
+
+    private static void assertTracksExact(double[] values, double p, double tolerance) {
+        P2Quantile estimator = new P2Quantile(p);
+        for (double v : values) estimator.add(v);
+        double exact = exactQuantile(values, p);
+        assertEquals("p=" + p, exact, estimator.getQuantile(), tolerance);
+        assertEquals(values.length, estimator.getCount());
+    }
+
+    @Test
+    public void normalDistribution_matchesExactQuantiles() {
+        Random random = new Random(42);
+        double[] values = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) values[i] = 9.81 + random.nextGaussian();
+
+        assertTracksExact(values, 0.5, 0.02);
+        assertTracksExact(values, 0.9, 0.02);
+        assertTracksExact(values, 0.999, 0.1);
+    }
+
+    @Test
+    public void skewedDistribution_matchesExactQuantiles() {
+        // |Z| road noise is one-sided and heavy-tailed; exponential is a fair stand-in
+        Random random = new Random(7);
+        double[] values = new double[SAMPLES];
+        for (int i = 0; i < SAMPLES; i++) values[i] = -Math.log(1 - random.nextDouble());
+
+        assertTracksExact(values, 0.5, 0.02);
+        assertTracksExact(values, 0.999, 0.3);
+    }
+
+    @Test
+    public void fewerThanFiveSamples_areExact() {
+        P2Quantile median = new P2Quantile(0.5);
+        assertTrue(Double.isNaN(median.getQuantile()));
+        median.add(3);
+        median.add(1);
+        median.add(2);
+        assertEquals(2, median.getQuantile(), 0);
+    }
+
+    @Test
+    public void restoredState_continuesLikeTheOriginal() {
+        Random random = new Random(1);
+        P2Quantile original = new P2Quantile(0.9);
+        for (int i = 0; i < 10_000; i++) original.add(random.nextGaussian());
+
+        P2Quantile restored = new P2Quantile(0.9);
+        assertTrue(restored.restore(original.serialise()));
+        for (int i = 0; i < 10_000; i++) {
+            double v = random.nextGaussian();
+            original.add(v);
+            restored.add(v);
+        }
+        assertEquals(original.getCount(), restored.getCount());
+        assertEquals(original.getQuantile(), restored.getQuantile(), 0);
+        assertFalse(restored.restore("1,2,3"));
+    }
+}
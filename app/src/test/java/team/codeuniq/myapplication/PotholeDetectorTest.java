@@ -0,0 +1,153 @@
+package team.codeuniq.myapplication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class PotholeDetectorTest {
+
+    private static final float GRAVITY = 9.8f;
+    private static final float SPEED_KMH = 40f;
+    private static final long SAMPLE_MS = 20; // 50 Hz
+    private static final DetectorConfig CONFIG = DetectorConfig.DEFAULTS;
+
+    private PotholeDetector detector;
+    private long nowMs;
+    private final List<PotholeDetector.Candidate> candidates = new ArrayList<>();
+    private final List<Long> emittedAtMs = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        // No model file: the hand-set prior scores, and nothing is rejected
+        detector = new PotholeDetector(new ConfidenceScorer(new File("no_such_model.json")));
+        nowMs = 10_000;
+    }
+
+    private void feed(float... values) {
+        for (float z : values) {
+            nowMs += SAMPLE_MS;
+            detector.add(z, CONFIG.bufferSize);
+            PotholeDetector.Candidate candidate = detector.check(SPEED_KMH, nowMs * 1_000_000L, nowMs, CONFIG);
+            if (candidate != null) {
+                candidates.add(candidate);
+                emittedAtMs.add(nowMs);
+            }
+        }
+    }
+
+    private void quiet(int samples) {
+        for (int i = 0; i < samples; i++) feed(GRAVITY);
+    }
+
+    @Test
+    public void threshold_isDynamic() {
+        // T0 + S × (V - L) = 11 + 0.1 × 35
+        assertEquals(14.5f, CONFIG.dynamicThreshold(SPEED_KMH), 1e-4f);
+    }
+
+    @Test
+    public void fewerThanMinSamples_noCandidate() {
+        for (int i = 0; i < PotholeDetector.MIN_SAMPLES - 2; i++) feed(GRAVITY);
+        feed(30f); // the ninth sample
+        quiet(20);
+        assertTrue(candidates.isEmpty());
+    }
+
+    @Test
+    public void belowThreshold_noCandidate() {
+        quiet(20);
+        feed(14.4f, -14.4f);
+        quiet(20);
+        assertTrue(candidates.isEmpty());
+    }
+
+    @Test
+    public void crossing_scoredOnceThePostPeakSamplesArrive() {
+        quiet(20);
+        feed(13f);
+        feed(25f);
+        long peakMs = nowMs;
+        feed(-11f, GRAVITY, GRAVITY, GRAVITY);
+        assertTrue("scored before the post-peak window is in", candidates.isEmpty());
+        feed(GRAVITY);
+        assertEquals(1, candidates.size());
+
+        PotholeDetector.Candidate candidate = candidates.get(0);
+        assertEquals(peakMs + 5 * SAMPLE_MS, (long) emittedAtMs.get(0));
+        assertEquals(25f, candidate.zt, 0);
+        assertEquals(13f, candidate.zPrev, 0);   // largest of the five before, not the peak
+        assertEquals(-11f, candidate.zNext, 0);  // largest of the five after
+        assertEquals(peakMs * 1_000_000L, candidate.timestampNs);
+        assertEquals(14.5f, candidate.threshold, 1e-4f);
+        assertEquals(SPEED_KMH, candidate.speed, 0);
+        assertEquals(peakMs, candidate.intervalSinceLastDetection); // no earlier detection
+        assertFalse(candidate.rejected);
+        assertTrue(candidate.confidence >= 0 && candidate.confidence <= 100);
+
+        quiet(20);
+        assertEquals(1, candidates.size());
+    }
+
+    @Test
+    public void pendingPeak_followsALargerSampleOfTheSameImpact() {
+        quiet(20);
+        feed(20f, -30f);
+        long peakMs = nowMs;
+        quiet(10);
+        assertEquals(1, candidates.size());
+        assertEquals(-30f, candidates.get(0).zt, 0);
+        assertEquals(20f, candidates.get(0).zPrev, 0);
+        assertEquals(peakMs * 1_000_000L, candidates.get(0).timestampNs);
+    }
+
+    @Test
+    public void cooldown_suppressesWeakerCrossings() {
+        quiet(20);
+        feed(25f);
+        quiet(50); // 1 s
+        feed(20f);
+        quiet(20);
+        assertEquals(1, candidates.size());
+
+        // Outside the cooldown anything over the threshold counts again
+        quiet(150);
+        feed(20f);
+        quiet(10);
+        assertEquals(2, candidates.size());
+        assertEquals(20f, candidates.get(1).zt, 0);
+        assertTrue(candidates.get(1).intervalSinceLastDetection > CONFIG.detectionCooldownMs);
+    }
+
+    @Test
+    public void cooldown_letsAStrongerSeparateImpactThrough() {
+        quiet(20);
+        feed(20f);
+        long firstMs = nowMs;
+        quiet(10); // 200 ms: too close to be a separate impact
+        feed(30f);
+        quiet(10);
+        assertEquals(1, candidates.size());
+
+        quiet(30);
+        feed(30f);
+        long secondMs = nowMs;
+        quiet(10);
+        assertEquals(2, candidates.size());
+        assertEquals(secondMs - firstMs, candidates.get(1).intervalSinceLastDetection);
+    }
+
+    @Test
+    public void clear_dropsThePendingPeak() {
+        quiet(20);
+        feed(25f);
+        detector.clear();
+        quiet(20);
+        assertTrue(candidates.isEmpty());
+        assertEquals(20, detector.size());
+    }
+}
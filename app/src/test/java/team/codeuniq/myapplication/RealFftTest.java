@@ -0,0 +1,65 @@
+package team.codeuniq.myapplication;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class RealFftTest {
+
+    // Power of bins 0..n/2 by the textbook DFT
+    private static double[] naivePower(float[] x) {
+        int n = x.length;
+        double[] power = new double[n / 2 + 1];
+        for (int k = 0; k <= n / 2; k++) {
+            double re = 0, im = 0;
+            for (int t = 0; t < n; t++) {
+                double angle = -2 * Math.PI * k * t / n;
+                re += x[t] * Math.cos(angle);
+                im += x[t] * Math.sin(angle);
+            }
+            power[k] = re * re + im * im;
+        }
+        return power;
+    }
+
+    @Test
+    public void powerSpectrum_matchesNaiveDft() {
+        Random random = new Random(3);
+        for (int n : new int[]{4, 8, 64, 128, 512}) {
+            RealFft fft = new RealFft(n);
+            float[] x = new float[n];
+            for (int i = 0; i < n; i++) x[i] = (float) random.nextGaussian();
+            double[] expected = naivePower(x);
+
+            float[] re = x.clone();
+            float[] im = new float[n];
+            float[] power = new float[n / 2 + 1];
+            fft.powerSpectrum(re, im, power);
+
+            for (int k = 0; k <= n / 2; k++) {
+                assertEquals("n=" + n + " bin " + k, expected[k], power[k], 1e-3 * (1 + expected[k]));
+            }
+        }
+    }
+
+    @Test
+    public void sineLandsInItsBin() {
+        int n = 128;
+        float[] re = new float[n];
+        for (int i = 0; i < n; i++) re[i] = (float) Math.sin(2 * Math.PI * 10 * i / n);
+        float[] power = new float[n / 2 + 1];
+        new RealFft(n).powerSpectrum(re, new float[n], power);
+
+        assertEquals((n / 2.0) * (n / 2.0), power[10], 1e-2 * n * n);
+        for (int k = 0; k <= n / 2; k++) {
+            if (k != 10) assertTrue("bin " + k, power[k] < 1e-3);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsSizesThatAreNotPowersOfTwo() {
+        new RealFft(96);
+    }
+}
@@ -0,0 +1,130 @@
+package team.codeuniq.myapplication;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class RoughnessProfileTest {
+
+    private static final long SAMPLE_NS = 20_000_000L; // 50 Hz
+    private static final long SECOND_NS = 1_000_000_000L;
+    private static final float SPEED_MPS = 15f;
+    private static final double START_LAT = 19.0760, START_LON = 72.8777;
+    private static final double METRES_PER_DEGREE = 111_195.0;
+    // North-east at 45°, so both coordinates change from point to point
+    private static final double NORTH = Math.sqrt(0.5), EAST = Math.sqrt(0.5);
+
+    private final LocationTrack track = new LocationTrack(1000);
+    private final SpeedEstimator speedEstimator = new SpeedEstimator();
+    private final RoughnessProfile profile = new RoughnessProfile(track, speedEstimator);
+    private long nowNs = SECOND_NS;
+
+    private static double latAt(double metres) {
+        return START_LAT + NORTH * metres / METRES_PER_DEGREE;
+    }
+
+    private static double lonAt(double metres) {
+        return START_LON + EAST * metres / (METRES_PER_DEGREE * Math.cos(Math.toRadians(START_LAT)));
+    }
+
+    private static double metresBetween(double[] points, int p, int q) {
+        double north = (points[3 * q] - points[3 * p]) * METRES_PER_DEGREE;
+        double east = (points[3 * q + 1] - points[3 * p + 1]) * METRES_PER_DEGREE
+                * Math.cos(Math.toRadians(START_LAT));
+        return Math.sqrt(north * north + east * east);
+    }
+
+    // One fix per second along the road, ahead of the samples that need them
+    private void addFixes(int seconds) {
+        for (int s = 0; s <= seconds; s++) {
+            double metres = s * SPEED_MPS;
+            track.add(SECOND_NS + s * SECOND_NS, latAt(metres), lonAt(metres), SPEED_MPS, 45f, 5f);
+        }
+    }
+
+    // A flat phone on a road with a 2 Hz vertical vibration of the given amplitude
+    private RoughnessProfile.Chunk drive(int seconds, float amplitude) {
+        RoughnessProfile.Chunk full = null;
+        for (int i = 0; i < seconds * 50; i++) {
+            nowNs += SAMPLE_NS;
+            float z = 9.81f + amplitude * (float) Math.sin(2 * Math.PI * 2 * i / 50.0);
+            speedEstimator.onAccelerometer(0f, 0f, z, nowNs);
+            if (profile.addAccelerometer(0f, 0f, z, nowNs, SPEED_MPS * 3.6f)) full = profile.takeChunk();
+        }
+        return full;
+    }
+
+    @Test
+    public void chunk_decodesToTheStartAndEveryEndPoint() {
+        addFixes(200);
+        drive(145, 1.5f); // 2.2 km: 21 whole segments
+
+        RoughnessProfile.Chunk chunk = profile.takeChunk();
+        assertEquals(21, chunk.segmentCount);
+        double[] points = RoughnessProfile.decode(chunk.polyline);
+        assertEquals(3 * (chunk.segmentCount + 1), points.length);
+
+        // The first segment starts with the first sample, one sample after the first fix
+        double metres = SPEED_MPS * SAMPLE_NS / 1e9 * 2;
+        assertEquals(latAt(metres), points[0], 2e-5);
+        assertEquals(lonAt(metres), points[1], 2e-5);
+        assertEquals(0, points[2], 0);
+
+        // RMS of the sine over 15 m/s
+        float expectedIndex = (float) (100 * 1.5 / Math.sqrt(2) / SPEED_MPS);
+        for (int p = 1; p <= chunk.segmentCount; p++) {
+            // Segments close on the first sample past SEGMENT_M; positions are rounded to ~1 m
+            assertEquals("length " + p, RoughnessProfile.SEGMENT_M, metresBetween(points, p - 1, p), 2.0);
+            assertEquals("index " + p, expectedIndex, points[3 * p + 2], 0.15);
+        }
+        assertEquals(expectedIndex, chunk.meanIndex, 0.15);
+    }
+
+    @Test
+    public void chunk_staysNearFiveBytesPerSegment() {
+        addFixes(1500);
+        RoughnessProfile.Chunk chunk = drive(1500, 1.5f);
+        assertNotNull("a full chunk after 22 km", chunk);
+        assertEquals(RoughnessProfile.MAX_SEGMENTS_PER_CHUNK, chunk.segmentCount);
+
+        // The start point is absolute: up to 5 characters per coordinate and 1 for its index
+        int startPoint = 11;
+        assertTrue(chunk.polyline.length() + " bytes",
+                chunk.polyline.length() <= startPoint + 5 * chunk.segmentCount);
+    }
+
+    @Test
+    public void nextChunk_startsWhereThePreviousEnded() {
+        addFixes(1500);
+        RoughnessProfile.Chunk first = drive(1500, 0.5f);
+        RoughnessProfile.Chunk second = profile.takeChunk();
+        double[] a = RoughnessProfile.decode(first.polyline);
+        double[] b = RoughnessProfile.decode(second.polyline);
+        // One sample (0.3 m) apart, plus the 1e-5° rounding
+        assertEquals(a[a.length - 3], b[0], 2e-5);
+        assertEquals(a[a.length - 2], b[1], 2e-5);
+        assertEquals(first.endElapsedNs + SAMPLE_NS, second.startElapsedNs);
+    }
+
+    @Test
+    public void noPosition_dropsTheSegment() {
+        drive(20, 1.5f); // 300 m without a single fix
+        assertFalse(profile.hasSegments());
+        assertNull(profile.takeChunk());
+    }
+
+    @Test
+    public void encodeSigned_matchesTheReferencePolyline() {
+        // Google's example: (38.5, -120.2), (40.7, -120.95), (43.252, -126.453)
+        StringBuilder out = new StringBuilder();
+        long[][] points = {{3850000, -12020000}, {4070000, -12095000}, {4325200, -12645300}};
+        long prevLat = 0, prevLon = 0;
+        for (long[] p : points) {
+            RoughnessProfile.encodeSigned(p[0] - prevLat, out);
+            RoughnessProfile.encodeSigned(p[1] - prevLon, out);
+            prevLat = p[0];
+            prevLon = p[1];
+        }
+        assertEquals("_p~iF~ps|U_ulLnnqC_mqNvxq`@", out.toString());
+    }
+}
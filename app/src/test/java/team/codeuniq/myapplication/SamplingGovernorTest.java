@@ -0,0 +1,113 @@
+package team.codeuniq.myapplication;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import team.codeuniq.myapplication.SamplingGovernor.Mode;
+
+import static org.junit.Assert.*;
+
+public class SamplingGovernorTest {
+
+    private static final float THRESHOLD_KMH = 20f; // DetectorConfig.speedThreshold
+
+    private final List<Mode> changes = new ArrayList<>();
+    private final SamplingGovernor governor = new SamplingGovernor((previous, current) -> changes.add(current));
+
+    @Before
+    public void setUp() {
+        governor.start(0);
+    }
+
+    private Mode update(float speedKmh, long nowMs) {
+        governor.update(speedKmh, THRESHOLD_KMH, nowMs);
+        return governor.getMode();
+    }
+
+    @Test
+    public void startsDriving() {
+        assertEquals(Mode.DRIVING, governor.getMode());
+        assertEquals(Mode.DRIVING, update(THRESHOLD_KMH + 10, 100_000));
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void dwell_holdsTheModeForThreeSeconds() {
+        assertEquals(Mode.DRIVING, update(10f, 1000));
+        assertEquals(Mode.DRIVING, update(10f, 2999));
+        assertEquals(Mode.SLOW, update(10f, 3000));
+
+        // Straight back up, but not before the new mode has had its dwell time
+        assertEquals(Mode.SLOW, update(50f, 5000));
+        assertEquals(Mode.DRIVING, update(50f, 6000));
+        assertEquals(List.of(Mode.SLOW, Mode.DRIVING), changes);
+    }
+
+    @Test
+    public void hysteresis_aroundTheSpeedThreshold() {
+        // Within 2 km/h of the threshold nothing changes in either direction
+        assertEquals(Mode.DRIVING, update(THRESHOLD_KMH - 1.9f, 10_000));
+        assertEquals(Mode.SLOW, update(THRESHOLD_KMH - 2.1f, 11_000));
+        assertEquals(Mode.SLOW, update(THRESHOLD_KMH + 1.9f, 20_000));
+        assertEquals(Mode.DRIVING, update(THRESHOLD_KMH + 2.1f, 21_000));
+    }
+
+    @Test
+    public void followsTheConfiguredThreshold() {
+        governor.update(25f, 30f, 10_000);
+        assertEquals(Mode.SLOW, governor.getMode());
+        governor.update(25f, 15f, 20_000);
+        assertEquals(Mode.DRIVING, governor.getMode());
+    }
+
+    @Test
+    public void highSpeed_staysAtTheTunedRate() {
+        assertEquals(Mode.DRIVING, update(150f, 60_000));
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void sustainedStop_suspendsAndGpsSpeedWakes() {
+        assertEquals(Mode.SLOW, update(1f, 5000));
+        assertEquals(Mode.SLOW, update(1f, 34_999)); // stopped since 5 s
+        assertEquals(Mode.STATIONARY, update(1f, 35_000));
+
+        // No dwell time for waking: the vehicle is already moving
+        assertEquals(Mode.STATIONARY, update(4f, 35_100));
+        assertEquals(Mode.SLOW, update(6f, 35_200));
+        assertEquals(List.of(Mode.SLOW, Mode.STATIONARY, Mode.SLOW), changes);
+    }
+
+    @Test
+    public void briefMovement_restartsTheStopTimer() {
+        update(1f, 5000);
+        update(10f, 20_000);
+        assertEquals(Mode.SLOW, update(1f, 21_000));
+        assertEquals(Mode.SLOW, update(1f, 50_999));
+        assertEquals(Mode.STATIONARY, update(1f, 51_000));
+    }
+
+    @Test
+    public void significantMotion_wakesOnlyWhenStationary() {
+        governor.onSignificantMotion(1000);
+        assertEquals(Mode.DRIVING, governor.getMode());
+
+        update(0f, 5000);
+        update(0f, 35_000);
+        assertEquals(Mode.STATIONARY, governor.getMode());
+        governor.onSignificantMotion(40_000);
+        assertEquals(Mode.SLOW, governor.getMode());
+        // The stop timer starts over, so the next stationary sample doesn't suspend at once
+        assertEquals(Mode.SLOW, update(0f, 44_000));
+    }
+
+    @Test
+    public void summary_countsTimePerMode() {
+        update(10f, 3000);
+        update(50f, 10_000);
+        assertEquals("STATIONARY=0s SLOW=7s DRIVING=5s transitions=2", governor.summary(12_000));
+    }
+}
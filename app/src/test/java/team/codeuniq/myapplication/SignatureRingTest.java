@@ -0,0 +1,83 @@
+package team.codeuniq.myapplication;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+
+import team.codeuniq.formats.SignatureReader;
+
+import static org.junit.Assert.*;
+
+public class SignatureRingTest {
+
+    private static final long EVENT_NS = 100_000_000_000L;
+    private static final long SAMPLE_NS = 5_003_333L; // ~200 Hz, not a multiple of 10 µs
+
+    private final SignatureRing ring = new SignatureRing();
+
+    private void add(int i, long timestampNs) {
+        ring.addGyroscope(0.001f * i, -0.002f * i, 0.5f);
+        ring.addAccelerometer(0.1f * i, -9.81f, 0.25f * i - 20f, timestampNs);
+    }
+
+    @Test
+    public void export_packsTheWindowAndReadsBack() throws IOException {
+        for (int i = 0; i < 200; i++) add(i, EVENT_NS - 500_000_000L + i * SAMPLE_NS);
+
+        byte[] blob = ring.export(EVENT_NS, 200, 100);
+        SignatureReader signature = new SignatureReader(blob);
+        int count = signature.getSampleCount();
+        assertEquals(SignatureRing.sampleCount(blob), count);
+        assertEquals(SignatureReader.VERSION, signature.getVersion());
+        // 20-byte header, 2 bytes per delta, 12 per sample
+        assertEquals(20 + (count - 1) * 2 + count * 12, blob.length);
+
+        // First sample at or after eventNs - 200 ms
+        int first = (int) Math.ceil((500_000_000.0 - 200_000_000.0) / SAMPLE_NS);
+        long[] offsets = signature.getOffsetsNs();
+        for (int i = 0; i < count; i++) {
+            long expected = -500_000_000L + (first + i) * SAMPLE_NS;
+            // 1 µs for the first offset, half a unit for each quantized time
+            assertEquals("sample " + i, expected, offsets[i], 1_000 + SignatureReader.DELTA_UNIT_NS / 2);
+            assertEquals(0.1f * (first + i), signature.getAccel(0)[i], 1f / 400f);
+            assertEquals(-9.81f, signature.getAccel(1)[i], 1f / 400f);
+            assertEquals(0.25f * (first + i) - 20f, signature.getAccel(2)[i], 1f / 400f);
+            assertEquals(-0.002f * (first + i), signature.getGyro(1)[i], 1f / 1000f);
+        }
+        assertTrue(offsets[count - 1] <= 100_000_000L);
+    }
+
+    @Test
+    public void longGap_keepsItsLength() throws IOException {
+        add(0, EVENT_NS - 2_000_000_000L);
+        add(1, EVENT_NS - 1_000_000L);   // a ~2 s sensor stall before this one
+        add(2, EVENT_NS + 4_000_000L);
+        add(3, EVENT_NS + 70_000_000_000L); // beyond even an i32 of µs
+
+        byte[] blob = ring.export(EVENT_NS, 5_000, 100_000);
+        SignatureReader signature = new SignatureReader(blob);
+        assertEquals(4, signature.getSampleCount());
+        assertEquals(20 + 3 * 2 + 2 * 4 + 4 * 12, blob.length);
+
+        long[] offsets = signature.getOffsetsNs();
+        assertEquals(-2_000_000_000L, offsets[0]);
+        assertEquals(-1_000_000L, offsets[1]);
+        assertEquals(4_000_000L, offsets[2]);
+        assertEquals(70_000_000_000L, offsets[3]);
+    }
+
+    @Test
+    public void emptyWindow_exportsNothing() {
+        assertNull(ring.export(EVENT_NS, 100, 100));
+        add(0, EVENT_NS - 1_000_000_000L);
+        assertNull(ring.export(EVENT_NS, 100, 100));
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedBlob_fails() throws IOException {
+        for (int i = 0; i < 10; i++) add(i, EVENT_NS + i * SAMPLE_NS);
+        byte[] blob = ring.export(EVENT_NS, 0, 100);
+        new SignatureReader(Arrays.copyOf(blob, blob.length - 1));
+    }
+}
@@ -0,0 +1,116 @@
+package team.codeuniq.myapplication;
+
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SpeedEstimatorTest {
+
+    private static final float G = 9.81f;
+    private static final long SAMPLE_NS = 20_000_000L; // 50 Hz
+    private static final long SECOND_NS = 1_000_000_000L;
+
+    // Phone tilted 30° in its mount: gravity and the vehicle's forward axis both have
+    // y and z components in device coordinates
+    private static final double TILT = Math.toRadians(30);
+    private static final float UP_Y = (float) Math.sin(TILT), UP_Z = (float) Math.cos(TILT);
+    private static final float FORWARD_Y = (float) Math.cos(TILT), FORWARD_Z = (float) -Math.sin(TILT);
+
+    private final SpeedEstimator estimator = new SpeedEstimator();
+    private final Random vibration = new Random(1);
+    private long nowNs = SECOND_NS;
+    private double trueSpeed;
+
+    // Drives for `seconds` at a constant acceleration (m/s^2), with a GPS fix at the end
+    // of every second when fixes is true
+    private void drive(double acceleration, int seconds, boolean fixes) {
+        for (int s = 0; s < seconds; s++) {
+            for (int i = 0; i < SECOND_NS / SAMPLE_NS; i++) {
+                nowNs += SAMPLE_NS;
+                trueSpeed += acceleration * SAMPLE_NS / 1e9;
+                float a = (float) acceleration;
+                estimator.onAccelerometer(noise(),
+                        G * UP_Y + a * FORWARD_Y + noise(),
+                        G * UP_Z + a * FORWARD_Z + noise(), nowNs);
+            }
+            if (fixes) estimator.onGpsSpeed((float) trueSpeed, 0.3f, nowNs);
+        }
+    }
+
+    private float noise() {
+        return (vibration.nextFloat() - 0.5f);
+    }
+
+    private float speed() {
+        return estimator.getSpeedKmh() / 3.6f;
+    }
+
+    // Steady driving, then speed changes in both directions so the forward axis is learned
+    private void learnMount() {
+        trueSpeed = 15;
+        drive(0, 10, true);
+        for (int i = 0; i < 5; i++) {
+            drive(1, 3, true);
+            drive(-1, 3, true);
+        }
+        drive(0, 5, true);
+    }
+
+    @Test
+    public void constantBraking_followedBetweenFixes() {
+        learnMount();
+        assertEquals(trueSpeed, speed(), 0.3);
+
+        // 3 m/s^2 for four seconds without any fix: the accelerometer alone carries the estimate
+        drive(-3, 4, false);
+        assertEquals(3.0, trueSpeed, 1e-6);
+        assertEquals(trueSpeed, speed(), 1.0);
+    }
+
+    @Test
+    public void constantBraking_trackedWithFixes() {
+        learnMount();
+        // Just before every fix the prediction is already close to the true speed
+        for (int s = 0; s < 4; s++) {
+            drive(-3, 1, false);
+            assertEquals("second " + s, trueSpeed, speed(), 0.5);
+            estimator.onGpsSpeed((float) trueSpeed, 0.3f, nowNs);
+        }
+    }
+
+    @Test
+    public void fix_correctsByTheKalmanGain() {
+        assertFalse(estimator.hasFix());
+        estimator.onGpsSpeed(10f, 1f, nowNs);
+        assertTrue(estimator.hasFix());
+        assertEquals(10f, speed(), 1e-4f);
+        assertEquals(3.6f, estimator.getUncertaintyKmh(), 1e-4f);
+
+        // Equal variances: the estimate moves halfway and the variance halves
+        estimator.onGpsSpeed(12f, 1f, nowNs + SECOND_NS);
+        assertEquals(11f, speed(), 1e-4f);
+        assertEquals(Math.sqrt(0.5) * 3.6, estimator.getUncertaintyKmh(), 1e-4);
+    }
+
+    @Test
+    public void variance_growsWithPrediction() {
+        trueSpeed = 10;
+        drive(0, 1, false); // gravity settles before the first fix
+        estimator.onGpsSpeed(10f, 0.5f, nowNs);
+        assertEquals(Math.sqrt(0.25) * 3.6, estimator.getUncertaintyKmh(), 1e-4);
+
+        // 0.5 (m/s)^2 per second of prediction
+        drive(0, 2, false);
+        assertEquals(Math.sqrt(0.25 + 0.5 * 2) * 3.6, estimator.getUncertaintyKmh(), 1e-3);
+    }
+
+    @Test
+    public void reset_forgetsTheFix() {
+        estimator.onGpsSpeed(10f, 1f, nowNs);
+        estimator.reset();
+        assertFalse(estimator.hasFix());
+        assertEquals(0f, estimator.getSpeedKmh(), 0f);
+    }
+}
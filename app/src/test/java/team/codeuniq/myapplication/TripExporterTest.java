@@ -0,0 +1,106 @@
+package team.codeuniq.myapplication;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import team.codeuniq.formats.ColumnarReader;
+
+import static org.junit.Assert.*;
+
+public class TripExporterTest {
+
+    @Rule
+    public final TemporaryFolder folder = new TemporaryFolder();
+
+    private File exports() {
+        return new File(folder.getRoot(), TripExporter.EXPORT_DIR);
+    }
+
+    private static void add(TripExporter exporter, float zt) {
+        exporter.addAsync(1_700_000_000_000L, 19.076, 72.8777, 40f, zt, -12f, 13f, 5000,
+                14.5f, 14f, 3, new byte[]{1, 2, 3});
+    }
+
+    // Waits for everything queued before it on the export thread
+    private static List<File> finish(TripExporter exporter) throws Exception {
+        CompletableFuture<List<File>> pending = new CompletableFuture<>();
+        exporter.finishAsync(pending::complete);
+        return pending.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void trip_isFinishedAndReadable() throws Exception {
+        TripExporter exporter = new TripExporter(folder.getRoot());
+        exporter.startAsync("s1", "user");
+        add(exporter, -20f);
+        add(exporter, -25f);
+
+        List<File> pending = finish(exporter);
+        assertEquals(1, pending.size());
+        assertEquals("s1" + TripExporter.EXTENSION, pending.get(0).getName());
+
+        try (ColumnarReader reader = new ColumnarReader(new FileInputStream(pending.get(0)))) {
+            assertEquals("s1", reader.getMetadata().get("session_id"));
+            assertTrue(reader.nextBlock());
+            assertEquals(2, reader.getRowCount());
+            assertEquals(-25f, reader.getFloats(reader.columnIndex("zt_peak"))[1], 0f);
+            assertArrayEquals(new byte[]{1, 2, 3}, reader.getBytes(reader.columnIndex("signature"), 0));
+        }
+    }
+
+    @Test
+    public void emptyTrip_leavesNoFile() throws Exception {
+        TripExporter exporter = new TripExporter(folder.getRoot());
+        exporter.startAsync("s1", "user");
+        assertTrue(finish(exporter).isEmpty());
+        assertEquals(0, exports().list().length);
+    }
+
+    @Test
+    public void crashLeftovers_areDeletedAndFinishedExportsKept() throws Exception {
+        assertTrue(exports().mkdirs());
+        File stale = new File(exports(), "crashed" + TripExporter.EXTENSION + ".tmp");
+        File finished = new File(exports(), "earlier" + TripExporter.EXTENSION);
+        assertTrue(stale.createNewFile());
+        assertTrue(finished.createNewFile());
+
+        List<File> pending = finish(new TripExporter(folder.getRoot()));
+        assertFalse(stale.exists());
+        assertEquals(List.of(finished), pending);
+    }
+
+    @Test
+    public void openExport_survivesANewInstance() throws Exception {
+        // An activity recreated mid-trip builds a new exporter while the old file is open
+        TripExporter first = new TripExporter(folder.getRoot());
+        first.startAsync("s1", "user");
+        add(first, -20f);
+        TripExporter second = new TripExporter(folder.getRoot());
+        add(first, -21f);
+
+        List<File> pending = finish(first);
+        assertEquals(1, pending.size());
+        assertTrue(finish(second).contains(pending.get(0)));
+    }
+
+    @Test
+    public void addAfterFinish_isIgnored() throws Exception {
+        TripExporter exporter = new TripExporter(folder.getRoot());
+        exporter.startAsync("s1", "user");
+        add(exporter, -20f);
+        finish(exporter);
+        add(exporter, -30f); // a detection whose signature window ends after stop
+        List<File> pending = finish(exporter);
+        try (ColumnarReader reader = new ColumnarReader(new FileInputStream(pending.get(0)))) {
+            assertTrue(reader.nextBlock());
+            assertEquals(1, reader.getRowCount());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package team.codeuniq.myapplication;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+public class WriteBudgetQueueTest {
+
+    private final WriteBudgetQueue queue = new WriteBudgetQueue();
+
+    // Strength is |zt_peak| - dynamic_threshold = strength here
+    static Map<String, Object> event(float strength, String segment) {
+        Map<String, Object> data = new HashMap<>();
+        data.put("user_id", "user");
+        data.put("session_id", "session");
+        data.put("zt_peak", -(14.5f + strength));
+        data.put("dynamic_threshold", 14.5f);
+        data.put("segment_id", segment);
+        return data;
+    }
+
+    private WriteBudgetQueue.Entry offer(String docId, float strength, String segment, int capacity) {
+        return queue.offer(docId, event(strength, segment), null, capacity);
+    }
+
+    @Test
+    public void strengthAndSegmentKey() {
+        assertEquals(2f, WriteBudgetQueue.strengthOf(event(2f, "a")), 1e-4f);
+        assertEquals("seg:a", WriteBudgetQueue.segmentKeyOf(event(2f, "a")));
+        assertTrue(WriteBudgetQueue.isBudgeted(event(2f, "a")));
+
+        Map<String, Object> image = new HashMap<>();
+        image.put("zt_peak", null);
+        assertFalse(WriteBudgetQueue.isBudgeted(image));
+    }
+
+    @Test
+    public void fullQueue_evictsTheWeakest() {
+        assertNull(offer("a", 3f, "s1", 2));
+        assertNull(offer("b", 1f, "s2", 2));
+        assertEquals("b", offer("c", 2f, "s3", 2).docId);
+        // The offered event goes itself when it is the weakest
+        assertEquals("d", offer("d", 0.5f, "s4", 2).docId);
+        assertEquals(2, queue.size());
+    }
+
+    @Test
+    public void fullSegment_evictsItsWeakestOnly() {
+        offer("weak", 1f, "other", 10);
+        for (int i = 0; i < WriteBudgetQueue.MAX_PER_SEGMENT; i++) {
+            assertNull(offer("s" + i, 2f + i, "busy", 10));
+        }
+        assertEquals("s0", offer("strong", 9f, "busy", 10).docId);
+        assertEquals(1 + WriteBudgetQueue.MAX_PER_SEGMENT, queue.size());
+    }
+
+    @Test
+    public void equalStrength_keepsTheEarlierEvent() {
+        offer("first", 2f, "s1", 1);
+        assertEquals("second", offer("second", 2f, "s2", 1).docId);
+    }
+
+    @Test
+    public void drain_strongestFirstAndTalliesTheRest() {
+        offer("a", 1f, "s1", 10);
+        offer("b", 3f, "s1", 10);
+        offer("c", 2f, "s2", 10);
+
+        List<WriteBudgetQueue.Entry> overflow = new ArrayList<>();
+        List<WriteBudgetQueue.Entry> entries = queue.drain(2, overflow);
+        assertEquals("b", entries.get(0).docId);
+        assertEquals("c", entries.get(1).docId);
+        assertEquals(1, overflow.size());
+        assertEquals("a", overflow.get(0).docId);
+        assertEquals(0, queue.size());
+
+        WriteBudgetQueue.Evictions evictions = queue.takeEvictions();
+        assertEquals(1, evictions.count);
+        assertEquals(1f, evictions.maxStrength, 1e-4f);
+        assertEquals(Long.valueOf(1), evictions.bySegment.get("seg:s1"));
+        assertEquals("user", evictions.userId);
+        assertNull(queue.takeEvictions());
+    }
+
+    @Test
+    public void admits_agreesWithOffer() {
+        offer("a", 3f, "s1", 1);
+        assertFalse(queue.admits("b", event(1f, "s2"), 1));
+        assertTrue(queue.admits("c", event(4f, "s2"), 1));
+        assertEquals(1, queue.size());
+        assertNull(queue.takeEvictions());
+    }
+}
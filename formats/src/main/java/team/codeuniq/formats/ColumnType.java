@@ -0,0 +1,21 @@
+package team.codeuniq.formats;
+
+public enum ColumnType {
+    INT64(1),    // delta + zigzag varint
+    FLOAT32(2),  // byte-plane shuffled little-endian, NaN for missing values
+    BYTES(3),    // varint (length + 1, 0 for null) followed by the concatenated payloads
+    FLOAT64(4);  // byte-plane shuffled little-endian, NaN for missing values
+
+    final int code;
+
+    ColumnType(int code) {
+        this.code = code;
+    }
+
+    static ColumnType fromCode(int code) {
+        for (ColumnType type : values()) {
+            if (type.code == code) return type;
+        }
+        throw new IllegalArgumentException("Unknown column type " + code);
+    }
+}
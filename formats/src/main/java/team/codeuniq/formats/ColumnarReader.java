@@ -0,0 +1,298 @@
+package team.codeuniq.formats;
+
+import java.io.BufferedInputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+// Block-at-a-time reader for files written by ColumnarWriter. Columns not
+// passed to select() are skipped without inflating. Decoded columns land in
+// primitive arrays that are reused from block to block (BYTES columns as one
+// payload array plus row offsets), so a scan allocates only when a block is
+// larger than any before it.
+//
+//   try (ColumnarReader reader = new ColumnarReader(in)) {
+//       reader.select("zt_peak", "speed");
+//       int zt = reader.columnIndex("zt_peak");
+//       while (reader.nextBlock()) {
+//           float[] values = reader.getFloats(zt);
+//           for (int i = 0; i < reader.getRowCount(); i++) ...
+//       }
+//   }
+public class ColumnarReader implements Closeable {
+
+    private final DataInputStream in;
+    private final Map<String, String> metadata = new LinkedHashMap<>();
+    private final String[] names;
+    private final ColumnType[] types;
+    private final boolean[] selected;
+
+    private final long[][] longs;
+    private final float[][] floats;
+    private final double[][] doubles;
+    private final byte[][] payloads;
+    private final int[][] offsets;
+    private final boolean[][] nulls;
+    private final int version;
+    private int rows = 0;
+    private boolean finished = false;
+
+    private final Inflater inflater = new Inflater();
+    private byte[] compressed = new byte[4096];
+    private byte[] raw = new byte[4096];
+
+    public ColumnarReader(InputStream input) throws IOException {
+        in = new DataInputStream(input instanceof BufferedInputStream
+                ? input : new BufferedInputStream(input, 1 << 16));
+
+        byte[] magic = new byte[ColumnarWriter.MAGIC.length];
+        in.readFully(magic);
+        if (!Arrays.equals(magic, ColumnarWriter.MAGIC)) throw new IOException("Not a columnar export");
+        version = in.readUnsignedByte();
+        // Version 1 files have no null payloads and no FLOAT64 columns but are otherwise the same
+        if (version < 1 || version > ColumnarWriter.VERSION) {
+            throw new IOException("Unsupported version " + version);
+        }
+
+        int metadataCount = in.readInt();
+        for (int i = 0; i < metadataCount; i++) {
+            metadata.put(in.readUTF(), in.readUTF());
+        }
+
+        int columns = in.readInt();
+        names = new String[columns];
+        types = new ColumnType[columns];
+        for (int c = 0; c < columns; c++) {
+            names[c] = in.readUTF();
+            types[c] = ColumnType.fromCode(in.readUnsignedByte());
+        }
+
+        selected = new boolean[columns];
+        Arrays.fill(selected, true);
+        longs = new long[columns][];
+        floats = new float[columns][];
+        doubles = new double[columns][];
+        payloads = new byte[columns][];
+        offsets = new int[columns][];
+        nulls = new boolean[columns][];
+    }
+
+    public Map<String, String> getMetadata() {
+        return Collections.unmodifiableMap(metadata);
+    }
+
+    public int getColumnCount() {
+        return names.length;
+    }
+
+    public String getColumnName(int column) {
+        return names[column];
+    }
+
+    public ColumnType getColumnType(int column) {
+        return types[column];
+    }
+
+    public int columnIndex(String name) {
+        for (int c = 0; c < names.length; c++) {
+            if (names[c].equals(name)) return c;
+        }
+        return -1;
+    }
+
+    // Restricts decoding to the named columns (all columns by default)
+    public void select(String... columns) {
+        Arrays.fill(selected, false);
+        for (String name : columns) {
+            int c = columnIndex(name);
+            if (c < 0) throw new IllegalArgumentException("No column " + name);
+            selected[c] = true;
+        }
+    }
+
+    public boolean nextBlock() throws IOException {
+        if (finished) return false;
+        rows = in.readInt();
+        if (rows == 0) {
+            finished = true;
+            return false;
+        }
+
+        for (int c = 0; c < names.length; c++) {
+            int rawLength = in.readInt();
+            int compressedLength = in.readInt();
+            if (!selected[c]) {
+                skipFully(compressedLength);
+                continue;
+            }
+            inflate(compressedLength, rawLength);
+            switch (types[c]) {
+                case INT64: decodeLongs(c, rawLength); break;
+                case FLOAT32: decodeFloats(c); break;
+                case BYTES: decodeBytes(c, rawLength); break;
+                case FLOAT64: decodeDoubles(c); break;
+            }
+        }
+        return true;
+    }
+
+    public int getRowCount() {
+        return rows;
+    }
+
+    // The returned arrays are valid until the next call to nextBlock() and may
+    // be longer than getRowCount()
+    public long[] getLongs(int column) {
+        return longs[column];
+    }
+
+    public float[] getFloats(int column) {
+        return floats[column];
+    }
+
+    public double[] getDoubles(int column) {
+        return doubles[column];
+    }
+
+    // BYTES columns: row i is getPayload(c)[getOffsets(c)[i] .. getOffsets(c)[i + 1]),
+    // empty for a null row (see isNull)
+    public byte[] getPayload(int column) {
+        return payloads[column];
+    }
+
+    public int[] getOffsets(int column) {
+        return offsets[column];
+    }
+
+    public boolean isNull(int column, int row) {
+        return nulls[column][row];
+    }
+
+    // Copy of one row's payload, or null. Allocates, unlike the accessors above.
+    public byte[] getBytes(int column, int row) {
+        if (nulls[column][row]) return null;
+        return Arrays.copyOfRange(payloads[column], offsets[column][row], offsets[column][row + 1]);
+    }
+
+    private void inflate(int compressedLength, int rawLength) throws IOException {
+        if (compressed.length < compressedLength) compressed = new byte[compressedLength];
+        if (raw.length < rawLength) raw = new byte[rawLength];
+        in.readFully(compressed, 0, compressedLength);
+
+        inflater.reset();
+        inflater.setInput(compressed, 0, compressedLength);
+        try {
+            int total = 0;
+            while (total < rawLength) {
+                int n = inflater.inflate(raw, total, rawLength - total);
+                if (n == 0 && (inflater.finished() || inflater.needsInput())) break;
+                total += n;
+            }
+            if (total != rawLength) throw new IOException("Truncated column chunk");
+        } catch (DataFormatException e) {
+            throw new IOException("Corrupt column chunk", e);
+        }
+    }
+
+    private void decodeLongs(int column, int rawLength) throws IOException {
+        long[] values = longs[column];
+        if (values == null || values.length < rows) values = longs[column] = new long[rows];
+        int pos = 0;
+        long previous = 0;
+        for (int i = 0; i < rows; i++) {
+            long encoded = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (pos >= rawLength) throw new IOException("Truncated varint");
+                b = raw[pos++];
+                encoded |= (long) (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            previous += (encoded >>> 1) ^ -(encoded & 1);
+            values[i] = previous;
+        }
+    }
+
+    private void decodeFloats(int column) {
+        float[] values = floats[column];
+        if (values == null || values.length < rows) values = floats[column] = new float[rows];
+        int p1 = rows, p2 = 2 * rows, p3 = 3 * rows;
+        for (int i = 0; i < rows; i++) {
+            int bits = (raw[i] & 0xFF)
+                    | (raw[p1 + i] & 0xFF) << 8
+                    | (raw[p2 + i] & 0xFF) << 16
+                    | (raw[p3 + i] & 0xFF) << 24;
+            values[i] = Float.intBitsToFloat(bits);
+        }
+    }
+
+    private void decodeDoubles(int column) {
+        double[] values = doubles[column];
+        if (values == null || values.length < rows) values = doubles[column] = new double[rows];
+        for (int i = 0; i < rows; i++) {
+            long bits = 0;
+            for (int plane = 0; plane < 8; plane++) {
+                bits |= (raw[plane * rows + i] & 0xFFL) << (plane * 8);
+            }
+            values[i] = Double.longBitsToDouble(bits);
+        }
+    }
+
+    private void decodeBytes(int column, int rawLength) throws IOException {
+        int[] starts = offsets[column];
+        if (starts == null || starts.length < rows + 1) starts = offsets[column] = new int[rows + 1];
+        boolean[] isNull = nulls[column];
+        if (isNull == null || isNull.length < rows) isNull = nulls[column] = new boolean[rows];
+
+        int pos = 0;
+        int total = 0;
+        for (int i = 0; i < rows; i++) {
+            int length = 0;
+            int shift = 0;
+            byte b;
+            do {
+                if (pos >= rawLength) throw new IOException("Truncated varint");
+                b = raw[pos++];
+                length |= (b & 0x7F) << shift;
+                shift += 7;
+            } while (b < 0);
+            // Version 2 stores length + 1 so that 0 can mean null
+            isNull[i] = version >= 2 && length == 0;
+            if (version >= 2 && length > 0) length--;
+            starts[i] = total;
+            total += length;
+        }
+        starts[rows] = total;
+
+        if (total < 0 || pos + total > rawLength) throw new IOException("Truncated payload");
+        byte[] payload = payloads[column];
+        if (payload == null || payload.length < total) payload = payloads[column] = new byte[total];
+        System.arraycopy(raw, pos, payload, 0, total);
+    }
+
+    private void skipFully(int length) throws IOException {
+        while (length > 0) {
+            int skipped = in.skipBytes(length);
+            if (skipped <= 0) {
+                if (in.read() < 0) throw new EOFException();
+                skipped = 1;
+            }
+            length -= skipped;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        inflater.end();
+        in.close();
+    }
+}
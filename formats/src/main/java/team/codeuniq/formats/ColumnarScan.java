@@ -0,0 +1,64 @@
+package team.codeuniq.formats;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+
+// Command line scanner: prints the schema of each export and the mean of every
+// float and double column, then the overall scan rate.
+//
+//   java -cp formats.jar team.codeuniq.formats.ColumnarScan trip1.ptc trip2.ptc ...
+public class ColumnarScan {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length == 0) {
+            System.err.println("Usage: ColumnarScan <file.ptc>...");
+            System.exit(1);
+        }
+
+        long totalRows = 0;
+        long start = System.nanoTime();
+        for (String path : args) {
+            try (InputStream in = new FileInputStream(path);
+                 ColumnarReader reader = new ColumnarReader(in)) {
+                int columns = reader.getColumnCount();
+                double[] sums = new double[columns];
+                long[] counts = new long[columns];
+                long rows = 0;
+
+                while (reader.nextBlock()) {
+                    int n = reader.getRowCount();
+                    rows += n;
+                    for (int c = 0; c < columns; c++) {
+                        if (reader.getColumnType(c) == ColumnType.FLOAT32) {
+                            float[] values = reader.getFloats(c);
+                            for (int i = 0; i < n; i++) {
+                                if (Float.isNaN(values[i])) continue;
+                                sums[c] += values[i];
+                                counts[c]++;
+                            }
+                        } else if (reader.getColumnType(c) == ColumnType.FLOAT64) {
+                            double[] values = reader.getDoubles(c);
+                            for (int i = 0; i < n; i++) {
+                                if (Double.isNaN(values[i])) continue;
+                                sums[c] += values[i];
+                                counts[c]++;
+                            }
+                        }
+                    }
+                }
+                totalRows += rows;
+
+                System.out.println(path + ": " + rows + " rows " + reader.getMetadata());
+                for (int c = 0; c < columns; c++) {
+                    String line = "  " + reader.getColumnName(c) + " " + reader.getColumnType(c);
+                    if (counts[c] > 0) line += String.format(" mean=%.4f", sums[c] / counts[c]);
+                    System.out.println(line);
+                }
+            }
+        }
+
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d rows in %.3f s (%.0f rows/s)%n", totalRows, seconds, totalRows / seconds);
+    }
+}
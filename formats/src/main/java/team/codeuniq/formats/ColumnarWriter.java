@@ -0,0 +1,223 @@
+package team.codeuniq.formats;
+
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.Map;
+import java.util.zip.Deflater;
+
+// Writes rows into a columnar, block-compressed file (.ptc):
+//
+//   "PTCF" | version u8
+//   metadata count i32, then (key, value) as modified UTF-8
+//   column count i32, then (name UTF, type u8)
+//   blocks: row count i32 (> 0), then per column: raw length i32,
+//           compressed length i32, deflated column chunk
+//   row count 0 marks the end
+//
+// Every column chunk is deflated on its own so a reader can skip the columns
+// it doesn't need without inflating them. Rows are buffered in primitive
+// arrays until blockRows are collected.
+public class ColumnarWriter implements Closeable {
+
+    static final byte[] MAGIC = {'P', 'T', 'C', 'F'};
+    static final int VERSION = 2; // 2: null byte payloads, FLOAT64
+
+    private final DataOutputStream out;
+    private final ColumnType[] types;
+    private final int blockRows;
+
+    private final long[][] longs;
+    private final float[][] floats;
+    private final double[][] doubles;
+    private final byte[][][] bytes;
+    private int rows = 0;
+
+    private final Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION);
+    private final ByteSink raw = new ByteSink();
+    private byte[] compressed = new byte[4096];
+    private boolean closed = false;
+
+    public ColumnarWriter(OutputStream out, Map<String, String> metadata,
+                          String[] names, ColumnType[] types, int blockRows) throws IOException {
+        if (names.length != types.length) {
+            throw new IllegalArgumentException("Column names and types differ in length");
+        }
+        this.out = new DataOutputStream(out);
+        this.types = types.clone();
+        this.blockRows = blockRows;
+
+        longs = new long[types.length][];
+        floats = new float[types.length][];
+        doubles = new double[types.length][];
+        bytes = new byte[types.length][][];
+        for (int c = 0; c < types.length; c++) {
+            switch (types[c]) {
+                case INT64: longs[c] = new long[blockRows]; break;
+                case FLOAT32: floats[c] = new float[blockRows]; break;
+                case BYTES: bytes[c] = new byte[blockRows][]; break;
+                case FLOAT64: doubles[c] = new double[blockRows]; break;
+            }
+        }
+
+        this.out.write(MAGIC);
+        this.out.writeByte(VERSION);
+        this.out.writeInt(metadata.size());
+        for (Map.Entry<String, String> entry : metadata.entrySet()) {
+            this.out.writeUTF(entry.getKey());
+            this.out.writeUTF(entry.getValue());
+        }
+        this.out.writeInt(names.length);
+        for (int c = 0; c < names.length; c++) {
+            this.out.writeUTF(names[c]);
+            this.out.writeByte(types[c].code);
+        }
+    }
+
+    public void setLong(int column, long value) {
+        longs[column][rows] = value;
+    }
+
+    public void setFloat(int column, float value) {
+        floats[column][rows] = value;
+    }
+
+    public void setDouble(int column, double value) {
+        doubles[column][rows] = value;
+    }
+
+    // null is kept distinct from an empty array
+    public void setBytes(int column, byte[] value) {
+        bytes[column][rows] = value;
+    }
+
+    // Commits the values set since the previous endRow(); unset values keep
+    // whatever the slot held, so callers set every column of every row
+    public void endRow() throws IOException {
+        if (closed) throw new IOException("Writer is closed");
+        if (++rows == blockRows) flushBlock();
+    }
+
+    public int getBufferedRows() {
+        return rows;
+    }
+
+    private void flushBlock() throws IOException {
+        if (rows == 0) return;
+        out.writeInt(rows);
+        for (int c = 0; c < types.length; c++) {
+            raw.reset();
+            switch (types[c]) {
+                case INT64: encodeLongs(longs[c], rows, raw); break;
+                case FLOAT32: encodeFloats(floats[c], rows, raw); break;
+                case BYTES: encodeBytes(bytes[c], rows, raw); break;
+                case FLOAT64: encodeDoubles(doubles[c], rows, raw); break;
+            }
+            writeCompressed(raw);
+        }
+        for (byte[][] column : bytes) {
+            if (column != null) Arrays.fill(column, 0, rows, null);
+        }
+        rows = 0;
+    }
+
+    private void writeCompressed(ByteSink chunk) throws IOException {
+        deflater.reset();
+        deflater.setInput(chunk.buf, 0, chunk.size);
+        deflater.finish();
+        int length = 0;
+        while (!deflater.finished()) {
+            if (length == compressed.length) {
+                compressed = Arrays.copyOf(compressed, compressed.length * 2);
+            }
+            length += deflater.deflate(compressed, length, compressed.length - length);
+        }
+        out.writeInt(chunk.size);
+        out.writeInt(length);
+        out.write(compressed, 0, length);
+    }
+
+    private static void encodeLongs(long[] values, int count, ByteSink sink) {
+        long previous = 0;
+        for (int i = 0; i < count; i++) {
+            long delta = values[i] - previous;
+            previous = values[i];
+            sink.writeVarLong((delta << 1) ^ (delta >> 63));
+        }
+    }
+
+    // Byte plane k holds byte k of every value; exponents and high mantissa
+    // bytes of similar readings then sit next to each other and deflate well
+    private static void encodeFloats(float[] values, int count, ByteSink sink) {
+        sink.ensure(count * 4);
+        for (int plane = 0; plane < 4; plane++) {
+            int shift = plane * 8;
+            for (int i = 0; i < count; i++) {
+                sink.buf[sink.size++] = (byte) (Float.floatToRawIntBits(values[i]) >>> shift);
+            }
+        }
+    }
+
+    private static void encodeDoubles(double[] values, int count, ByteSink sink) {
+        sink.ensure(count * 8);
+        for (int plane = 0; plane < 8; plane++) {
+            int shift = plane * 8;
+            for (int i = 0; i < count; i++) {
+                sink.buf[sink.size++] = (byte) (Double.doubleToRawLongBits(values[i]) >>> shift);
+            }
+        }
+    }
+
+    private static void encodeBytes(byte[][] values, int count, ByteSink sink) {
+        for (int i = 0; i < count; i++) {
+            sink.writeVarLong(values[i] == null ? 0 : values[i].length + 1L);
+        }
+        for (int i = 0; i < count; i++) {
+            if (values[i] == null) continue;
+            sink.ensure(values[i].length);
+            System.arraycopy(values[i], 0, sink.buf, sink.size, values[i].length);
+            sink.size += values[i].length;
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (closed) return;
+        try {
+            flushBlock();
+            out.writeInt(0);
+            out.flush();
+        } finally {
+            closed = true;
+            deflater.end();
+            out.close();
+        }
+    }
+
+    // Growable byte array reused across column chunks
+    static final class ByteSink {
+        byte[] buf = new byte[4096];
+        int size = 0;
+
+        void reset() {
+            size = 0;
+        }
+
+        void ensure(int extra) {
+            if (size + extra > buf.length) {
+                buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + extra));
+            }
+        }
+
+        void writeVarLong(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buf[size++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buf[size++] = (byte) value;
+        }
+    }
+}
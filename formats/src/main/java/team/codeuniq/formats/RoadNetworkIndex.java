@@ -0,0 +1,171 @@
+package team.codeuniq.formats;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+// Read side of a road network file (.ptrn) written by RoadNetworkWriter.
+// The file is memory-mapped and read with absolute gets, so the heap cost is
+// a fixed traversal stack no matter how many segments the map holds; the OS
+// pages in only the R-tree nodes and segments a query touches.
+//
+// Layout (little-endian, coordinates as degrees × 1e7 in int32):
+//   "PTRN" | version i32 | node size i32 | segment count i32 | level count i32
+//   level end i32 × level count    (cumulative box counts, leaves first)
+//   boxes: minLat, minLon, maxLat, maxLon × total boxes
+//   segments: id i64, lat1, lon1, lat2, lon2 × segment count
+// Level 0 holds one box per segment in Hilbert order; each box of level l
+// covers node-size consecutive boxes of level l - 1 (a packed R-tree).
+public class RoadNetworkIndex implements Closeable {
+
+    static final byte[] MAGIC = {'P', 'T', 'R', 'N'};
+    static final int VERSION = 1;
+    static final int BOX_BYTES = 16;
+    static final int SEGMENT_BYTES = 24;
+    static final double E7 = 1e7;
+
+    private static final double METERS_PER_DEGREE = 111_320.0;
+
+    public interface Visitor {
+        void visit(int segment);
+    }
+
+    private final RandomAccessFile file;
+    private final ByteBuffer buffer;
+    private final int nodeSize;
+    private final int segmentCount;
+    private final int[] levelEnd;
+    private final int boxesOffset;
+    private final int segmentsOffset;
+
+    private final int[] stack;
+
+    public RoadNetworkIndex(File path) throws IOException {
+        file = new RandomAccessFile(path, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    .order(ByteOrder.LITTLE_ENDIAN);
+
+            for (int i = 0; i < MAGIC.length; i++) {
+                if (buffer.get(i) != MAGIC[i]) throw new IOException("Not a road network file");
+            }
+            int version = buffer.getInt(4);
+            if (version != VERSION) throw new IOException("Unsupported version " + version);
+            nodeSize = buffer.getInt(8);
+            segmentCount = buffer.getInt(12);
+            int levels = buffer.getInt(16);
+            if (nodeSize < 2 || segmentCount < 1 || levels < 1) throw new IOException("Corrupt header");
+
+            levelEnd = new int[levels];
+            for (int l = 0; l < levels; l++) levelEnd[l] = buffer.getInt(20 + 4 * l);
+            boxesOffset = 20 + 4 * levels;
+            segmentsOffset = boxesOffset + levelEnd[levels - 1] * BOX_BYTES;
+            if (segmentsOffset + (long) segmentCount * SEGMENT_BYTES > buffer.capacity()) {
+                throw new IOException("Truncated road network file");
+            }
+
+            stack = new int[levels * nodeSize + 1];
+        } catch (IOException | RuntimeException e) {
+            file.close();
+            throw e;
+        }
+    }
+
+    public int getSegmentCount() {
+        return segmentCount;
+    }
+
+    // Calls the visitor for every segment whose bounding box intersects the query box.
+    // Not thread-safe: the traversal stack is shared.
+    public int search(double minLat, double minLon, double maxLat, double maxLon, Visitor visitor) {
+        int qMinLat = (int) Math.floor(minLat * E7), qMinLon = (int) Math.floor(minLon * E7);
+        int qMaxLat = (int) Math.ceil(maxLat * E7), qMaxLon = (int) Math.ceil(maxLon * E7);
+
+        int found = 0;
+        int top = 0;
+        stack[top++] = levelEnd[levelEnd.length - 1] - 1; // root
+        while (top > 0) {
+            int box = stack[--top];
+            if (!intersects(box, qMinLat, qMinLon, qMaxLat, qMaxLon)) continue;
+
+            if (box < segmentCount) {
+                visitor.visit(box);
+                found++;
+                continue;
+            }
+            int level = levelOf(box);
+            int firstChild = (box - levelEnd[level - 1]) * nodeSize + (level >= 2 ? levelEnd[level - 2] : 0);
+            int lastChild = Math.min(firstChild + nodeSize, levelEnd[level - 1]);
+            for (int child = firstChild; child < lastChild; child++) {
+                stack[top++] = child;
+            }
+        }
+        return found;
+    }
+
+    private int levelOf(int box) {
+        int level = 0;
+        while (box >= levelEnd[level]) level++;
+        return level;
+    }
+
+    private boolean intersects(int box, int minLat, int minLon, int maxLat, int maxLon) {
+        int at = boxesOffset + box * BOX_BYTES;
+        return buffer.getInt(at) <= maxLat && buffer.getInt(at + 4) <= maxLon
+                && buffer.getInt(at + 8) >= minLat && buffer.getInt(at + 12) >= minLon;
+    }
+
+    public long getSegmentId(int segment) {
+        return buffer.getLong(segmentsOffset + segment * SEGMENT_BYTES);
+    }
+
+    private int coordinate(int segment, int index) {
+        return buffer.getInt(segmentsOffset + segment * SEGMENT_BYTES + 8 + index * 4);
+    }
+
+    public boolean sharesEndpoint(int a, int b) {
+        int aLat1 = coordinate(a, 0), aLon1 = coordinate(a, 1), aLat2 = coordinate(a, 2), aLon2 = coordinate(a, 3);
+        int bLat1 = coordinate(b, 0), bLon1 = coordinate(b, 1), bLat2 = coordinate(b, 2), bLon2 = coordinate(b, 3);
+        return (aLat1 == bLat1 && aLon1 == bLon1) || (aLat1 == bLat2 && aLon1 == bLon2)
+                || (aLat2 == bLat1 && aLon2 == bLon1) || (aLat2 == bLat2 && aLon2 == bLon2);
+    }
+
+    // Projects a point onto the segment in a local equirectangular frame. Returns
+    // the distance in metres and writes the offset from the segment start (m) to
+    // out[0] and the segment bearing (degrees from north, start to end) to out[1].
+    public double project(int segment, double lat, double lon, double[] out) {
+        double cosLat = Math.cos(Math.toRadians(lat));
+        double lat1 = coordinate(segment, 0) / E7, lon1 = coordinate(segment, 1) / E7;
+        double lat2 = coordinate(segment, 2) / E7, lon2 = coordinate(segment, 3) / E7;
+
+        double ax = (lon1 - lon) * cosLat * METERS_PER_DEGREE, ay = (lat1 - lat) * METERS_PER_DEGREE;
+        double bx = (lon2 - lon) * cosLat * METERS_PER_DEGREE, by = (lat2 - lat) * METERS_PER_DEGREE;
+        double dx = bx - ax, dy = by - ay;
+        double lengthSq = dx * dx + dy * dy;
+        double t = lengthSq > 0 ? Math.max(0, Math.min(1, -(ax * dx + ay * dy) / lengthSq)) : 0;
+
+        double px = ax + t * dx, py = ay + t * dy;
+        out[0] = t * Math.sqrt(lengthSq);
+        double bearing = Math.toDegrees(Math.atan2(dx, dy));
+        out[1] = bearing < 0 ? bearing + 360 : bearing;
+        return Math.sqrt(px * px + py * py);
+    }
+
+    public static double metersToLatDegrees(double meters) {
+        return meters / METERS_PER_DEGREE;
+    }
+
+    public static double metersToLonDegrees(double meters, double lat) {
+        return meters / (METERS_PER_DEGREE * Math.max(0.01, Math.cos(Math.toRadians(lat))));
+    }
+
+    @Override
+    public void close() throws IOException {
+        file.close();
+    }
+}
@@ -0,0 +1,171 @@
+package team.codeuniq.formats;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+
+// Builds a road network file for RoadNetworkIndex from straight road segments.
+// Runs off-device; the command line form converts a CSV of
+// "id,lat1,lon1,lat2,lon2" lines (e.g. OpenStreetMap way edges):
+//
+//   java -cp formats.jar team.codeuniq.formats.RoadNetworkWriter roads.csv road_network.ptrn
+public class RoadNetworkWriter {
+
+    public static final int DEFAULT_NODE_SIZE = 16;
+
+    private long[] ids = new long[1024];
+    private int[] coordinates = new int[1024 * 4];
+    private int count = 0;
+
+    public void add(long id, double lat1, double lon1, double lat2, double lon2) {
+        if (count == ids.length) {
+            ids = Arrays.copyOf(ids, count * 2);
+            coordinates = Arrays.copyOf(coordinates, count * 8);
+        }
+        ids[count] = id;
+        coordinates[count * 4] = (int) Math.round(lat1 * RoadNetworkIndex.E7);
+        coordinates[count * 4 + 1] = (int) Math.round(lon1 * RoadNetworkIndex.E7);
+        coordinates[count * 4 + 2] = (int) Math.round(lat2 * RoadNetworkIndex.E7);
+        coordinates[count * 4 + 3] = (int) Math.round(lon2 * RoadNetworkIndex.E7);
+        count++;
+    }
+
+    public int size() {
+        return count;
+    }
+
+    public void write(OutputStream out, int nodeSize) throws IOException {
+        if (count == 0) throw new IllegalStateException("No segments added");
+
+        // Sort segments along a Hilbert curve over their centres so neighbours share nodes
+        int[] order = hilbertOrder();
+
+        // Level sizes, leaves first
+        int levels = 1;
+        for (int n = count; n > 1; n = (n + nodeSize - 1) / nodeSize) levels++;
+        int[] levelEnd = new int[levels];
+        int total = 0;
+        for (int l = 0, n = count; l < levels; l++, n = (n + nodeSize - 1) / nodeSize) {
+            total += n;
+            levelEnd[l] = total;
+        }
+
+        int[] boxes = new int[total * 4];
+        for (int i = 0; i < count; i++) {
+            int s = order[i] * 4;
+            boxes[i * 4] = Math.min(coordinates[s], coordinates[s + 2]);
+            boxes[i * 4 + 1] = Math.min(coordinates[s + 1], coordinates[s + 3]);
+            boxes[i * 4 + 2] = Math.max(coordinates[s], coordinates[s + 2]);
+            boxes[i * 4 + 3] = Math.max(coordinates[s + 1], coordinates[s + 3]);
+        }
+        for (int l = 1; l < levels; l++) {
+            int childStart = l >= 2 ? levelEnd[l - 2] : 0;
+            for (int box = levelEnd[l - 1]; box < levelEnd[l]; box++) {
+                int first = (box - levelEnd[l - 1]) * nodeSize + childStart;
+                int last = Math.min(first + nodeSize, levelEnd[l - 1]);
+                int minLat = Integer.MAX_VALUE, minLon = Integer.MAX_VALUE;
+                int maxLat = Integer.MIN_VALUE, maxLon = Integer.MIN_VALUE;
+                for (int c = first; c < last; c++) {
+                    minLat = Math.min(minLat, boxes[c * 4]);
+                    minLon = Math.min(minLon, boxes[c * 4 + 1]);
+                    maxLat = Math.max(maxLat, boxes[c * 4 + 2]);
+                    maxLon = Math.max(maxLon, boxes[c * 4 + 3]);
+                }
+                boxes[box * 4] = minLat;
+                boxes[box * 4 + 1] = minLon;
+                boxes[box * 4 + 2] = maxLat;
+                boxes[box * 4 + 3] = maxLon;
+            }
+        }
+
+        int headerBytes = 20 + 4 * levels;
+        ByteBuffer buffer = ByteBuffer.allocate(headerBytes + total * RoadNetworkIndex.BOX_BYTES
+                + count * RoadNetworkIndex.SEGMENT_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(RoadNetworkIndex.MAGIC);
+        buffer.putInt(RoadNetworkIndex.VERSION).putInt(nodeSize).putInt(count).putInt(levels);
+        for (int end : levelEnd) buffer.putInt(end);
+        for (int value : boxes) buffer.putInt(value);
+        for (int i = 0; i < count; i++) {
+            int s = order[i];
+            buffer.putLong(ids[s]);
+            for (int k = 0; k < 4; k++) buffer.putInt(coordinates[s * 4 + k]);
+        }
+        out.write(buffer.array());
+    }
+
+    private int[] hilbertOrder() {
+        long minLat = Long.MAX_VALUE, minLon = Long.MAX_VALUE, maxLat = Long.MIN_VALUE, maxLon = Long.MIN_VALUE;
+        for (int i = 0; i < count; i++) {
+            long lat = ((long) coordinates[i * 4] + coordinates[i * 4 + 2]) / 2;
+            long lon = ((long) coordinates[i * 4 + 1] + coordinates[i * 4 + 3]) / 2;
+            minLat = Math.min(minLat, lat);
+            maxLat = Math.max(maxLat, lat);
+            minLon = Math.min(minLon, lon);
+            maxLon = Math.max(maxLon, lon);
+        }
+        double latSpan = Math.max(1, maxLat - minLat), lonSpan = Math.max(1, maxLon - minLon);
+
+        long[] keyed = new long[count];
+        for (int i = 0; i < count; i++) {
+            long lat = ((long) coordinates[i * 4] + coordinates[i * 4 + 2]) / 2;
+            long lon = ((long) coordinates[i * 4 + 1] + coordinates[i * 4 + 3]) / 2;
+            int x = (int) (0x7FFF * (lon - minLon) / lonSpan);
+            int y = (int) (0x7FFF * (lat - minLat) / latSpan);
+            keyed[i] = ((long) hilbert(x, y) << 32) | i;
+        }
+        Arrays.sort(keyed);
+
+        int[] order = new int[count];
+        for (int i = 0; i < count; i++) order[i] = (int) keyed[i];
+        return order;
+    }
+
+    // Index of (x, y) on a 15-bit Hilbert curve (fits in an int)
+    private static int hilbert(int x, int y) {
+        int d = 0;
+        for (int s = 1 << 14; s > 0; s >>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            d += s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = s - 1 - x;
+                    y = s - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: RoadNetworkWriter <segments.csv> <out.ptrn>");
+            System.exit(1);
+        }
+
+        RoadNetworkWriter writer = new RoadNetworkWriter();
+        try (BufferedReader reader = new BufferedReader(new FileReader(args[0]))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (line.isEmpty() || line.startsWith("#") || line.startsWith("id")) continue;
+                String[] parts = line.split(",");
+                writer.add(Long.parseLong(parts[0].trim()),
+                        Double.parseDouble(parts[1].trim()), Double.parseDouble(parts[2].trim()),
+                        Double.parseDouble(parts[3].trim()), Double.parseDouble(parts[4].trim()));
+            }
+        }
+        try (OutputStream out = new FileOutputStream(args[1])) {
+            writer.write(out, DEFAULT_NODE_SIZE);
+        }
+        System.out.println(writer.size() + " segments written to " + new File(args[1]).getName());
+    }
+}
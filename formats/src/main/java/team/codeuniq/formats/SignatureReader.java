@@ -0,0 +1,93 @@
+package team.codeuniq.formats;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+// Decoder for the multi-axis signature blobs the app attaches to detections
+// (the "signature" column of a trip export). Little-endian layout:
+//
+//   magic "PS" | version u8 | flags u8 | count u16 | reserved u16
+//   accel scale f32 | gyro scale f32 | first offset from event i32 (µs)
+//   count-1 timestamp deltas u16 (units of 10 µs)
+//   count i16 each for ax, ay, az, gx, gy, gz (value / scale)
+//
+// From version 2 a delta of DELTA_ESCAPE is followed by the real delta as an
+// i32, so gaps longer than ~655 ms keep their length; version 1 clamped them.
+// Deltas are taken between quantized times, so rounding doesn't accumulate.
+//
+//   SignatureReader signature = new SignatureReader(blob);
+//   long[] t = signature.getOffsetsNs();
+//   float[] z = signature.getAccel(2);
+public class SignatureReader {
+
+    public static final int VERSION = 2;
+    public static final int HEADER_BYTES = 20;
+    public static final long DELTA_UNIT_NS = 10_000L;
+    public static final int DELTA_ESCAPE = 0xFFFF;
+    public static final int AXES = 3;
+
+    private final int version;
+    private final int count;
+    private final long[] offsetsNs;
+    private final float[][] accel = new float[AXES][];
+    private final float[][] gyro = new float[AXES][];
+
+    public SignatureReader(byte[] blob) throws IOException {
+        if (blob == null || blob.length < HEADER_BYTES) throw new IOException("Not a signature");
+        ByteBuffer in = ByteBuffer.wrap(blob).order(ByteOrder.LITTLE_ENDIAN);
+        if (in.get() != 'P' || in.get() != 'S') throw new IOException("Not a signature");
+        version = in.get() & 0xFF;
+        if (version < 1 || version > VERSION) throw new IOException("Unsupported version " + version);
+        in.get(); // flags
+        count = in.getShort() & 0xFFFF;
+        in.getShort(); // reserved
+        float accelScale = in.getFloat();
+        float gyroScale = in.getFloat();
+        long firstNs = in.getInt() * 1000L;
+
+        try {
+            offsetsNs = new long[count];
+            if (count > 0) offsetsNs[0] = firstNs;
+            for (int i = 1; i < count; i++) {
+                long delta = in.getShort() & 0xFFFF;
+                if (delta == DELTA_ESCAPE && version >= 2) delta = in.getInt() & 0xFFFFFFFFL;
+                offsetsNs[i] = offsetsNs[i - 1] + delta * DELTA_UNIT_NS;
+            }
+            for (int axis = 0; axis < AXES; axis++) accel[axis] = readColumn(in, accelScale);
+            for (int axis = 0; axis < AXES; axis++) gyro[axis] = readColumn(in, gyroScale);
+        } catch (BufferUnderflowException e) {
+            throw new IOException("Truncated signature", e);
+        }
+    }
+
+    private float[] readColumn(ByteBuffer in, float scale) {
+        float[] values = new float[count];
+        for (int i = 0; i < count; i++) values[i] = in.getShort() * scale;
+        return values;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public int getSampleCount() {
+        return count;
+    }
+
+    // Sample times relative to the event, in ns (10 µs resolution)
+    public long[] getOffsetsNs() {
+        return offsetsNs;
+    }
+
+    // m/s², axis 0..2 = x, y, z in device coordinates
+    public float[] getAccel(int axis) {
+        return accel[axis];
+    }
+
+    // rad/s, the latest gyroscope reading at each accelerometer sample
+    public float[] getGyro(int axis) {
+        return gyro[axis];
+    }
+}
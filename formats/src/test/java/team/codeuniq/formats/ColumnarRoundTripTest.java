@@ -0,0 +1,160 @@
+package team.codeuniq.formats;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class ColumnarRoundTripTest {
+
+    private static final String[] NAMES = {"time", "lat", "zt", "blob"};
+    private static final ColumnType[] TYPES = {
+            ColumnType.INT64, ColumnType.FLOAT64, ColumnType.FLOAT32, ColumnType.BYTES
+    };
+
+    private static final class Rows {
+        final long[] times;
+        final double[] lats;
+        final float[] zts;
+        final byte[][] blobs;
+
+        Rows(int n, long seed) {
+            Random random = new Random(seed);
+            times = new long[n];
+            lats = new double[n];
+            zts = new float[n];
+            blobs = new byte[n][];
+            for (int i = 0; i < n; i++) {
+                // Deltas of both signs, including the extremes
+                times[i] = i == 1 ? Long.MIN_VALUE
+                        : i == 2 ? Long.MAX_VALUE
+                        : random.nextLong() >> random.nextInt(60);
+                lats[i] = 19.0760 + random.nextDouble() * 1e-5;
+                zts[i] = i % 7 == 3 ? Float.NaN : (float) random.nextGaussian() * 10;
+                switch (i % 3) {
+                    case 0: blobs[i] = null; break;
+                    case 1: blobs[i] = new byte[0]; break;
+                    default:
+                        blobs[i] = new byte[random.nextInt(300) + 1];
+                        random.nextBytes(blobs[i]);
+                        break;
+                }
+            }
+        }
+    }
+
+    private static byte[] write(Rows rows, Map<String, String> metadata, int blockRows) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (ColumnarWriter writer = new ColumnarWriter(out, metadata, NAMES, TYPES, blockRows)) {
+            for (int i = 0; i < rows.times.length; i++) {
+                writer.setLong(0, rows.times[i]);
+                writer.setDouble(1, rows.lats[i]);
+                writer.setFloat(2, rows.zts[i]);
+                writer.setBytes(3, rows.blobs[i]);
+                writer.endRow();
+            }
+        }
+        return out.toByteArray();
+    }
+
+    @Test
+    public void everyTypeRoundTripsAcrossBlocks() throws IOException {
+        // 10 rows in blocks of 4: two full blocks and a shorter last one
+        Rows rows = new Rows(10, 1);
+        Map<String, String> metadata = new LinkedHashMap<>();
+        metadata.put("session_id", "s1");
+        byte[] file = write(rows, metadata, 4);
+
+        try (ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(file))) {
+            assertEquals(metadata, reader.getMetadata());
+            assertEquals(4, reader.getColumnCount());
+            for (int c = 0; c < NAMES.length; c++) {
+                assertEquals(NAMES[c], reader.getColumnName(c));
+                assertEquals(TYPES[c], reader.getColumnType(c));
+            }
+
+            int row = 0;
+            int[] blockSizes = {4, 4, 2};
+            for (int expectedRows : blockSizes) {
+                assertTrue(reader.nextBlock());
+                assertEquals(expectedRows, reader.getRowCount());
+                for (int i = 0; i < expectedRows; i++, row++) {
+                    assertEquals(rows.times[row], reader.getLongs(0)[i]);
+                    assertEquals(Double.doubleToRawLongBits(rows.lats[row]),
+                            Double.doubleToRawLongBits(reader.getDoubles(1)[i]));
+                    assertEquals(Float.floatToRawIntBits(rows.zts[row]),
+                            Float.floatToRawIntBits(reader.getFloats(2)[i]));
+                    assertArrayEquals("row " + row, rows.blobs[row], reader.getBytes(3, i));
+                    assertEquals(rows.blobs[row] == null, reader.isNull(3, i));
+                }
+            }
+            assertFalse(reader.nextBlock());
+            assertFalse(reader.nextBlock());
+        }
+    }
+
+    @Test
+    public void nullAndEmptyPayloadsStayDistinct() throws IOException {
+        Rows rows = new Rows(3, 2); // null, empty, non-empty
+        try (ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(
+                write(rows, new LinkedHashMap<>(), 16)))) {
+            assertTrue(reader.nextBlock());
+            assertNull(reader.getBytes(3, 0));
+            assertArrayEquals(new byte[0], reader.getBytes(3, 1));
+            assertTrue(reader.isNull(3, 0));
+            assertFalse(reader.isNull(3, 1));
+
+            // Offsets index the shared payload without copying
+            int[] offsets = reader.getOffsets(3);
+            assertEquals(offsets[0], offsets[1]);
+            assertEquals(offsets[1], offsets[2]);
+            assertEquals(rows.blobs[2].length, offsets[3] - offsets[2]);
+            assertEquals(rows.blobs[2][0], reader.getPayload(3)[offsets[2]]);
+        }
+    }
+
+    @Test
+    public void unselectedColumnsAreSkipped() throws IOException {
+        Rows rows = new Rows(50, 3);
+        byte[] file = write(rows, new LinkedHashMap<>(), 8);
+        try (ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(file))) {
+            reader.select("zt");
+            int row = 0;
+            while (reader.nextBlock()) {
+                assertNull(reader.getLongs(0));
+                assertNull(reader.getPayload(3));
+                for (int i = 0; i < reader.getRowCount(); i++, row++) {
+                    assertEquals(Float.floatToRawIntBits(rows.zts[row]),
+                            Float.floatToRawIntBits(reader.getFloats(2)[i]));
+                }
+            }
+            assertEquals(50, row);
+        }
+    }
+
+    @Test
+    public void emptyFileHasNoBlocks() throws IOException {
+        try (ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(
+                write(new Rows(0, 4), new LinkedHashMap<>(), 8)))) {
+            assertFalse(reader.nextBlock());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFileFails() throws IOException {
+        byte[] file = write(new Rows(20, 5), new LinkedHashMap<>(), 8);
+        byte[] truncated = Arrays.copyOf(file, file.length / 2);
+        try (ColumnarReader reader = new ColumnarReader(new ByteArrayInputStream(truncated))) {
+            while (reader.nextBlock()) {
+                // drain
+            }
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package team.codeuniq.formats;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class RoadNetworkIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    // Short random segments scattered over a few kilometres, like a city's way edges
+    private static final class Network {
+        final long[] ids;
+        final double[][] coordinates; // lat1, lon1, lat2, lon2
+
+        Network(int count, long seed) {
+            Random random = new Random(seed);
+            ids = new long[count];
+            coordinates = new double[count][];
+            for (int i = 0; i < count; i++) {
+                double lat = 19.0 + random.nextDouble() * 0.05;
+                double lon = 72.8 + random.nextDouble() * 0.05;
+                ids[i] = 1000L + i * 7L;
+                coordinates[i] = new double[]{lat, lon,
+                        lat + (random.nextDouble() - 0.5) * 0.002, lon + (random.nextDouble() - 0.5) * 0.002};
+            }
+        }
+
+        File write(File file, int nodeSize) throws IOException {
+            RoadNetworkWriter writer = new RoadNetworkWriter();
+            for (int i = 0; i < ids.length; i++) {
+                double[] c = coordinates[i];
+                writer.add(ids[i], c[0], c[1], c[2], c[3]);
+            }
+            try (OutputStream out = new FileOutputStream(file)) {
+                writer.write(out, nodeSize);
+            }
+            return file;
+        }
+
+        // Linear scan over the same fixed-point boxes the index stores
+        Set<Long> bruteForce(double minLat, double minLon, double maxLat, double maxLon) {
+            long qMinLat = (long) Math.floor(minLat * 1e7), qMinLon = (long) Math.floor(minLon * 1e7);
+            long qMaxLat = (long) Math.ceil(maxLat * 1e7), qMaxLon = (long) Math.ceil(maxLon * 1e7);
+            Set<Long> found = new HashSet<>();
+            for (int i = 0; i < ids.length; i++) {
+                long lat1 = Math.round(coordinates[i][0] * 1e7), lon1 = Math.round(coordinates[i][1] * 1e7);
+                long lat2 = Math.round(coordinates[i][2] * 1e7), lon2 = Math.round(coordinates[i][3] * 1e7);
+                if (Math.min(lat1, lat2) <= qMaxLat && Math.min(lon1, lon2) <= qMaxLon
+                        && Math.max(lat1, lat2) >= qMinLat && Math.max(lon1, lon2) >= qMinLon) {
+                    found.add(ids[i]);
+                }
+            }
+            return found;
+        }
+    }
+
+    private static Set<Long> search(RoadNetworkIndex index, double minLat, double minLon,
+                                    double maxLat, double maxLon) {
+        Set<Long> found = new HashSet<>();
+        int count = index.search(minLat, minLon, maxLat, maxLon,
+                segment -> assertTrue("visited twice", found.add(index.getSegmentId(segment))));
+        assertEquals(found.size(), count);
+        return found;
+    }
+
+    @Test
+    public void searchMatchesBruteForce() throws IOException {
+        Network network = new Network(5000, 1);
+        Random random = new Random(2);
+        for (int nodeSize : new int[]{2, 4, RoadNetworkWriter.DEFAULT_NODE_SIZE}) {
+            File file = network.write(folder.newFile("roads_" + nodeSize + ".ptrn"), nodeSize);
+            try (RoadNetworkIndex index = new RoadNetworkIndex(file)) {
+                assertEquals(5000, index.getSegmentCount());
+                for (int q = 0; q < 500; q++) {
+                    // Mostly detection-sized boxes, some covering a large part of the map
+                    double size = q % 10 == 0 ? 0.02 : 0.0005 + random.nextDouble() * 0.001;
+                    double lat = 18.99 + random.nextDouble() * 0.07;
+                    double lon = 72.79 + random.nextDouble() * 0.07;
+                    assertEquals("node size " + nodeSize + " query " + q,
+                            network.bruteForce(lat, lon, lat + size, lon + size),
+                            search(index, lat, lon, lat + size, lon + size));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void singleSegmentNetwork() throws IOException {
+        Network network = new Network(1, 3);
+        try (RoadNetworkIndex index = new RoadNetworkIndex(network.write(folder.newFile(), 16))) {
+            double[] c = network.coordinates[0];
+            assertEquals(Set.of(network.ids[0]), search(index, c[0], c[1], c[0], c[1]));
+            assertTrue(search(index, 0, 0, 1, 1).isEmpty());
+        }
+    }
+
+    @Test
+    public void projectGivesDistanceOffsetAndBearing() throws IOException {
+        // 0.001° of latitude due north, about 111 m
+        RoadNetworkWriter writer = new RoadNetworkWriter();
+        writer.add(1, 19.0, 72.8, 19.001, 72.8);
+        File file = folder.newFile();
+        try (OutputStream out = new FileOutputStream(file)) {
+            writer.write(out, 16);
+        }
+
+        try (RoadNetworkIndex index = new RoadNetworkIndex(file)) {
+            double[] out = new double[2];
+            double east = RoadNetworkIndex.metersToLonDegrees(10, 19.0005);
+            double distance = index.project(0, 19.0005, 72.8 + east, out);
+            assertEquals(10, distance, 0.01);
+            assertEquals(55.66, out[0], 0.01);
+            assertEquals(0, out[1], 1e-6);
+
+            // Beyond the end the projection clamps to the endpoint
+            distance = index.project(0, 19.002, 72.8, out);
+            assertEquals(111.32, distance, 0.01);
+            assertEquals(111.32, out[0], 0.01);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void truncatedFileIsRejected() throws IOException {
+        File file = new Network(100, 4).write(folder.newFile(), 16);
+        try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+            raf.setLength(raf.length() - 1);
+        }
+        new RoadNetworkIndex(file).close();
+    }
+}